@@ -5,9 +5,9 @@ import com.emc.ecs.management.sdk.model.BaseUrl;
 import com.emc.ecs.management.sdk.model.BaseUrlInfo;
 import com.emc.ecs.management.sdk.model.BaseUrlList;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -18,17 +18,30 @@ public final class BaseUrlAction {
 
     public static List<BaseUrl> list(Connection connection)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BASEURL);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(BaseUrlList.class).getBaseUrls();
+        return connection.handleRemoteCall(GET, listUri(connection), null, BaseUrlList.class).getBaseUrls();
+    }
+
+    public static CompletableFuture<List<BaseUrl>> listAsync(Connection connection) {
+        return connection.handleRemoteCallAsync(GET, listUri(connection), null, BaseUrlList.class)
+                .thenApply(BaseUrlList::getBaseUrls);
     }
 
     public static BaseUrlInfo get(Connection connection, String id)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BASEURL,
+        return connection.handleRemoteCall(GET, baseUrlUri(connection, id), null, BaseUrlInfo.class);
+    }
+
+    public static CompletableFuture<BaseUrlInfo> getAsync(Connection connection, String id) {
+        return connection.handleRemoteCallAsync(GET, baseUrlUri(connection, id), null, BaseUrlInfo.class);
+    }
+
+    private static UriBuilder listUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, BASEURL);
+    }
+
+    private static UriBuilder baseUrlUri(Connection connection, String id) {
+        return connection.getUriBuilder().segment(OBJECT, BASEURL,
                 id);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(BaseUrlInfo.class);
     }
 
-}
\ No newline at end of file
+}
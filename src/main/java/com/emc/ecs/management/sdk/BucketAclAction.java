@@ -3,8 +3,8 @@ package com.emc.ecs.management.sdk;
 import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.management.sdk.model.BucketAcl;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -15,25 +15,42 @@ public final class BucketAclAction {
 
     public static void update(Connection connection, String id, BucketAcl acl)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BUCKET, id,
-                ACL);
-        connection.handleRemoteCall(PUT, uri, acl);
+        connection.handleRemoteCall(PUT, updateUri(connection, id), acl, Void.class);
+    }
+
+    public static CompletableFuture<Void> updateAsync(Connection connection, String id, BucketAcl acl) {
+        return connection.handleRemoteCallAsync(PUT, updateUri(connection, id), acl);
     }
 
     public static BucketAcl get(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, ACL)
-                .queryParam(NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(BucketAcl.class);
+        return connection.handleRemoteCall(GET, aclUri(connection, id, namespace), null, BucketAcl.class);
+    }
+
+    public static CompletableFuture<BucketAcl> getAsync(Connection connection, String id,
+                                                        String namespace) {
+        return connection.handleRemoteCallAsync(GET, aclUri(connection, id, namespace), null,
+                BucketAcl.class);
     }
 
     public static boolean exists(Connection connection, String id,
                                  String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
+        return connection.existenceQuery(aclUri(connection, id, namespace), null);
+    }
+
+    public static CompletableFuture<Boolean> existsAsync(Connection connection, String id,
+                                                         String namespace) {
+        return connection.existenceQueryAsync(aclUri(connection, id, namespace), null);
+    }
+
+    private static UriBuilder updateUri(Connection connection, String id) {
+        return connection.getUriBuilder().segment(OBJECT, BUCKET, id,
+                ACL);
+    }
+
+    private static UriBuilder aclUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
             .segment(OBJECT, BUCKET, id, ACL)
             .queryParam(NAMESPACE, namespace);
-        return connection.existenceQuery(uri, null);
     }
 }
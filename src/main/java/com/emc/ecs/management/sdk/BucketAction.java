@@ -4,8 +4,8 @@ import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.management.sdk.model.ObjectBucketCreate;
 import com.emc.ecs.management.sdk.model.ObjectBucketInfo;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,41 +17,70 @@ public final class BucketAction {
     public static void create(Connection connection, String id,
                               String namespace, String replicationGroup)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BUCKET);
-        connection.handleRemoteCall(POST, uri,
-                new ObjectBucketCreate(id, namespace, replicationGroup));
+        create(connection, new ObjectBucketCreate(id, namespace, replicationGroup));
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String id,
+                                                      String namespace, String replicationGroup) {
+        return createAsync(connection, new ObjectBucketCreate(id, namespace, replicationGroup));
     }
 
     public static void create(Connection connection,
                               ObjectBucketCreate createParam)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BUCKET);
-        connection.handleRemoteCall(POST, uri, createParam);
+        connection.handleRemoteCall(POST, createUri(connection), createParam, Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection,
+                                                      ObjectBucketCreate createParam) {
+        return connection.handleRemoteCallAsync(POST, createUri(connection), createParam);
     }
 
     public static boolean exists(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, INFO)
-                .queryParam(NAMESPACE, namespace);
-        return connection.existenceQuery(uri, null);
+        return connection.existenceQuery(infoUri(connection, id, namespace), null);
+    }
+
+    public static CompletableFuture<Boolean> existsAsync(Connection connection, String id,
+                                                         String namespace) {
+        return connection.existenceQueryAsync(infoUri(connection, id, namespace), null);
     }
 
     public static ObjectBucketInfo get(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, INFO)
-                .queryParam(NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(ObjectBucketInfo.class);
+        return connection.handleRemoteCall(GET, infoUri(connection, id, namespace), null, ObjectBucketInfo.class);
+    }
+
+    public static CompletableFuture<ObjectBucketInfo> getAsync(Connection connection, String id,
+                                                               String namespace) {
+        return connection.handleRemoteCallAsync(GET, infoUri(connection, id, namespace), null,
+                ObjectBucketInfo.class);
     }
 
     public static void delete(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
+        connection.handleRemoteCall(POST, deactivateUri(connection, id, namespace), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String id,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(POST, deactivateUri(connection, id, namespace), null);
+    }
+
+    private static UriBuilder createUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, BUCKET);
+    }
+
+    private static UriBuilder deactivateUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
                 .segment(OBJECT, BUCKET, id, DEACTIVATE)
                 .queryParam(NAMESPACE, namespace);
-        connection.handleRemoteCall(POST, uri, null);
     }
 
-}
\ No newline at end of file
+    private static UriBuilder infoUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
+                .segment(OBJECT, BUCKET, id, INFO)
+                .queryParam(NAMESPACE, namespace);
+    }
+
+}
@@ -3,12 +3,12 @@ package com.emc.ecs.management.sdk;
 import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.servicebroker.service.EcsServiceInstanceBindingService;
 import com.emc.ecs.management.sdk.model.BucketPolicy;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -20,10 +20,12 @@ public class BucketPolicyAction {
 
     public static void update(Connection connection, String id, BucketPolicy policy, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, POLICY)
-                .queryParam(NAMESPACE, namespace);
-        connection.handleRemoteCall(PUT, uri, policy, JSON);
+        connection.handleRemoteCall(PUT, policyUri(connection, id, namespace), policy, JSON, Void.class);
+    }
+
+    public static CompletableFuture<Void> updateAsync(Connection connection, String id, BucketPolicy policy,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(PUT, policyUri(connection, id, namespace), policy, JSON);
     }
 
     /*
@@ -33,23 +35,31 @@ public class BucketPolicyAction {
      */
     public static BucketPolicy get(Connection connection, String id,
                                     String namespace) throws EcsManagementClientException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, POLICY)
-                .queryParam(NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null, JSON);
+        return connection.handleRemoteCall(GET, policyUri(connection, id, namespace), null, JSON,
+                BucketPolicy.class);
+    }
 
-        return response.readEntity(BucketPolicy.class);
+    public static CompletableFuture<BucketPolicy> getAsync(Connection connection, String id,
+                                                           String namespace) {
+        return connection.handleRemoteCallAsync(GET, policyUri(connection, id, namespace), null, JSON,
+                BucketPolicy.class);
     }
 
     public static boolean hasPolicy(Connection connection, String id,
                                    String namespace) throws EcsManagementClientException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        UriBuilder uri = connection.getUriBuilder()
+        return connection.readRemoteCall(GET, policyUri(connection, id, namespace), null, JSON,
+                Response::hasEntity);
+    }
+
+    public static CompletableFuture<Boolean> hasPolicyAsync(Connection connection, String id,
+                                                            String namespace) {
+        return connection.readRemoteCallAsync(GET, policyUri(connection, id, namespace), null, JSON,
+                Response::hasEntity);
+    }
+
+    private static UriBuilder policyUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
                 .segment(OBJECT, BUCKET, id, POLICY)
                 .queryParam(NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null, JSON);
-
-        return response.hasEntity();
     }
 }
@@ -4,8 +4,8 @@ import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.management.sdk.model.BucketQuotaDetails;
 import com.emc.ecs.management.sdk.model.BucketQuotaParam;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,27 +17,47 @@ public final class BucketQuotaAction {
     public static void create(Connection connection, String id,
                               String namespace, int limit, int warn)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, BUCKET, id,
-                QUOTA);
-        connection.handleRemoteCall(PUT, uri,
+        connection.handleRemoteCall(PUT, updateUri(connection, id),
+                new BucketQuotaParam(namespace, limit, warn), Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String id,
+                                                      String namespace, int limit, int warn) {
+        return connection.handleRemoteCallAsync(PUT, updateUri(connection, id),
                 new BucketQuotaParam(namespace, limit, warn));
     }
 
     public static void delete(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, id, QUOTA)
-                .queryParam(NAMESPACE, namespace);
-        connection.handleRemoteCall(DELETE, uri, null);
+        connection.handleRemoteCall(DELETE, quotaUri(connection, id, namespace), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String id,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(DELETE, quotaUri(connection, id, namespace), null);
     }
 
     public static BucketQuotaDetails get(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
+        return connection.handleRemoteCall(GET, quotaUri(connection, id, namespace), null,
+                BucketQuotaDetails.class);
+    }
+
+    public static CompletableFuture<BucketQuotaDetails> getAsync(Connection connection, String id,
+                                                                 String namespace) {
+        return connection.handleRemoteCallAsync(GET, quotaUri(connection, id, namespace), null,
+                BucketQuotaDetails.class);
+    }
+
+    private static UriBuilder updateUri(Connection connection, String id) {
+        return connection.getUriBuilder().segment(OBJECT, BUCKET, id,
+                QUOTA);
+    }
+
+    private static UriBuilder quotaUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
                 .segment(OBJECT, BUCKET, id, QUOTA)
                 .queryParam(NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(BucketQuotaDetails.class);
     }
 
-}
\ No newline at end of file
+}
@@ -4,8 +4,8 @@ import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.management.sdk.model.DefaultBucketRetention;
 import com.emc.ecs.management.sdk.model.DefaultBucketRetentionUpdate;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,19 +17,37 @@ public class BucketRetentionAction {
     public static DefaultBucketRetention get(Connection connection,
             String namespace, String bucket)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, bucket, RETENTION)
-                .queryParam(NAMESPACE, namespace);
-        Response response = connection.makeRemoteCall(GET, uri, null);
-        return response.readEntity(DefaultBucketRetention.class);
+        return connection.makeRemoteCall(GET, getUri(connection, namespace, bucket), null,
+                DefaultBucketRetention.class);
+    }
+
+    public static CompletableFuture<DefaultBucketRetention> getAsync(Connection connection,
+                                                                     String namespace, String bucket) {
+        return connection.makeRemoteCallAsync(GET, getUri(connection, namespace, bucket), null,
+                DefaultBucketRetention.class);
     }
 
     public static void update(Connection connection, String namespace,
                               String bucket, int period)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, BUCKET, bucket, RETENTION);
-        connection.makeRemoteCall(PUT, uri,
+        connection.makeRemoteCall(PUT, updateUri(connection, bucket),
+                new DefaultBucketRetentionUpdate(namespace, period), Void.class);
+    }
+
+    public static CompletableFuture<Void> updateAsync(Connection connection, String namespace,
+                                                      String bucket, int period) {
+        return connection.makeRemoteCallAsync(PUT, updateUri(connection, bucket),
                 new DefaultBucketRetentionUpdate(namespace, period));
     }
+
+    private static UriBuilder getUri(Connection connection, String namespace, String bucket) {
+        return connection.getUriBuilder()
+                .segment(OBJECT, BUCKET, bucket, RETENTION)
+                .queryParam(NAMESPACE, namespace);
+    }
+
+    private static UriBuilder updateUri(Connection connection, String bucket) {
+        return connection.getUriBuilder()
+                .segment(OBJECT, BUCKET, bucket, RETENTION);
+    }
 }
@@ -0,0 +1,192 @@
+package com.emc.ecs.management.sdk;
+
+import com.emc.ecs.servicebroker.EcsManagementUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for a management endpoint.
+ *
+ * Outcomes of the last {@code windowSize} calls are kept; once at least half
+ * the window is filled and either the failure rate or the slow-call rate
+ * reaches its threshold the breaker opens and calls fail fast.  After
+ * {@code openDuration} a few trial calls are let through (half-open) and
+ * their outcome decides whether the breaker closes or opens again.
+ */
+public class CircuitBreaker implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 80;
+    public static final long DEFAULT_SLOW_CALL_DURATION = 10000;
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final long DEFAULT_OPEN_DURATION = 30000;
+    private static final int HALF_OPEN_CALLS = 3;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openDurationNanos;
+
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int recorded;
+    private int next;
+    private int failureCount;
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialPermits;
+    private int trialCalls;
+    private int trialFailures;
+
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    public CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_SLOW_CALL_RATE_THRESHOLD,
+                DEFAULT_SLOW_CALL_DURATION, DEFAULT_WINDOW_SIZE, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * @param failureRateThreshold  percentage of failed calls that opens the breaker
+     * @param slowCallRateThreshold percentage of slow calls that opens the breaker
+     * @param slowCallDuration      milliseconds after which a call counts as slow
+     * @param windowSize            number of recent calls the rates are computed over
+     * @param openDuration          milliseconds to fail fast before trying again
+     */
+    public CircuitBreaker(String name, int failureRateThreshold, int slowCallRateThreshold,
+                          long slowCallDuration, int windowSize, long openDuration) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDuration);
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Admits a call, or throws if the breaker is open.  Every admitted call
+     * must be followed by {@link #onResult}.
+     */
+    public synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                throw new EcsManagementUnavailableException("ECS management API at " + name +
+                        " is unavailable; calls are suspended after repeated failures");
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits >= HALF_OPEN_CALLS) {
+                throw new EcsManagementUnavailableException("ECS management API at " + name +
+                        " is recovering; trial calls are already in progress");
+            }
+            trialPermits++;
+        }
+    }
+
+    public synchronized void onResult(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallDurationNanos;
+        if (state == State.HALF_OPEN) {
+            trialCalls++;
+            if (failed || slow)
+                trialFailures++;
+            if (trialFailures > 0) {
+                transitionTo(State.OPEN);
+            } else if (trialCalls >= HALF_OPEN_CALLS) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN)
+            return;
+
+        if (recorded == failures.length) {
+            if (failures[next]) failureCount--;
+            if (slowCalls[next]) slowCallCount--;
+        } else {
+            recorded++;
+        }
+        failures[next] = failed;
+        slowCalls[next] = slow;
+        if (failed) failureCount++;
+        if (slow) slowCallCount++;
+        next = (next + 1) % failures.length;
+
+        if (recorded >= Math.max(1, failures.length / 2)
+                && (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized float getFailureRate() {
+        return recorded == 0 ? 0 : failureCount * 100f / recorded;
+    }
+
+    public synchronized float getSlowCallRate() {
+        return recorded == 0 ? 0 : slowCallCount * 100f / recorded;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return recorded;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        for (State s : State.values()) {
+            Gauge.builder("ecs.management.circuit.state", this, b -> b.getState() == s ? 1 : 0)
+                    .description("Whether the management API circuit breaker is in this state")
+                    .tag("endpoint", name)
+                    .tag("state", s.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("Circuit breaker for {} changed from {} to {} (failure rate {}%, slow call rate {}%)",
+                name, state, newState, getFailureRate(), getSlowCallRate());
+        Counter.builder("ecs.management.circuit.transitions")
+                .description("Management API circuit breaker state changes")
+                .tag("endpoint", name)
+                .tag("from", state.name().toLowerCase())
+                .tag("to", newState.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+
+        state = newState;
+        trialPermits = 0;
+        trialCalls = 0;
+        trialFailures = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failureCount = 0;
+            slowCallCount = 0;
+        }
+    }
+}
@@ -3,7 +3,25 @@ package com.emc.ecs.management.sdk;
 import com.emc.ecs.management.sdk.model.EcsManagementClientError;
 import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.servicebroker.EcsManagementResourceNotFoundException;
-import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+import com.emc.ecs.servicebroker.EcsManagementUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.logging.LoggingFeature;
 import org.slf4j.LoggerFactory;
 
@@ -11,71 +29,320 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
-public class Connection {
+public class Connection implements MeterBinder {
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(Connection.class);
 
     private static final int AUTH_RETRIES_MAX = 3;
-    private final String endpoint;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    public static final int DEFAULT_IO_THREADS = DEFAULT_MAX_CONNECTIONS;
+    public static final long DEFAULT_TOKEN_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+    private static final int VALIDATE_AFTER_INACTIVITY = 2000;
+
+    // Fixed path segments used to name the logical action a call performs;
+    // ids and other variable segments are left out to bound tag cardinality.
+    private static final Set<String> ACTION_SEGMENTS = new HashSet<>(Arrays.asList(
+            NAMESPACES, NAMESPACE, BUCKET, QUOTA, BASEURL, ACL, POLICY, INFO,
+            DEACTIVATE, RETENTION, USERS, USER_SECRET_KEYS, VDC, DATA_SERVICE,
+            VPOOLS, NFS, EXPORTS, "login", "logout"));
+
+    private final List<ManagementNode> nodes;
     private final String username;
     private final String password;
-    private String authToken;
     private String certificate;
-    private int authRetries = 0;
+    private long healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+    private final AtomicInteger nextNode = new AtomicInteger();
+
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int ioThreads = DEFAULT_IO_THREADS;
+
+    // One client and connection pool is shared by every call made through
+    // this connection; both are built lazily and rebuilt when settings change.
+    private volatile Client client;
+    private volatile PoolingHttpClientConnectionManager connectionManager;
+    private volatile ExecutorService ioExecutor;
+    private ScheduledExecutorService healthChecker;
+    private volatile boolean healthChecksStarted;
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private volatile ResponseCache responseCache = new ResponseCache();
+    private final ResponseTracker responseTracker = new ResponseTracker();
 
     public Connection(String endpoint, String username, String password) {
-        super();
-        this.endpoint = endpoint;
-        this.username = username;
-        this.password = password;
+        this(endpoint, username, password, null);
     }
 
     public Connection(String endpoint, String username, String password,
                       String certificate) {
+        this(Collections.singletonList(endpoint), username, password, certificate);
+    }
+
+    /**
+     * Spreads management calls over several ECS nodes, sending each to the
+     * available node with the fewest requests in flight.
+     */
+    public Connection(List<String> endpoints, String username, String password,
+                      String certificate) {
         super();
-        this.endpoint = endpoint;
+        if (endpoints.isEmpty())
+            throw new IllegalArgumentException("At least one management endpoint is required");
+        this.nodes = Collections.unmodifiableList(endpoints.stream()
+                .map(this::createNode)
+                .collect(Collectors.toList()));
         this.username = username;
         this.password = password;
         this.certificate = certificate;
     }
 
+    private ManagementNode createNode(String endpoint) {
+        ManagementNode[] node = new ManagementNode[1];
+        TokenManager tokenManager = new TokenManager(endpoint, () -> requestToken(node[0]),
+                token -> revokeToken(node[0], token), DEFAULT_TOKEN_REFRESH_INTERVAL);
+        node[0] = new ManagementNode(endpoint, tokenManager, new CircuitBreaker(endpoint));
+        return node[0];
+    }
+
     private static HostnameVerifier getHostnameVerifier() {
         return (hostname, session) -> true;
     }
 
     public String getAuthToken() {
-        return authToken;
+        return nodes.stream()
+                .map(node -> node.getTokenManager().getToken())
+                .filter(token -> token != null)
+                .findFirst().orElse(null);
+    }
+
+    public List<ManagementNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Picks the available node with the fewest requests in flight, starting
+     * the scan at a rotating offset so ties are spread evenly.  If no node is
+     * available the least busy one is used anyway.
+     */
+    ManagementNode selectNode() {
+        int size = nodes.size();
+        if (size == 1)
+            return nodes.get(0);
+        if (!healthChecksStarted)
+            startHealthChecks();
+
+        int offset = Math.floorMod(nextNode.getAndIncrement(), size);
+        ManagementNode best = null;
+        ManagementNode fallback = null;
+        for (int i = 0; i < size; i++) {
+            ManagementNode node = nodes.get((offset + i) % size);
+            if (fallback == null || node.getOutstanding() < fallback.getOutstanding())
+                fallback = node;
+            if (node.isAvailable() && (best == null || node.getOutstanding() < best.getOutstanding()))
+                best = node;
+        }
+        return best != null ? best : fallback;
+    }
+
+    private synchronized void startHealthChecks() {
+        if (healthChecksStarted)
+            return;
+        healthChecksStarted = true;
+        if (healthCheckInterval <= 0)
+            return;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        healthChecker = Executors.newScheduledThreadPool(Math.min(nodes.size(), 4), r -> {
+            Thread thread = new Thread(r, "ecs-management-health-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (ManagementNode node : nodes) {
+            healthChecker.scheduleWithFixedDelay(() -> probe(node),
+                    0, healthCheckInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Checks that a node's management API answers at all.  The login
+     * resource is requested without credentials, so any response below
+     * 500 means the node is serving requests.
+     */
+    private void probe(ManagementNode node) {
+        boolean healthy;
+        try {
+            Response response = getClient().target(node.getEndpoint()).path("login").request().get();
+            response.close();
+            healthy = response.getStatus() < 500;
+        } catch (Exception e) {
+            logger.debug("Health probe of {} failed: {}", node, e.getMessage());
+            healthy = false;
+        }
+        if (healthy != node.isHealthy()) {
+            logger.warn("Management endpoint {} is now {}", node, healthy ? "healthy" : "unhealthy");
+            node.setHealthy(healthy);
+        }
+    }
+
+    protected Client getClient() throws EcsManagementClientException {
+        Client current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    current = buildJerseyClient();
+                    client = current;
+                }
+            }
+        }
+        return current;
     }
 
     private Client buildJerseyClient() throws EcsManagementClientException {
-        ClientBuilder builder;
+        RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory());
+
+        ClientBuilder builder = ClientBuilder.newBuilder();
         if (certificate != null) {
             // Disable host name verification. Should be able to configure the
             // ECS certificate with the correct host name to avoid this.
             HostnameVerifier hostnameVerifier = getHostnameVerifier();
             HttpsURLConnection.setDefaultHostnameVerifier(hostnameVerifier);
-            builder = ClientBuilder.newBuilder()
-                    .register(hostnameVerifier);
-            builder.sslContext(getSSLContext());
+
+            // The SSL context is built once per client so TLS sessions are
+            // cached and resumed across pooled connections.
+            SSLContext sslContext = getSSLContext();
+            builder.register(hostnameVerifier).sslContext(sslContext);
+            registry.register("https", new SSLConnectionSocketFactory(sslContext, hostnameVerifier));
         } else {
-            builder = ClientBuilder.newBuilder();
+            registry.register("https", SSLConnectionSocketFactory.getSocketFactory());
+        }
+
+        PoolingHttpClientConnectionManager manager = buildConnectionManager(registry.build());
+
+        ClientConfig clientConfig = new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, manager)
+                .property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom()
+                        .setConnectionRequestTimeout(connectTimeout)
+                        .build())
+                .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
+                .property(ClientProperties.READ_TIMEOUT, readTimeout)
+                .register(ResponseCache.REPLAY)
+                .register(LoggingFeature.class);
+
+        Client jerseyClient = builder.withConfig(clientConfig).build();
+        connectionManager = manager;
+        return jerseyClient;
+    }
+
+    private PoolingHttpClientConnectionManager buildConnectionManager(Registry<ConnectionSocketFactory> registry) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry);
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        manager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+        return manager;
+    }
+
+    /**
+     * Closes the shared client, its connection pool and I/O threads.  A new client is
+     * built on the next call, picking up any changed settings.
+     */
+    public synchronized void close() {
+        nodes.forEach(node -> node.getTokenManager().close());
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        healthChecksStarted = false;
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+            ioExecutor = null;
+        }
+        Client current = client;
+        client = null;
+        connectionManager = null;
+        if (current != null) {
+            current.close();
         }
-        return builder.build();
+    }
+
+    public PoolStats getPoolStats() {
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        if (manager == null) {
+            return new PoolStats(0, 0, 0, maxConnections);
+        }
+        return manager.getTotalStats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        for (ManagementNode node : nodes) {
+            node.getTokenManager().bindTo(registry);
+            node.getCircuitBreaker().bindTo(registry);
+            Gauge.builder("ecs.management.node.healthy", node, n -> n.isHealthy() ? 1 : 0)
+                    .description("Whether the last health probe of the management endpoint passed")
+                    .tag("endpoint", node.getEndpoint())
+                    .register(registry);
+            Gauge.builder("ecs.management.node.outstanding", node, ManagementNode::getOutstanding)
+                    .description("Management API requests in flight to the endpoint")
+                    .tag("endpoint", node.getEndpoint())
+                    .register(registry);
+        }
+        responseCache.bindTo(registry);
+        responseTracker.bindTo(registry);
+        bindPoolGauge(registry, "leased", "Management API connections in use", PoolStats::getLeased);
+        bindPoolGauge(registry, "idle", "Idle management API connections kept alive in the pool", PoolStats::getAvailable);
+        bindPoolGauge(registry, "pending", "Requests waiting for a management API connection", PoolStats::getPending);
+        bindPoolGauge(registry, "max", "Maximum management API connections", PoolStats::getMax);
+    }
+
+    private void bindPoolGauge(MeterRegistry registry, String name, String description, ToIntFunction<PoolStats> stat) {
+        Gauge.builder("ecs.management.connections." + name, this, c -> stat.applyAsInt(c.getPoolStats()))
+                .description(description)
+                .register(registry);
     }
 
     private SSLContext getSSLContext() throws EcsManagementClientException {
@@ -105,57 +372,130 @@ public class Connection {
     }
 
     public boolean isLoggedIn() {
-        return authToken != null;
+        return getAuthToken() != null;
     }
 
+    /**
+     * Logs into every available node.  Fails only if no node accepted the
+     * login.
+     */
     public void login() throws EcsManagementClientException {
-        UriBuilder uriBuilder = UriBuilder.fromPath(endpoint).segment("login");
+        EcsManagementClientException failure = null;
+        boolean loggedIn = false;
+        for (ManagementNode node : nodes) {
+            if (!node.isAvailable() && nodes.size() > 1)
+                continue;
+            TokenManager tokenManager = node.getTokenManager();
+            try {
+                tokenManager.refresh(tokenManager.getToken());
+                loggedIn = true;
+            } catch (EcsManagementClientException e) {
+                logger.warn("Failed to log into {}: {}", node, e.getMessage());
+                failure = e;
+            }
+        }
+        if (!loggedIn && failure != null)
+            throw failure;
+    }
+
+    private String requestToken(ManagementNode node) throws EcsManagementClientException {
+        UriBuilder uriBuilder = getUriBuilder().segment("login");
 
-        logger.info("Logging into {} as {}", endpoint, username);
+        logger.info("Logging into {} as {}", node, username);
 
-        HttpAuthenticationFeature authFeature = HttpAuthenticationFeature
-                .basicBuilder().credentials(username, password).build();
-        Client jerseyClient = buildJerseyClient().register(authFeature);
+        String credentials = Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
 
-        Builder request = jerseyClient.target(uriBuilder).request();
+        Builder request = getClient().target(resolve(node, uriBuilder)).request()
+                .header("Authorization", "Basic " + credentials);
 
-        Response response = request.get();
+        Response response = invoke(node, request.buildGet());
         try {
-            handleResponse(response);
+            handleResponse(GET, uriBuilder, response);
+            return response.getHeaderString("X-SDS-AUTH-TOKEN");
         } catch (EcsManagementResourceNotFoundException e) {
             logger.warn("Login failed to handle response: {}", e.getMessage());
             logger.warn("Response: {}", response);
 
             throw new EcsManagementClientException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Logs out the session of a single token, leaving any other sessions of
+     * the user in place.
+     */
+    private void revokeToken(ManagementNode node, String token) throws EcsManagementClientException {
+        UriBuilder uri = getUriBuilder().segment("logout");
+        Response response = sendRequest(node, GET, uri, null, XML, token);
+        try {
+            handleResponse(GET, uri, response);
+        } catch (EcsManagementResourceNotFoundException e) {
+            throw new EcsManagementClientException(e);
+        } finally {
+            response.close();
         }
-        this.authToken = response.getHeaderString("X-SDS-AUTH-TOKEN");
-        this.authRetries = 0;
     }
 
     public void logout() throws EcsManagementClientException {
-        UriBuilder uri = UriBuilder.fromPath(endpoint).segment("logout")
+        UriBuilder uri = getUriBuilder().segment("logout")
                 .queryParam("force", true);
-        handleRemoteCall(GET, uri, null);
-        this.authToken = null;
+        for (ManagementNode node : nodes) {
+            String token = node.getTokenManager().getToken();
+            if (token == null)
+                continue;
+            Response response = sendRequest(node, GET, uri, null, XML, token);
+            try {
+                handleResponse(GET, uri, response);
+            } catch (EcsManagementResourceNotFoundException e) {
+                throw new EcsManagementClientException(e);
+            } finally {
+                response.close();
+                node.getTokenManager().clear();
+            }
+        }
     }
 
     protected Response handleRemoteCall(String method, UriBuilder uri, Object arg) throws EcsManagementClientException {
         return handleRemoteCall(method, uri, arg, XML);
     }
 
+    /**
+     * Makes a call that must succeed.  The caller owns the returned response
+     * and must close it; prefer the asynchronous variants, which read the
+     * entity and close the response themselves.
+     */
     protected Response handleRemoteCall(String method, UriBuilder uri,
                                         Object arg, String contentType) throws EcsManagementClientException {
         Response response = makeRemoteCall(method, uri, arg, contentType);
         try {
-            handleResponse(response);
+            handleResponse(method, uri, response);
         } catch (EcsManagementResourceNotFoundException e) {
+            response.close();
             throw new EcsManagementClientException(e);
+        } catch (EcsManagementClientException | RuntimeException e) {
+            response.close();
+            throw e;
         }
         return response;
     }
 
+    /**
+     * Returns a builder for a path relative to the management endpoint; the
+     * node that serves the call is chosen when it is sent.
+     */
     protected UriBuilder getUriBuilder() {
-        return UriBuilder.fromPath(endpoint);
+        return UriBuilder.fromPath("");
+    }
+
+    private static URI resolve(ManagementNode node, UriBuilder uri) {
+        URI relative = uri.build();
+        return UriBuilder.fromUri(node.getEndpoint())
+                .path(relative.getRawPath())
+                .replaceQuery(relative.getRawQuery())
+                .build();
     }
 
     protected Response makeRemoteCall(String method, UriBuilder uri, Object arg) throws EcsManagementClientException {
@@ -164,72 +504,371 @@ public class Connection {
 
     protected Response makeRemoteCall(String method, UriBuilder uri, Object arg, String contentType)
             throws EcsManagementClientException {
+        long start = System.nanoTime();
+        String action = actionName(uri);
+        boolean idempotent = retryPolicy.isIdempotent(method, action);
+        String status = "error";
+        String endpoint = "none";
+        boolean relogin = false;
+        ResponseCache cache = responseCache;
+        String cacheKey = uri.build().toString();
+        long cacheGeneration = cache.generation();
         try {
-            if (!isLoggedIn())
-                login();
-
-            logger.info("Making {} request to {}", method, uri);
-
-            Client jerseyClient = buildJerseyClient();
-            Builder request = jerseyClient.target(uri)
-                    .register(LoggingFeature.class).request()
-                    .header("X-SDS-AUTH-TOKEN", authToken)
-                    .header("Accept", "application/xml");
-
-            Response response = null;
             if (GET.equals(method)) {
-                response = request.get();
-            } else if (POST.equals(method) || PUT.equals(method)) {
-                Entity<Object> objectEntity;
-                if (XML.equals(contentType)) {
-                    objectEntity = Entity.xml(arg);
-                } else if (JSON.equals(contentType)) {
-                    objectEntity = Entity.json(arg);
-                } else {
-                    throw new EcsManagementClientException("Content type must be \"XML\" or \"JSON\"");
+                ResponseCache.Entry cached = cache.get(cacheKey, action);
+                if (cached != null) {
+                    endpoint = "cache";
+                    status = cached.getStatus() / 100 + "xx";
+                    return responseTracker.track(replay(uri, cached), method, action);
                 }
+            }
 
-                if (POST.equals(method)) {
-                    response = request.post(objectEntity);
-                } else if (PUT.equals(method)) {
-                    response = request.put(objectEntity);
+            // Retries are counted per request: re-authorizing up to
+            // AUTH_RETRIES_MAX times when the token is rejected, and
+            // retrying transient failures of idempotent calls as the
+            // retry policy allows.  A node is picked for every attempt, so
+            // a retry can fail over to another node.
+            int authAttempts = 0;
+            int retries = 0;
+            while (true) {
+                ManagementNode node = selectNode();
+                endpoint = node.getEndpoint();
+                TokenManager tokenManager = node.getTokenManager();
+                String token;
+                Response response;
+                try {
+                    token = tokenManager.obtainToken();
+                    response = sendRequest(node, method, uri, arg, contentType, token);
+                } catch (ProcessingException e) {
+                    if (idempotent && retryPolicy.isRetryable(e)
+                            && awaitRetry(method, action, retries, start, null, e.getClass().getSimpleName())) {
+                        retries++;
+                        continue;
+                    }
+                    throw e;
                 }
-            } else if (DELETE.equals(method)) {
-                response = request.delete();
-            } else {
-                throw new EcsManagementClientException(
-                        "Invalid request method: " + method);
-            }
 
-            if (response.getStatus() == 401 && authRetries < AUTH_RETRIES_MAX) {
-                // attempt to re-authorize and retry up to _authMaxRetries_ times.
-                authRetries += 1;
-                this.authToken = null;
-                response = makeRemoteCall(method, uri, arg, XML);
+                if (response.getStatus() == 401 && authAttempts < AUTH_RETRIES_MAX) {
+                    response.close();
+                    authAttempts++;
+                    relogin = true;
+                    tokenManager.refresh(token);
+                    continue;
+                }
+                if (idempotent && retryPolicy.isRetryable(response.getStatus())
+                        && awaitRetry(method, action, retries, start,
+                        response.getHeaderString("Retry-After"), String.valueOf(response.getStatus()))) {
+                    response.close();
+                    retries++;
+                    continue;
+                }
+                status = response.getStatus() / 100 + "xx";
+                if (GET.equals(method))
+                    cache.put(cacheKey, action, response, cacheGeneration);
+                return responseTracker.track(response, method, action);
             }
-            return response;
         } catch (Exception e) {
             logger.warn("Failed to make a call to {}: {}", uri, e.getMessage());
+            countError(method, action, e.getClass().getSimpleName());
             throw e;
+        } finally {
+            if (!GET.equals(method))
+                cache.invalidate(cacheKey);
+            Timer.builder("ecs.management.requests")
+                    .description("Management API calls, including any re-login or retries")
+                    .tag("method", method)
+                    .tag("action", action)
+                    .tag("endpoint", endpoint)
+                    .tag("status", status)
+                    .tag("relogin", String.valueOf(relogin))
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Answers a call from the response cache without going to ECS.
+     */
+    private Response replay(UriBuilder uri, ResponseCache.Entry cached) throws EcsManagementClientException {
+        return getClient().target(resolve(nodes.get(0), uri)).request()
+                .property(ResponseCache.CACHED_ENTRY, cached)
+                .get();
+    }
+
+    private boolean awaitRetry(String method, String action, int retries, long start,
+                               String retryAfter, String reason) throws EcsManagementClientException {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long delay = retryPolicy.retryDelay(retries, elapsed, retryAfter);
+        if (delay == RetryPolicy.NO_RETRY)
+            return false;
+
+        logger.info("Retrying {} {} in {} ms after {}", method, action, delay, reason);
+        Counter.builder("ecs.management.retries")
+                .description("Management API calls retried after a transient failure")
+                .tag("method", method)
+                .tag("action", action)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EcsManagementClientException(e);
+        }
+        return true;
+    }
+
+    private void countError(String method, String action, String error) {
+        Counter.builder("ecs.management.errors")
+                .description("Failed management API calls")
+                .tag("method", method)
+                .tag("action", action)
+                .tag("error", error)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Names a call by the fixed segments of its path, for example
+     * {@code bucket.info} or {@code users.deactivate}.
+     */
+    static String actionName(UriBuilder uri) {
+        String path = uri.build().getRawPath();
+        if (path == null)
+            return "unknown";
+        return Arrays.stream(path.split("/"))
+                .filter(ACTION_SEGMENTS::contains)
+                .collect(Collectors.joining("."));
+    }
+
+    private Response sendRequest(ManagementNode node, String method, UriBuilder uri, Object arg,
+                                 String contentType, String token)
+            throws EcsManagementClientException {
+        URI target = resolve(node, uri);
+        logger.info("Making {} request to {}", method, target);
+
+        Builder request = getClient().target(target).request()
+                .header("X-SDS-AUTH-TOKEN", token)
+                .header("Accept", "application/xml");
+
+        Invocation invocation = null;
+        if (GET.equals(method)) {
+            invocation = request.buildGet();
+        } else if (POST.equals(method) || PUT.equals(method)) {
+            Entity<Object> objectEntity;
+            if (XML.equals(contentType)) {
+                objectEntity = Entity.xml(arg);
+            } else if (JSON.equals(contentType)) {
+                objectEntity = Entity.json(arg);
+            } else {
+                throw new EcsManagementClientException("Content type must be \"XML\" or \"JSON\"");
+            }
+
+            if (POST.equals(method)) {
+                invocation = request.buildPost(objectEntity);
+            } else if (PUT.equals(method)) {
+                invocation = request.buildPut(objectEntity);
+            }
+        } else if (DELETE.equals(method)) {
+            invocation = request.buildDelete();
+        } else {
+            throw new EcsManagementClientException(
+                    "Invalid request method: " + method);
         }
+        return invoke(node, invocation);
+    }
+
+    /**
+     * Sends a request through the node's circuit breaker, recording whether
+     * it failed or was slow.  Throws {@link EcsManagementUnavailableException}
+     * without sending anything while the breaker is open.
+     */
+    private Response invoke(ManagementNode node, Invocation invocation) {
+        CircuitBreaker circuitBreaker = node.getCircuitBreaker();
+        circuitBreaker.acquirePermission();
+        node.requestStarted();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Response response = invocation.invoke();
+
+            // Management responses are small documents; buffering them hands
+            // the pooled connection back straight away, whether or not the
+            // caller reads the entity.
+            response.bufferEntity();
+            failed = response.getStatus() >= 500;
+            return response;
+        } finally {
+            node.requestFinished();
+            circuitBreaker.onResult(System.nanoTime() - start, failed);
+        }
+    }
+
+    protected CompletableFuture<Void> handleRemoteCallAsync(String method, UriBuilder uri, Object arg) {
+        return handleRemoteCallAsync(method, uri, arg, XML, Void.class);
+    }
+
+    protected CompletableFuture<Void> handleRemoteCallAsync(String method, UriBuilder uri,
+                                                            Object arg, String contentType) {
+        return handleRemoteCallAsync(method, uri, arg, contentType, Void.class);
+    }
+
+    protected <T> CompletableFuture<T> handleRemoteCallAsync(String method, UriBuilder uri,
+                                                             Object arg, Class<T> entityType) {
+        return handleRemoteCallAsync(method, uri, arg, XML, entityType);
+    }
+
+    /**
+     * Makes a call that must succeed and reads its entity as the given type,
+     * or discards it for {@code Void}.  The response is always closed.
+     */
+    protected <T> CompletableFuture<T> handleRemoteCallAsync(String method, UriBuilder uri, Object arg,
+                                                             String contentType, Class<T> entityType) {
+        return supplyAsync(() -> handleRemoteCall(method, uri, arg, contentType, entityType));
+    }
+
+    /**
+     * Makes a call that must succeed and hands the response to a reader,
+     * closing it once the reader returns.
+     */
+    protected <T> CompletableFuture<T> readRemoteCallAsync(String method, UriBuilder uri, Object arg,
+                                                           String contentType, Function<Response, T> reader) {
+        return supplyAsync(() -> readRemoteCall(method, uri, arg, contentType, reader));
+    }
+
+    /**
+     * Makes a call whose failure status is ignored, discarding the entity.
+     */
+    protected CompletableFuture<Void> makeRemoteCallAsync(String method, UriBuilder uri, Object arg) {
+        return makeRemoteCallAsync(method, uri, arg, Void.class);
+    }
+
+    protected <T> CompletableFuture<T> makeRemoteCallAsync(String method, UriBuilder uri, Object arg,
+                                                           Class<T> entityType) {
+        return supplyAsync(() -> makeRemoteCall(method, uri, arg, entityType));
+    }
+
+    protected CompletableFuture<Boolean> existenceQueryAsync(UriBuilder uri, Object arg) {
+        return supplyAsync(() -> existenceQuery(uri, arg));
+    }
+
+    // The synchronous counterparts of the calls above run on the caller's
+    // thread rather than the I/O executor, so a blocking caller holds one
+    // thread rather than two and cannot wait on a full executor
+
+    protected <T> T handleRemoteCall(String method, UriBuilder uri, Object arg, Class<T> entityType)
+            throws EcsManagementClientException {
+        return handleRemoteCall(method, uri, arg, XML, entityType);
+    }
+
+    protected <T> T handleRemoteCall(String method, UriBuilder uri, Object arg, String contentType,
+                                     Class<T> entityType) throws EcsManagementClientException {
+        return readRemoteCall(method, uri, arg, contentType, response -> readEntity(response, entityType));
+    }
+
+    protected <T> T readRemoteCall(String method, UriBuilder uri, Object arg, String contentType,
+                                   Function<Response, T> reader) throws EcsManagementClientException {
+        return read(handleRemoteCall(method, uri, arg, contentType), reader);
+    }
+
+    protected <T> T makeRemoteCall(String method, UriBuilder uri, Object arg, Class<T> entityType)
+            throws EcsManagementClientException {
+        return read(makeRemoteCall(method, uri, arg, XML), response -> readEntity(response, entityType));
+    }
+
+    private static <T> T readEntity(Response response, Class<T> entityType) {
+        return entityType == Void.class ? null : response.readEntity(entityType);
+    }
+
+    private static <T> T read(Response response, Function<Response, T> reader) {
+        try {
+            return reader.apply(response);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Waits for an asynchronous call, rethrowing the exception it failed
+     * with as a synchronous call would.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws EcsManagementClientException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EcsManagementClientException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EcsManagementClientException)
+                throw (EcsManagementClientException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new EcsManagementClientException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RemoteCall<T> {
+        T call() throws EcsManagementClientException;
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(RemoteCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            getIoExecutor().execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new EcsManagementClientException(e));
+        }
+        return future;
+    }
+
+    private ExecutorService getIoExecutor() {
+        ExecutorService current = ioExecutor;
+        if (current == null) {
+            synchronized (this) {
+                current = ioExecutor;
+                if (current == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    current = Executors.newFixedThreadPool(ioThreads, r -> {
+                        Thread thread = new Thread(r, "ecs-management-io-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    ioExecutor = current;
+                }
+            }
+        }
+        return current;
     }
 
     protected boolean existenceQuery(UriBuilder uri, Object arg)
             throws EcsManagementClientException {
         Response response = makeRemoteCall(GET, uri, arg, XML);
         try {
-            handleResponse(response);
+            handleResponse(GET, uri, response);
         } catch (EcsManagementResourceNotFoundException e) {
             Logger.getAnonymousLogger().log(Level.FINE, "info", e);
             return false;
+        } finally {
+            response.close();
         }
         return true;
     }
 
-    private void handleResponse(Response response)
+    private void handleResponse(String method, UriBuilder uri, Response response)
             throws EcsManagementClientException,
             EcsManagementResourceNotFoundException {
         if (response.getStatus() > 399) {
+            countError(method, actionName(uri), String.valueOf(response.getStatus()));
             EcsManagementClientError error = response
                     .readEntity(EcsManagementClientError.class);
             if (response.getStatus() == 404) {
@@ -250,6 +889,124 @@ public class Connection {
 
     public void setCertificate(String certificate) {
         this.certificate = certificate;
+        close();
+    }
+
+    public long getTokenRefreshInterval() {
+        return nodes.get(0).getTokenManager().getRefreshInterval();
+    }
+
+    /**
+     * Interval in milliseconds at which the session token is refreshed in
+     * the background; zero or less disables proactive refresh.
+     */
+    public void setTokenRefreshInterval(long tokenRefreshInterval) {
+        nodes.forEach(node -> node.getTokenManager().setRefreshInterval(tokenRefreshInterval));
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Management API responses obtained but not yet closed.
+     */
+    public int getOpenResponses() {
+        return responseTracker.getOpen();
+    }
+
+    public boolean isLeakDetection() {
+        return responseTracker.isLeakDetection();
+    }
+
+    /**
+     * Records where each response is obtained so that any left unclosed can
+     * be traced when it is garbage collected.
+     */
+    public void setLeakDetection(boolean leakDetection) {
+        responseTracker.setLeakDetection(leakDetection);
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Replaces the circuit breaker of every node with one built for its
+     * endpoint by the given factory.
+     */
+    public void setCircuitBreakerFactory(Function<String, CircuitBreaker> circuitBreakerFactory) {
+        nodes.forEach(node -> node.setCircuitBreaker(circuitBreakerFactory.apply(node.getEndpoint())));
+    }
+
+    public long getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    /**
+     * Interval in milliseconds between health probes of each node when
+     * there is more than one; zero or less disables probing.
+     */
+    public void setHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+        close();
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Number of threads that run asynchronous management calls.  Each one
+     * holds a pooled connection while its call is in flight.
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+        close();
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        close();
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+        close();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        close();
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        close();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.emc.ecs.management.sdk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One ECS node serving the management API, with its own session token,
+ * circuit breaker and count of requests in flight.
+ */
+public class ManagementNode {
+    private final String endpoint;
+    private final TokenManager tokenManager;
+    private volatile CircuitBreaker circuitBreaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    ManagementNode(String endpoint, TokenManager tokenManager, CircuitBreaker circuitBreaker) {
+        this.endpoint = endpoint;
+        this.tokenManager = tokenManager;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    TokenManager getTokenManager() {
+        return tokenManager;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    void requestFinished() {
+        outstanding.decrementAndGet();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    /**
+     * Whether new requests should be sent here: the last health probe
+     * passed and the circuit breaker is not open.
+     */
+    public boolean isAvailable() {
+        return healthy && circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint;
+    }
+}
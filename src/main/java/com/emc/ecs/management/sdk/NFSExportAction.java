@@ -5,30 +5,54 @@ import com.emc.ecs.management.sdk.model.NFSExport;
 import com.emc.ecs.management.sdk.model.NFSExportList;
 import com.emc.ecs.management.sdk.model.NFSExportsOption;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
 public class NFSExportAction {
     public static List<NFSExport> list(Connection connection, String pathPrefix) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS).queryParam("pathprefix", pathPrefix);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        NFSExportList exportList = response
-                .readEntity(NFSExportList.class);
-        return exportList.getExports();
+        return connection.handleRemoteCall(GET, listUri(connection, pathPrefix), null, NFSExportList.class)
+                .getExports();
+    }
+
+    public static CompletableFuture<List<NFSExport>> listAsync(Connection connection, String pathPrefix) {
+        return connection.handleRemoteCallAsync(GET, listUri(connection, pathPrefix), null, NFSExportList.class)
+                .thenApply(NFSExportList::getExports);
     }
 
     public static void create(Connection connection, String exportPath) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS);
-        NFSExportsOption opt = new NFSExportsOption("*","rw,authsys,root=nobody");
-        connection.handleRemoteCall(POST, uri, new NFSExport(exportPath, Arrays.asList(opt)));
+        connection.handleRemoteCall(POST, exportsUri(connection), export(exportPath), Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String exportPath) {
+        return connection.handleRemoteCallAsync(POST, exportsUri(connection), export(exportPath));
     }
 
     public static void delete(Connection connection, int exportId) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS, String.valueOf(exportId));
-        connection.handleRemoteCall(DELETE, uri, null);
+        connection.handleRemoteCall(DELETE, exportUri(connection, exportId), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, int exportId) {
+        return connection.handleRemoteCallAsync(DELETE, exportUri(connection, exportId), null);
+    }
+
+    private static NFSExport export(String exportPath) {
+        NFSExportsOption opt = new NFSExportsOption("*","rw,authsys,root=nobody");
+        return new NFSExport(exportPath, Arrays.asList(opt));
+    }
+
+    private static UriBuilder listUri(Connection connection, String pathPrefix) {
+        return connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS).queryParam("pathprefix", pathPrefix);
+    }
+
+    private static UriBuilder exportsUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS);
+    }
+
+    private static UriBuilder exportUri(Connection connection, int exportId) {
+        return connection.getUriBuilder().segment(OBJECT, NFS, EXPORTS, String.valueOf(exportId));
     }
 }
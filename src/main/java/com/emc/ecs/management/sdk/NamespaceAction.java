@@ -5,8 +5,8 @@ import com.emc.ecs.management.sdk.model.NamespaceCreate;
 import com.emc.ecs.management.sdk.model.NamespaceInfo;
 import com.emc.ecs.management.sdk.model.NamespaceUpdate;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,47 +17,77 @@ public final class NamespaceAction {
 
     public static boolean exists(Connection connection, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace);
-        return connection.existenceQuery(uri, null);
+        return connection.existenceQuery(namespaceUri(connection, namespace), null);
+    }
+
+    public static CompletableFuture<Boolean> existsAsync(Connection connection, String namespace) {
+        return connection.existenceQueryAsync(namespaceUri(connection, namespace), null);
     }
 
     public static void create(Connection connection, String namespace,
                               String namespaceAdmins, String replicationGroup)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE);
-        connection.handleRemoteCall(POST, uri,
-                new NamespaceCreate(namespace, namespaceAdmins,
-                        replicationGroup));
+        create(connection, new NamespaceCreate(namespace, namespaceAdmins, replicationGroup));
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String namespace,
+                                                      String namespaceAdmins, String replicationGroup) {
+        return createAsync(connection, new NamespaceCreate(namespace, namespaceAdmins,
+                replicationGroup));
     }
 
     public static void create(Connection connection,
             NamespaceCreate createParam) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE);
-        connection.handleRemoteCall(POST, uri, createParam);
+        connection.handleRemoteCall(POST, createUri(connection), createParam, Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection,
+                                                      NamespaceCreate createParam) {
+        return connection.handleRemoteCallAsync(POST, createUri(connection), createParam);
     }
 
     public static void delete(Connection connection, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace, DEACTIVATE);
-        connection.handleRemoteCall(POST, uri, null);
+        connection.handleRemoteCall(POST, deactivateUri(connection, namespace), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String namespace) {
+        return connection.handleRemoteCallAsync(POST, deactivateUri(connection, namespace), null);
     }
 
     public static NamespaceInfo get(Connection connection, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(NamespaceInfo.class);
+        return connection.handleRemoteCall(GET, namespaceUri(connection, namespace), null,
+                NamespaceInfo.class);
+    }
+
+    public static CompletableFuture<NamespaceInfo> getAsync(Connection connection, String namespace) {
+        return connection.handleRemoteCallAsync(GET, namespaceUri(connection, namespace), null,
+                NamespaceInfo.class);
     }
 
     public static void update(Connection connection, String namespace,
             NamespaceUpdate updateParam) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
+        connection.handleRemoteCall(PUT, namespaceUri(connection, namespace), updateParam, Void.class);
+    }
+
+    public static CompletableFuture<Void> updateAsync(Connection connection, String namespace,
+                                                      NamespaceUpdate updateParam) {
+        return connection.handleRemoteCallAsync(PUT, namespaceUri(connection, namespace), updateParam);
+    }
+
+    private static UriBuilder createUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, NAMESPACES,
+                NAMESPACE);
+    }
+
+    private static UriBuilder deactivateUri(Connection connection, String namespace) {
+        return connection.getUriBuilder().segment(OBJECT, NAMESPACES,
+                NAMESPACE, namespace, DEACTIVATE);
+    }
+
+    private static UriBuilder namespaceUri(Connection connection, String namespace) {
+        return connection.getUriBuilder().segment(OBJECT, NAMESPACES,
                 NAMESPACE, namespace);
-        connection.handleRemoteCall(PUT, uri, updateParam);
     }
-}
\ No newline at end of file
+}
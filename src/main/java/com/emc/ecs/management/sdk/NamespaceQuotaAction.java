@@ -4,8 +4,8 @@ import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.management.sdk.model.NamespaceQuotaDetails;
 import com.emc.ecs.management.sdk.model.NamespaceQuotaParam;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,23 +17,37 @@ public final class NamespaceQuotaAction {
     public static void create(Connection connection, String namespace,
                               NamespaceQuotaParam createParam)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace, QUOTA);
-        connection.handleRemoteCall(PUT, uri, createParam);
+        connection.handleRemoteCall(PUT, quotaUri(connection, namespace), createParam, Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String namespace,
+                                                      NamespaceQuotaParam createParam) {
+        return connection.handleRemoteCallAsync(PUT, quotaUri(connection, namespace), createParam);
     }
 
     public static NamespaceQuotaDetails get(Connection connection,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT,
-                NAMESPACES, NAMESPACE, namespace, QUOTA);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(NamespaceQuotaDetails.class);
+        return connection.handleRemoteCall(GET, quotaUri(connection, namespace), null,
+                NamespaceQuotaDetails.class);
+    }
+
+    public static CompletableFuture<NamespaceQuotaDetails> getAsync(Connection connection,
+                                                                    String namespace) {
+        return connection.handleRemoteCallAsync(GET, quotaUri(connection, namespace), null,
+                NamespaceQuotaDetails.class);
     }
 
     public static void delete(Connection connection, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT,
+        connection.handleRemoteCall(DELETE, quotaUri(connection, namespace), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String namespace) {
+        return connection.handleRemoteCallAsync(DELETE, quotaUri(connection, namespace), null);
+    }
+
+    private static UriBuilder quotaUri(Connection connection, String namespace) {
+        return connection.getUriBuilder().segment(OBJECT,
                 NAMESPACES, NAMESPACE, namespace, QUOTA);
-        connection.handleRemoteCall(DELETE, uri, null);
     }
 }
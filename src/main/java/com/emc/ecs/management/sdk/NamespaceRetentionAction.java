@@ -5,8 +5,8 @@ import com.emc.ecs.management.sdk.model.RetentionClassCreate;
 import com.emc.ecs.management.sdk.model.RetentionClassDetails;
 import com.emc.ecs.management.sdk.model.RetentionClassUpdate;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -17,41 +17,70 @@ public final class NamespaceRetentionAction {
 
     public static Boolean exists(Connection connection, String namespace,
             String retentionClass) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace, RETENTION, retentionClass);
-        return connection.existenceQuery(uri, null);
+        return connection.existenceQuery(retentionClassUri(connection, namespace, retentionClass), null);
+    }
+
+    public static CompletableFuture<Boolean> existsAsync(Connection connection, String namespace,
+                                                         String retentionClass) {
+        return connection.existenceQueryAsync(retentionClassUri(connection, namespace, retentionClass), null);
     }
 
     public static void create(Connection connection, String namespace,
                               RetentionClassCreate createParam)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace, RETENTION);
-        connection.makeRemoteCall(POST, uri, createParam);
+        connection.makeRemoteCall(POST, retentionUri(connection, namespace), createParam, Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String namespace,
+                                                      RetentionClassCreate createParam) {
+        return connection.makeRemoteCallAsync(POST, retentionUri(connection, namespace), createParam);
     }
 
     public static void delete(Connection connection, String namespace,
             String retentionClass) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
-                NAMESPACE, namespace, RETENTION, retentionClass);
-        connection.makeRemoteCall(DELETE, uri, null);
+        connection.makeRemoteCall(DELETE, retentionClassUri(connection, namespace, retentionClass), null,
+                Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String namespace,
+                                                      String retentionClass) {
+        return connection.makeRemoteCallAsync(DELETE, retentionClassUri(connection, namespace, retentionClass), null);
     }
 
     public static RetentionClassDetails get(Connection connection,
             String namespace, String retentionClass)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, NAMESPACES, NAMESPACE, namespace, RETENTION,
-                retentionClass);
-        Response response = connection.makeRemoteCall(GET, uri, null);
-        return response.readEntity(RetentionClassDetails.class);
+        return connection.makeRemoteCall(GET, retentionClassUri(connection, namespace, retentionClass), null,
+                RetentionClassDetails.class);
+    }
+
+    public static CompletableFuture<RetentionClassDetails> getAsync(Connection connection,
+                                                                    String namespace, String retentionClass) {
+        return connection.makeRemoteCallAsync(GET, retentionClassUri(connection, namespace, retentionClass), null,
+                RetentionClassDetails.class);
     }
 
     public static void update(Connection connection, String namespace,
             String retentionClass, RetentionClassUpdate retentionClassUpdate)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NAMESPACES,
+        connection.makeRemoteCall(PUT, retentionClassUri(connection, namespace, retentionClass),
+                retentionClassUpdate, Void.class);
+    }
+
+    public static CompletableFuture<Void> updateAsync(Connection connection, String namespace,
+                                                      String retentionClass,
+                                                      RetentionClassUpdate retentionClassUpdate) {
+        return connection.makeRemoteCallAsync(PUT, retentionClassUri(connection, namespace, retentionClass),
+                retentionClassUpdate);
+    }
+
+    private static UriBuilder retentionUri(Connection connection, String namespace) {
+        return connection.getUriBuilder().segment(OBJECT, NAMESPACES,
+                NAMESPACE, namespace, RETENTION);
+    }
+
+    private static UriBuilder retentionClassUri(Connection connection, String namespace, String retentionClass) {
+        return connection.getUriBuilder().segment(OBJECT, NAMESPACES,
                 NAMESPACE, namespace, RETENTION, retentionClass);
-        connection.makeRemoteCall(PUT, uri, retentionClassUpdate);
     }
 }
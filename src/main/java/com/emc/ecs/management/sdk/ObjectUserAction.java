@@ -5,6 +5,7 @@ import com.emc.ecs.management.sdk.model.UserCreateParam;
 import com.emc.ecs.management.sdk.model.UserDeleteParam;
 
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -15,24 +16,48 @@ public final class ObjectUserAction {
 
     public static void create(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, USERS);
-        connection.handleRemoteCall(POST, uri,
+        connection.handleRemoteCall(POST, usersUri(connection),
+                new UserCreateParam(id, namespace), Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String id,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(POST, usersUri(connection),
                 new UserCreateParam(id, namespace));
     }
 
     public static boolean exists(Connection connection, String id,
             String namespace) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder()
-                .segment(OBJECT, USERS, id, INFO)
-                .queryParam(NAMESPACE, namespace);
-        return connection.existenceQuery(uri, null);
+        return connection.existenceQuery(infoUri(connection, id, namespace), null);
+    }
+
+    public static CompletableFuture<Boolean> existsAsync(Connection connection, String id,
+                                                         String namespace) {
+        return connection.existenceQueryAsync(infoUri(connection, id, namespace), null);
     }
 
     public static void delete(Connection connection, String id)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, USERS,
+        connection.handleRemoteCall(POST, deactivateUri(connection), new UserDeleteParam(id), Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String id) {
+        return connection.handleRemoteCallAsync(POST, deactivateUri(connection), new UserDeleteParam(id));
+    }
+
+    private static UriBuilder usersUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, USERS);
+    }
+
+    private static UriBuilder infoUri(Connection connection, String id, String namespace) {
+        return connection.getUriBuilder()
+                .segment(OBJECT, USERS, id, INFO)
+                .queryParam(NAMESPACE, namespace);
+    }
+
+    private static UriBuilder deactivateUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, USERS,
                 DEACTIVATE);
-        connection.handleRemoteCall(POST, uri, new UserDeleteParam(id));
     }
 
-}
\ No newline at end of file
+}
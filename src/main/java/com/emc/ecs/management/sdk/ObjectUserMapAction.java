@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.UriBuilder;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -16,15 +17,35 @@ public class ObjectUserMapAction {
 
     public static void create(Connection connection, String userId, int unixUid, String namespace)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NFS, USERS);
-        connection.handleRemoteCall(POST, uri,
-                new ObjectNFSAddUser(namespace, USER, userId, Integer.toString(unixUid), userId + "-umap"));
+        connection.handleRemoteCall(POST, usersUri(connection), addUser(userId, unixUid, namespace), Void.class);
+    }
+
+    public static CompletableFuture<Void> createAsync(Connection connection, String userId, int unixUid,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(POST, usersUri(connection), addUser(userId, unixUid, namespace));
     }
 
     public static void delete(Connection connection, String userId, String unixUid, String namespace)
             throws EcsManagementClientException {
+        connection.handleRemoteCall(DELETE, userUri(connection, userId, unixUid, namespace), null, Void.class);
+    }
+
+    public static CompletableFuture<Void> deleteAsync(Connection connection, String userId, String unixUid,
+                                                      String namespace) {
+        return connection.handleRemoteCallAsync(DELETE, userUri(connection, userId, unixUid, namespace), null);
+    }
+
+    private static ObjectNFSAddUser addUser(String userId, int unixUid, String namespace) {
+        return new ObjectNFSAddUser(namespace, USER, userId, Integer.toString(unixUid), userId + "-umap");
+    }
+
+    private static UriBuilder usersUri(Connection connection) {
+        return connection.getUriBuilder().segment(OBJECT, NFS, USERS);
+    }
+
+    private static UriBuilder userUri(Connection connection, String userId, String unixUid, String namespace) {
         UriBuilder uri = connection.getUriBuilder().segment(OBJECT, NFS, USERS, namespace + ":id:u:" + unixUid + ":" + userId);
         LOG.info("Deleting with endpoint: " + uri);
-        connection.handleRemoteCall(DELETE, uri, null);
+        return uri;
     }
 }
@@ -5,9 +5,9 @@ import com.emc.ecs.management.sdk.model.UserSecretKey;
 import com.emc.ecs.management.sdk.model.UserSecretKeyCreate;
 import com.emc.ecs.management.sdk.model.UserSecretKeyList;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -18,28 +18,50 @@ public final class ObjectUserSecretAction {
 
     public static UserSecretKey create(Connection connection, String id)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT,
-                USER_SECRET_KEYS, id);
-        Response response = connection.handleRemoteCall(POST, uri,
-                new UserSecretKeyCreate());
-        return response.readEntity(UserSecretKey.class);
+        return create(connection, id, new UserSecretKeyCreate());
+    }
+
+    public static CompletableFuture<UserSecretKey> createAsync(Connection connection, String id) {
+        return createAsync(connection, id, new UserSecretKeyCreate());
     }
 
     public static UserSecretKey create(Connection connection, String id,
             String key) throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT,
-                USER_SECRET_KEYS, id);
-        Response response = connection.handleRemoteCall(POST, uri,
-                new UserSecretKeyCreate(key));
-        return response.readEntity(UserSecretKey.class);
+        return create(connection, id, new UserSecretKeyCreate(key));
+    }
+
+    public static CompletableFuture<UserSecretKey> createAsync(Connection connection, String id,
+                                                               String key) {
+        return createAsync(connection, id, new UserSecretKeyCreate(key));
     }
 
     public static List<UserSecretKey> list(Connection connection, String id)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(OBJECT,
+        return connection.handleRemoteCall(GET, secretKeysUri(connection, id), null,
+                UserSecretKeyList.class).asList();
+    }
+
+    public static CompletableFuture<List<UserSecretKey>> listAsync(Connection connection, String id) {
+        return connection.handleRemoteCallAsync(GET, secretKeysUri(connection, id), null,
+                UserSecretKeyList.class)
+                .thenApply(UserSecretKeyList::asList);
+    }
+
+    private static UserSecretKey create(Connection connection, String id,
+                                        UserSecretKeyCreate createParam) throws EcsManagementClientException {
+        return connection.handleRemoteCall(POST, secretKeysUri(connection, id), createParam,
+                UserSecretKey.class);
+    }
+
+    private static CompletableFuture<UserSecretKey> createAsync(Connection connection, String id,
+                                                                UserSecretKeyCreate createParam) {
+        return connection.handleRemoteCallAsync(POST, secretKeysUri(connection, id), createParam,
+                UserSecretKey.class);
+    }
+
+    private static UriBuilder secretKeysUri(Connection connection, String id) {
+        return connection.getUriBuilder().segment(OBJECT,
                 USER_SECRET_KEYS, id);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        return response.readEntity(UserSecretKeyList.class).asList();
     }
 
-}
\ No newline at end of file
+}
@@ -5,11 +5,12 @@ import com.emc.ecs.servicebroker.EcsManagementResourceNotFoundException;
 import com.emc.ecs.management.sdk.model.DataServiceReplicationGroup;
 import com.emc.ecs.management.sdk.model.DataServiceReplicationGroupList;
 
-import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.emc.ecs.management.sdk.Constants.*;
 
@@ -20,12 +21,13 @@ public final class ReplicationGroupAction {
 
     public static List<DataServiceReplicationGroup> list(Connection connection)
             throws EcsManagementClientException {
-        UriBuilder uri = connection.getUriBuilder().segment(VDC, DATA_SERVICE,
-                VPOOLS);
-        Response response = connection.handleRemoteCall(GET, uri, null);
-        DataServiceReplicationGroupList rgList = response
-                .readEntity(DataServiceReplicationGroupList.class);
-        return rgList.getReplicationGroups();
+        return connection.handleRemoteCall(GET, listUri(connection), null, DataServiceReplicationGroupList.class)
+                .getReplicationGroups();
+    }
+
+    public static CompletableFuture<List<DataServiceReplicationGroup>> listAsync(Connection connection) {
+        return connection.handleRemoteCallAsync(GET, listUri(connection), null, DataServiceReplicationGroupList.class)
+                .thenApply(DataServiceReplicationGroupList::getReplicationGroups);
     }
 
     public static DataServiceReplicationGroup get(Connection connection,
@@ -41,4 +43,20 @@ public final class ReplicationGroupAction {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Completes exceptionally with {@link EcsManagementResourceNotFoundException}
+     * when no replication group has the given id.
+     */
+    public static CompletableFuture<DataServiceReplicationGroup> getAsync(Connection connection, String id) {
+        return listAsync(connection).thenApply(repGroups -> repGroups.stream()
+                .filter(rg -> rg.getId().equals(id)).findFirst()
+                .orElseThrow(() -> new CompletionException(
+                        new EcsManagementResourceNotFoundException(new NoSuchElementException(id)))));
+    }
+
+    private static UriBuilder listUri(Connection connection) {
+        return connection.getUriBuilder().segment(VDC, DATA_SERVICE,
+                VPOOLS);
+    }
+
+}
@@ -0,0 +1,249 @@
+package com.emc.ecs.management.sdk;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps recent management API GET responses by resource URI so that a
+ * resource read several times within one broker operation is fetched once.
+ *
+ * Caching is opt-in per action (see {@link Connection#actionName}): only
+ * the {@link #DEFAULT_CACHED_ACTIONS}, which an operation such as a binding
+ * reads more than once, are kept for the short default time-to-live, and any
+ * other action only when given a time-to-live of its own.  The time-to-live
+ * is kept short since another broker replica may change the same resources;
+ * the broker's own changes are handled by invalidation.  The replication
+ * groups and base URLs are held by {@link TopologyCache} instead.  The cache
+ * holds at most a fixed number of entries.
+ *
+ * A POST, PUT or DELETE drops every entry under the parent of the resource it
+ * changed, so {@code POST object/bucket/b/deactivate} drops the cached info,
+ * ACL and quota of bucket {@code b}, and a GET that was in flight at the time
+ * is not kept.  A change to a bucket's ACL or policy, which no other resource
+ * reflects, drops only that resource, and creating a resource in a top-level
+ * collection such as {@code POST object/users} drops only that collection.
+ * Only successful responses are kept.
+ */
+public class ResponseCache implements MeterBinder {
+    public static final long DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_TTL = 2000;
+
+    /**
+     * Actions cached for the default time-to-live: the info and ACL of a
+     * bucket and the info of a user, which creating a binding or adding a
+     * user to a bucket reads several times
+     */
+    public static final Set<String> DEFAULT_CACHED_ACTIONS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("bucket.info", "bucket.acl", "users.info")));
+
+    /**
+     * Sub-resources of a bucket that no other resource reflects, so that a
+     * change to one drops only it
+     */
+    private static final Set<String> SEPARATE_RESOURCES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(Constants.ACL, Constants.POLICY)));
+
+    static final String CACHED_ENTRY = ResponseCache.class.getName() + ".entry";
+
+    /**
+     * Answers a request carrying a cached entry without sending it, so the
+     * entity is read through the same providers as a live response.
+     */
+    static final ClientRequestFilter REPLAY = ResponseCache::replay;
+
+    private final Cache<String, Entry> entries;
+    private final long defaultTtl;
+    private final Map<String, Long> ttls;
+    // Moves on with every invalidation, so a response read before one is
+    // not put back after it
+    private final AtomicLong generation = new AtomicLong();
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL, Collections.emptyMap());
+    }
+
+    /**
+     * @param maxSize    most responses kept at once
+     * @param defaultTtl milliseconds a response of one of the
+     *                   {@link #DEFAULT_CACHED_ACTIONS} is kept; zero
+     *                   disables caching of them
+     * @param ttls       milliseconds a response is kept by action name,
+     *                   caching any action and overriding the default;
+     *                   zero disables caching of it
+     */
+    public ResponseCache(long maxSize, long defaultTtl, Map<String, Long> ttls) {
+        this.defaultTtl = defaultTtl;
+        this.ttls = new HashMap<>(ttls);
+        long maxTtl = this.ttls.values().stream().reduce(defaultTtl, Math::max);
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Math.max(maxTtl, 1), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    long getTtl(String action) {
+        return ttls.getOrDefault(action, DEFAULT_CACHED_ACTIONS.contains(action) ? defaultTtl : 0);
+    }
+
+    /**
+     * Returns the live entry for a resource, or {@code null} on a miss.
+     */
+    Entry get(String key, String action) {
+        if (getTtl(action) <= 0)
+            return null;
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && entry.isExpired()) {
+            entries.invalidate(key);
+            entry = null;
+        }
+        count(action, entry != null ? "hit" : "miss");
+        return entry;
+    }
+
+    /**
+     * Returns the current generation, to be taken before a GET is sent and
+     * passed to {@link #put} with its response.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Keeps a response if its action is cached, it succeeded and nothing was
+     * invalidated since the given generation.  The response entity must be
+     * buffered so it can be read again.
+     */
+    void put(String key, String action, Response response, long since) {
+        long ttl = getTtl(action);
+        if (ttl <= 0 || response.getStatus() / 100 != 2)
+            return;
+
+        byte[] body = response.hasEntity() ? response.readEntity(byte[].class) : null;
+        Entry entry = new Entry(response.getStatus(), response.getHeaderString(HttpHeaders.CONTENT_TYPE), body,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+        synchronized (generation) {
+            if (generation.get() == since)
+                entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Drops every entry a change to a resource may have made stale.
+     */
+    void invalidate(String key) {
+        String scope = scopeOf(pathOf(key));
+        synchronized (generation) {
+            generation.incrementAndGet();
+            entries.asMap().keySet().removeIf(cached -> isUnder(pathOf(cached), scope));
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (generation) {
+            generation.incrementAndGet();
+            entries.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        Gauge.builder("ecs.management.cache.size", this, ResponseCache::size)
+                .description("Management API responses cached")
+                .register(registry);
+        FunctionCounter.builder("ecs.management.cache.evictions", entries, c -> c.stats().evictionCount())
+                .description("Cached management API responses evicted to stay within the size limit or TTL")
+                .register(registry);
+    }
+
+    private void count(String action, String result) {
+        Counter.builder("ecs.management.cache.requests")
+                .description("Management API GETs looked up in the response cache")
+                .tag("action", action)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static void replay(ClientRequestContext request) {
+        Object entry = request.getProperty(CACHED_ENTRY);
+        if (entry instanceof Entry)
+            request.abortWith(((Entry) entry).toResponse());
+    }
+
+    private static String pathOf(String key) {
+        int query = key.indexOf('?');
+        String path = query < 0 ? key : key.substring(0, query);
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    private static String scopeOf(String path) {
+        String[] segments = path.split("/");
+        if (segments.length <= 2 || SEPARATE_RESOURCES.contains(segments[segments.length - 1]))
+            return path;
+        return parentPath(path);
+    }
+
+    private static String parentPath(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private static boolean isUnder(String path, String parent) {
+        return parent.isEmpty() || path.equals(parent) || path.startsWith(parent + "/");
+    }
+
+    static final class Entry {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final long expiresAt;
+
+        private Entry(int status, String contentType, byte[] body, long expiresAt) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+        private Response toResponse() {
+            Response.ResponseBuilder response = Response.status(status);
+            if (body != null)
+                response.entity(body).type(contentType);
+            return response.build();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.emc.ecs.management.sdk;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts management API responses handed out by a {@link Connection} that
+ * have not been closed yet, and reports responses that were garbage
+ * collected without being closed.
+ *
+ * With leak detection on, the stack of the call that obtained each response
+ * is recorded and logged when it leaks.  Recording a stack costs a few
+ * microseconds per call, so it is off by default.
+ */
+class ResponseTracker implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseTracker.class);
+
+    private final ReferenceQueue<TrackedResponse> collected = new ReferenceQueue<>();
+    private final Set<Record> open = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong leaked = new AtomicLong();
+    private volatile boolean leakDetection;
+
+    /**
+     * Wraps a response so that closing it is tracked.
+     */
+    Response track(Response response, String method, String action) {
+        expungeCollected();
+        TrackedResponse tracked = new TrackedResponse(response);
+        Record record = new Record(tracked, collected, method + " " + action,
+                leakDetection ? new Throwable("Response obtained here") : null);
+        open.add(record);
+        tracked.onClose(record::close);
+        return tracked;
+    }
+
+    int getOpen() {
+        expungeCollected();
+        return open.size();
+    }
+
+    long getLeaked() {
+        expungeCollected();
+        return leaked.get();
+    }
+
+    boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    void setLeakDetection(boolean leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ecs.management.responses.open", this, ResponseTracker::getOpen)
+                .description("Management API responses not yet closed")
+                .register(registry);
+        FunctionCounter.builder("ecs.management.responses.leaked", this, ResponseTracker::getLeaked)
+                .description("Management API responses garbage collected without being closed")
+                .register(registry);
+    }
+
+    private void expungeCollected() {
+        Record record;
+        while ((record = (Record) collected.poll()) != null) {
+            if (open.remove(record)) {
+                leaked.incrementAndGet();
+                if (record.allocation != null) {
+                    logger.error("Management API response to {} was not closed", record.call, record.allocation);
+                } else {
+                    logger.error("Management API response to {} was not closed; enable leak detection "
+                            + "to see where it was obtained", record.call);
+                }
+            }
+        }
+    }
+
+    private final class Record extends PhantomReference<TrackedResponse> {
+        private final String call;
+        private final Throwable allocation;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Record(TrackedResponse response, ReferenceQueue<TrackedResponse> queue,
+                       String call, Throwable allocation) {
+            super(response, queue);
+            this.call = call;
+            this.allocation = allocation;
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                open.remove(this);
+                clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.emc.ecs.management.sdk;
+
+import javax.ws.rs.ProcessingException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.emc.ecs.management.sdk.Constants.*;
+
+/**
+ * Decides whether a failed management call may be retried and how long to
+ * wait first.  Only calls that are safe to repeat are retried: reads, ACL
+ * updates and deactivations.  Delays grow exponentially with full jitter,
+ * honour any {@code Retry-After} from ECS and stop at a total time budget.
+ */
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF = 100;
+    public static final long DEFAULT_MAX_BACKOFF = 5000;
+    public static final long DEFAULT_TIME_BUDGET = 30000;
+
+    public static final long NO_RETRY = -1;
+
+    private final int maxRetries;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final long timeBudget;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_TIME_BUDGET);
+    }
+
+    /**
+     * @param maxRetries     retries after the first attempt; zero disables retry
+     * @param initialBackoff upper bound in milliseconds of the first delay
+     * @param maxBackoff     upper bound in milliseconds of any single delay
+     * @param timeBudget     milliseconds after which no further attempt is started
+     */
+    public RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff, long timeBudget) {
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * @param action the logical action named by {@link Connection#actionName}
+     */
+    public boolean isIdempotent(String method, String action) {
+        return GET.equals(method)
+                || (PUT.equals(method) && action.endsWith(ACL))
+                || (POST.equals(method) && action.endsWith(DEACTIVATE));
+    }
+
+    public boolean isRetryable(int status) {
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    public boolean isRetryable(Exception e) {
+        return e instanceof ProcessingException && e.getCause() instanceof IOException;
+    }
+
+    /**
+     * Returns the milliseconds to wait before the next attempt, or
+     * {@link #NO_RETRY} if the retry or time budget is spent.
+     *
+     * @param retries    retries already made for this call
+     * @param elapsed    milliseconds since the first attempt started
+     * @param retryAfter the {@code Retry-After} header of the failed attempt, if any
+     */
+    public long retryDelay(int retries, long elapsed, String retryAfter) {
+        if (retries >= maxRetries)
+            return NO_RETRY;
+
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(retries, 30));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        delay = Math.max(delay, parseRetryAfter(retryAfter));
+
+        if (elapsed + delay >= timeBudget)
+            return NO_RETRY;
+        return delay;
+    }
+
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isEmpty())
+            return 0;
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+}
@@ -0,0 +1,202 @@
+package com.emc.ecs.management.sdk;
+
+import com.emc.ecs.servicebroker.EcsManagementClientException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the ECS management session token for one node of a {@link Connection}.
+ *
+ * Concurrent callers that need a new token share a single in-flight login
+ * rather than each logging in, and the token is refreshed in the background
+ * before ECS expires it so that request threads do not wait on a login.  The
+ * session of a token replaced in the background is then logged out, so that
+ * sessions do not pile up on ECS.
+ */
+class TokenManager implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(TokenManager.class);
+
+    @FunctionalInterface
+    interface Login {
+        String login() throws EcsManagementClientException;
+    }
+
+    @FunctionalInterface
+    interface Logout {
+        void logout(String token) throws EcsManagementClientException;
+    }
+
+    private final String name;
+    private final Login login;
+    private final Logout logout;
+    private final AtomicReference<String> token = new AtomicReference<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private CompletableFuture<String> inFlight;
+
+    private long refreshInterval;
+    private ScheduledExecutorService refresher;
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    TokenManager(String name, Login login, long refreshInterval) {
+        this(name, login, token -> { }, refreshInterval);
+    }
+
+    TokenManager(String name, Login login, Logout logout, long refreshInterval) {
+        this.name = name;
+        this.login = login;
+        this.logout = logout;
+        this.refreshInterval = refreshInterval;
+    }
+
+    String getToken() {
+        return token.get();
+    }
+
+    /**
+     * Returns the current token, logging in first if there is none.
+     */
+    String obtainToken() throws EcsManagementClientException {
+        String current = token.get();
+        if (current != null)
+            return current;
+        return refresh(null);
+    }
+
+    /**
+     * Replaces a token that was rejected or is about to expire.  If another
+     * thread has already replaced it the newer token is returned; if a login
+     * is already in flight the caller waits for its result.
+     */
+    String refresh(String staleToken) throws EcsManagementClientException {
+        CompletableFuture<String> pending;
+        boolean owner = false;
+        synchronized (this) {
+            String current = token.get();
+            if (current != null && !current.equals(staleToken))
+                return current;
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                owner = true;
+            }
+            pending = inFlight;
+        }
+
+        if (owner)
+            return performLogin(pending);
+        return await(pending);
+    }
+
+    void clear() {
+        token.set(null);
+    }
+
+    synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    synchronized void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        close();
+    }
+
+    long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        Gauge.builder("ecs.management.login.waiting", waiting, AtomicInteger::get)
+                .description("Threads waiting on an in-flight management API login")
+                .tag("endpoint", name)
+                .register(registry);
+    }
+
+    private String performLogin(CompletableFuture<String> pending) throws EcsManagementClientException {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try {
+            String newToken = login.login();
+            token.set(newToken);
+            outcome = "success";
+            pending.complete(newToken);
+            scheduleRefresh();
+            return newToken;
+        } catch (EcsManagementClientException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight = null;
+            }
+            Timer.builder("ecs.management.login")
+                    .description("Management API logins")
+                    .tag("endpoint", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String await(CompletableFuture<String> pending) throws EcsManagementClientException {
+        waiting.incrementAndGet();
+        try {
+            return Connection.await(pending);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (refresher != null || refreshInterval <= 0)
+            return;
+
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ecs-management-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshInBackground,
+                refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    void refreshInBackground() {
+        String current = token.get();
+        if (current == null)
+            return;
+        String replacement;
+        try {
+            // Callers keep using the current token until the new one is set
+            replacement = refresh(current);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh management API token for {}: {}", name, e.getMessage());
+            return;
+        }
+        if (current.equals(replacement))
+            return;
+        try {
+            logout.logout(current);
+        } catch (Exception e) {
+            logger.warn("Failed to log out replaced management API token for {}: {}", name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.emc.ecs.management.sdk;
+
+import com.emc.ecs.management.sdk.model.BaseUrl;
+import com.emc.ecs.management.sdk.model.BaseUrlInfo;
+import com.emc.ecs.management.sdk.model.DataServiceReplicationGroup;
+import com.emc.ecs.servicebroker.EcsManagementClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the ECS topology the broker looks up on every bind: base URLs,
+ * their details and replication groups.  Each is loaded on first use, kept
+ * in maps by name and id, and reloaded in the background so lookups do not
+ * call the management API.
+ *
+ * A lookup by name that misses reloads the list once, so objects created on
+ * ECS since the last refresh are found without waiting for it.
+ */
+public class TopologyCache {
+    private static final Logger logger = LoggerFactory.getLogger(TopologyCache.class);
+
+    public static final long DEFAULT_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    static final long MIN_RELOAD_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private final Connection connection;
+    private final ConcurrentMap<String, BaseUrlInfo> baseUrlInfo = new ConcurrentHashMap<>();
+    private volatile Snapshot<BaseUrl> baseUrls;
+    private volatile Snapshot<DataServiceReplicationGroup> replicationGroups;
+    private volatile long lastRefresh;
+
+    private long refreshInterval;
+    private ScheduledExecutorService refresher;
+
+    public TopologyCache(Connection connection) {
+        this(connection, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param refreshInterval milliseconds between background reloads; zero
+     *                        or less reloads only on a miss or invalidation
+     */
+    public TopologyCache(Connection connection, long refreshInterval) {
+        this.connection = connection;
+        this.refreshInterval = refreshInterval;
+    }
+
+    public List<BaseUrl> getBaseUrls() throws EcsManagementClientException {
+        return baseUrls().all;
+    }
+
+    public Optional<BaseUrl> findBaseUrl(String name) throws EcsManagementClientException {
+        BaseUrl baseUrl = baseUrls().byName.get(name);
+        if (baseUrl == null && isStale(baseUrls))
+            baseUrl = loadBaseUrls().byName.get(name);
+        return Optional.ofNullable(baseUrl);
+    }
+
+    public BaseUrlInfo getBaseUrlInfo(String id) throws EcsManagementClientException {
+        BaseUrlInfo info = baseUrlInfo.get(id);
+        if (info == null) {
+            info = BaseUrlAction.get(connection, id);
+            baseUrlInfo.put(id, info);
+            scheduleRefresh();
+        }
+        return info;
+    }
+
+    public List<DataServiceReplicationGroup> getReplicationGroups() throws EcsManagementClientException {
+        return replicationGroups().all;
+    }
+
+    public Optional<DataServiceReplicationGroup> findReplicationGroup(String name)
+            throws EcsManagementClientException {
+        DataServiceReplicationGroup rg = replicationGroups().byName.get(name);
+        if (rg == null && isStale(replicationGroups))
+            rg = loadReplicationGroups().byName.get(name);
+        return Optional.ofNullable(rg);
+    }
+
+    public Optional<DataServiceReplicationGroup> findReplicationGroupById(String id)
+            throws EcsManagementClientException {
+        DataServiceReplicationGroup rg = replicationGroups().byId.get(id);
+        if (rg == null && isStale(replicationGroups))
+            rg = loadReplicationGroups().byId.get(id);
+        return Optional.ofNullable(rg);
+    }
+
+    /**
+     * Reloads everything that has been loaded so far.  Details of base URLs
+     * that no longer exist are dropped.
+     */
+    public void refresh() throws EcsManagementClientException {
+        if (baseUrls != null || !baseUrlInfo.isEmpty()) {
+            Snapshot<BaseUrl> current = loadBaseUrls();
+            baseUrlInfo.keySet().retainAll(current.byId.keySet());
+            for (String id : baseUrlInfo.keySet())
+                baseUrlInfo.put(id, BaseUrlAction.get(connection, id));
+        }
+        if (replicationGroups != null)
+            loadReplicationGroups();
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * Drops everything cached; the next lookup of each kind reloads it.
+     */
+    public void invalidate() {
+        baseUrls = null;
+        replicationGroups = null;
+        baseUrlInfo.clear();
+        logger.info("ECS topology cache invalidated");
+    }
+
+    /**
+     * Milliseconds since the epoch of the last complete refresh, or zero if
+     * there has been none.
+     */
+    public long getLastRefresh() {
+        return lastRefresh;
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public synchronized void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+        close();
+    }
+
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    private Snapshot<BaseUrl> baseUrls() throws EcsManagementClientException {
+        Snapshot<BaseUrl> current = baseUrls;
+        return current != null ? current : loadBaseUrls();
+    }
+
+    private Snapshot<DataServiceReplicationGroup> replicationGroups() throws EcsManagementClientException {
+        Snapshot<DataServiceReplicationGroup> current = replicationGroups;
+        return current != null ? current : loadReplicationGroups();
+    }
+
+    private Snapshot<BaseUrl> loadBaseUrls() throws EcsManagementClientException {
+        Snapshot<BaseUrl> loaded = new Snapshot<>(BaseUrlAction.list(connection),
+                BaseUrl::getName, BaseUrl::getId);
+        baseUrls = loaded;
+        scheduleRefresh();
+        return loaded;
+    }
+
+    private Snapshot<DataServiceReplicationGroup> loadReplicationGroups() throws EcsManagementClientException {
+        Snapshot<DataServiceReplicationGroup> loaded = new Snapshot<>(ReplicationGroupAction.list(connection),
+                DataServiceReplicationGroup::getName, DataServiceReplicationGroup::getId);
+        replicationGroups = loaded;
+        scheduleRefresh();
+        return loaded;
+    }
+
+    private static boolean isStale(Snapshot<?> snapshot) {
+        return snapshot == null || System.currentTimeMillis() - snapshot.loadedAt >= MIN_RELOAD_INTERVAL;
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (refresher != null || refreshInterval <= 0)
+            return;
+
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ecs-topology-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshInBackground,
+                refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshInBackground() {
+        try {
+            // Lookups keep using the previous snapshot until the new one is set
+            refresh();
+        } catch (Exception e) {
+            logger.warn("Failed to refresh ECS topology: {}", e.getMessage());
+        }
+    }
+
+    private static final class Snapshot<T> {
+        private final List<T> all;
+        private final Map<String, T> byName;
+        private final Map<String, T> byId;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Snapshot(List<T> all, Function<T, String> name, Function<T, String> id) {
+            Map<String, T> byName = new HashMap<>();
+            Map<String, T> byId = new HashMap<>();
+            for (T item : all) {
+                byName.putIfAbsent(name.apply(item), item);
+                byId.put(id.apply(item), item);
+            }
+            this.all = Collections.unmodifiableList(all);
+            this.byName = byName;
+            this.byId = byId;
+        }
+    }
+}
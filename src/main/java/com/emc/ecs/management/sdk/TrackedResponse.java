@@ -0,0 +1,170 @@
+package com.emc.ecs.management.sdk;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A response that tells {@link ResponseTracker} when it is closed.
+ */
+final class TrackedResponse extends Response {
+    private final Response delegate;
+    private Runnable onClose = () -> { };
+
+    TrackedResponse(Response delegate) {
+        this.delegate = delegate;
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            onClose.run();
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        return delegate.getStatus();
+    }
+
+    @Override
+    public StatusType getStatusInfo() {
+        return delegate.getStatusInfo();
+    }
+
+    @Override
+    public Object getEntity() {
+        return delegate.getEntity();
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType) {
+        return delegate.readEntity(entityType);
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType) {
+        return delegate.readEntity(entityType);
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+        return delegate.readEntity(entityType, annotations);
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+        return delegate.readEntity(entityType, annotations);
+    }
+
+    @Override
+    public boolean hasEntity() {
+        return delegate.hasEntity();
+    }
+
+    @Override
+    public boolean bufferEntity() {
+        return delegate.bufferEntity();
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        return delegate.getMediaType();
+    }
+
+    @Override
+    public Locale getLanguage() {
+        return delegate.getLanguage();
+    }
+
+    @Override
+    public int getLength() {
+        return delegate.getLength();
+    }
+
+    @Override
+    public Set<String> getAllowedMethods() {
+        return delegate.getAllowedMethods();
+    }
+
+    @Override
+    public Map<String, NewCookie> getCookies() {
+        return delegate.getCookies();
+    }
+
+    @Override
+    public EntityTag getEntityTag() {
+        return delegate.getEntityTag();
+    }
+
+    @Override
+    public Date getDate() {
+        return delegate.getDate();
+    }
+
+    @Override
+    public Date getLastModified() {
+        return delegate.getLastModified();
+    }
+
+    @Override
+    public URI getLocation() {
+        return delegate.getLocation();
+    }
+
+    @Override
+    public Set<Link> getLinks() {
+        return delegate.getLinks();
+    }
+
+    @Override
+    public boolean hasLink(String relation) {
+        return delegate.hasLink(relation);
+    }
+
+    @Override
+    public Link getLink(String relation) {
+        return delegate.getLink(relation);
+    }
+
+    @Override
+    public Link.Builder getLinkBuilder(String relation) {
+        return delegate.getLinkBuilder(relation);
+    }
+
+    @Override
+    public MultivaluedMap<String, Object> getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getStringHeaders() {
+        return delegate.getStringHeaders();
+    }
+
+    @Override
+    public String getHeaderString(String name) {
+        return delegate.getHeaderString(name);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
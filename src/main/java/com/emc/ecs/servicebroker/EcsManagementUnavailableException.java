@@ -0,0 +1,15 @@
+package com.emc.ecs.servicebroker;
+
+import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
+
+/**
+ * Thrown without contacting ECS while the circuit breaker for the management
+ * endpoint is open, so the platform gets a prompt, retryable failure.
+ */
+public class EcsManagementUnavailableException extends ServiceBrokerException {
+    private static final long serialVersionUID = 1L;
+
+    public EcsManagementUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -5,10 +5,16 @@ import com.emc.ecs.servicebroker.EcsManagementResourceNotFoundException;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceBindingRepository;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
 import com.emc.ecs.servicebroker.repository.BucketWipeFactory;
+import com.emc.ecs.servicebroker.repository.RepositoryStoreFactory;
+import com.emc.ecs.servicebroker.repository.S3ClientFactory;
 import com.emc.ecs.servicebroker.service.EcsService;
 import com.emc.ecs.servicebroker.service.EcsServiceInstanceBindingService;
 import com.emc.ecs.servicebroker.service.EcsServiceInstanceService;
+import com.emc.ecs.management.sdk.CircuitBreaker;
 import com.emc.ecs.management.sdk.Connection;
+import com.emc.ecs.management.sdk.ResponseCache;
+import com.emc.ecs.management.sdk.RetryPolicy;
+import com.emc.ecs.management.sdk.TopologyCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,18 +50,52 @@ public class Application {
         Application.context = SpringApplication.run(Application.class, getArgs());
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public Connection ecsConnection() {
+        Connection connection;
 	if (broker.getCertificate() != null) {
 	    logger.info("Instantiating ecs connection with certificate");
 
-        return new Connection(broker.getManagementEndpoint(),
+        connection = new Connection(broker.getManagementEndpoints(),
                 broker.getUsername(), broker.getPassword(), broker.getCertificate());
 	} else {
         logger.info("Instantiating unencrypted ecs connection");
-		return new Connection(broker.getManagementEndpoint(),
-                broker.getUsername(), broker.getPassword());
+		connection = new Connection(broker.getManagementEndpoints(),
+                broker.getUsername(), broker.getPassword(), null);
 	}
+        connection.setConnectTimeout(broker.getManagementConnectTimeout());
+        connection.setReadTimeout(broker.getManagementReadTimeout());
+        connection.setMaxConnections(broker.getManagementMaxConnections());
+        connection.setMaxConnectionsPerRoute(broker.getManagementMaxConnectionsPerRoute());
+        connection.setIoThreads(broker.getManagementIoThreads());
+        connection.setTokenRefreshInterval(broker.getManagementTokenRefreshInterval());
+        connection.setRetryPolicy(new RetryPolicy(broker.getManagementMaxRetries(),
+                broker.getManagementRetryInitialBackoff(), broker.getManagementRetryMaxBackoff(),
+                broker.getManagementRetryTimeBudget()));
+        connection.setCircuitBreakerFactory(endpoint -> new CircuitBreaker(endpoint,
+                broker.getManagementCircuitFailureRateThreshold(), broker.getManagementCircuitSlowCallRateThreshold(),
+                broker.getManagementCircuitSlowCallDuration(), broker.getManagementCircuitWindowSize(),
+                broker.getManagementCircuitOpenDuration()));
+        connection.setHealthCheckInterval(broker.getManagementHealthCheckInterval());
+        connection.setResponseCache(new ResponseCache(broker.getManagementCacheMaxSize(),
+                broker.getManagementCacheTtl(), broker.getManagementCacheTtls()));
+        connection.setLeakDetection(broker.isManagementLeakDetection());
+        return connection;
+    }
+
+    @Bean(destroyMethod = "close")
+    public TopologyCache ecsTopology() {
+        return new TopologyCache(ecsConnection(), broker.getManagementTopologyRefreshInterval());
+    }
+
+    @Bean
+    public EcsTopologyEndpoint ecsTopologyEndpoint() {
+        return new EcsTopologyEndpoint();
+    }
+
+    @Bean
+    public EcsManagementHealthIndicator ecsManagementHealthIndicator() {
+        return new EcsManagementHealthIndicator();
     }
 
     @Bean
@@ -97,6 +137,16 @@ public class Application {
         return new BucketWipeFactory();
     }
 
+    @Bean
+    public RepositoryStoreFactory repositoryStoreFactory() {
+        return new RepositoryStoreFactory();
+    }
+
+    @Bean(destroyMethod = "close")
+    public S3ClientFactory s3ClientFactory() {
+        return new S3ClientFactory();
+    }
+
     private static String[] getArgs() {
         return args;
     }
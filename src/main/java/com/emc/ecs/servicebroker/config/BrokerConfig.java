@@ -1,11 +1,27 @@
 package com.emc.ecs.servicebroker.config;
 
+import com.emc.ecs.management.sdk.CircuitBreaker;
+import com.emc.ecs.management.sdk.Connection;
+import com.emc.ecs.management.sdk.ResponseCache;
+import com.emc.ecs.management.sdk.RetryPolicy;
+import com.emc.ecs.management.sdk.TopologyCache;
 import com.emc.ecs.servicebroker.model.ReclaimPolicy;
+import com.emc.ecs.servicebroker.repository.RecordCodec;
+import com.emc.ecs.servicebroker.repository.RecordFetcher;
+import com.emc.ecs.servicebroker.repository.RepositoryCache;
+import com.emc.ecs.servicebroker.repository.RepositoryStore;
+import com.emc.ecs.servicebroker.repository.RepositoryStoreFactory;
+import com.emc.ecs.servicebroker.repository.ResumableBucketWipe;
+import com.emc.ecs.servicebroker.repository.S3ClientFactory;
+import com.emc.ecs.servicebroker.repository.WipeScheduler;
 import com.emc.ecs.servicebroker.model.TileSelector;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +31,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @ConfigurationProperties(prefix = "broker")
 public class BrokerConfig {
     private String managementEndpoint;
+    private List<String> managementEndpoints;
     private String namespace;
     private String replicationGroup;
     private String baseUrl;
@@ -31,6 +48,56 @@ public class BrokerConfig {
     private String brokerApiVersion = "*";
     private String certificate;
     private String defaultReclaimPolicy = ReclaimPolicy.Fail.name();
+    private int managementConnectTimeout = Connection.DEFAULT_CONNECT_TIMEOUT;
+    private int managementReadTimeout = Connection.DEFAULT_READ_TIMEOUT;
+    private int managementMaxConnections = Connection.DEFAULT_MAX_CONNECTIONS;
+    private int managementMaxConnectionsPerRoute = Connection.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int managementIoThreads = Connection.DEFAULT_IO_THREADS;
+    private long managementTokenRefreshInterval = Connection.DEFAULT_TOKEN_REFRESH_INTERVAL;
+    private int managementMaxRetries = RetryPolicy.DEFAULT_MAX_RETRIES;
+    private long managementRetryInitialBackoff = RetryPolicy.DEFAULT_INITIAL_BACKOFF;
+    private long managementRetryMaxBackoff = RetryPolicy.DEFAULT_MAX_BACKOFF;
+    private long managementRetryTimeBudget = RetryPolicy.DEFAULT_TIME_BUDGET;
+    private int managementCircuitFailureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+    private int managementCircuitSlowCallRateThreshold = CircuitBreaker.DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+    private long managementCircuitSlowCallDuration = CircuitBreaker.DEFAULT_SLOW_CALL_DURATION;
+    private int managementCircuitWindowSize = CircuitBreaker.DEFAULT_WINDOW_SIZE;
+    private long managementCircuitOpenDuration = CircuitBreaker.DEFAULT_OPEN_DURATION;
+    private long managementHealthCheckInterval = Connection.DEFAULT_HEALTH_CHECK_INTERVAL;
+    private long managementTopologyRefreshInterval = TopologyCache.DEFAULT_REFRESH_INTERVAL;
+    private long managementCacheMaxSize = ResponseCache.DEFAULT_MAX_SIZE;
+    private long managementCacheTtl = ResponseCache.DEFAULT_TTL;
+    private Map<String, Long> managementCacheTtls = new HashMap<>();
+    private boolean managementLeakDetection = false;
+    private long repositoryCacheTtl = RepositoryCache.DEFAULT_TTL;
+    private long repositoryCacheMaxBytes = RepositoryCache.DEFAULT_MAX_BYTES;
+    private String repositoryStore = RepositoryStoreFactory.S3;
+    private String repositoryLocalPath;
+    private boolean repositoryLocalSync = true;
+    private String repositoryMigrateFrom;
+    private RecordCodec.Format repositoryRecordFormat = RecordCodec.Format.JSON;
+    private boolean repositoryRecordCompression = false;
+    private int repositoryMaxConnections = S3ClientFactory.DEFAULT_MAX_CONNECTIONS;
+    private int repositoryConnectTimeout = S3ClientFactory.DEFAULT_CONNECT_TIMEOUT;
+    private int repositoryReadTimeout = S3ClientFactory.DEFAULT_READ_TIMEOUT;
+    private long repositoryKeepAlive = S3ClientFactory.DEFAULT_KEEP_ALIVE;
+    private String repositoryCertificate;
+    private List<String> repositoryTlsProtocols;
+    private boolean repositorySmartClient = false;
+    private List<String> repositoryHosts;
+    private boolean repositoryHostDiscovery = true;
+    private boolean repositoryHostHealthCheck = true;
+    private int repositoryListConcurrency = RecordFetcher.DEFAULT_CONCURRENCY;
+    private int repositoryListPageSize = RepositoryStore.DEFAULT_PAGE_SIZE;
+    private int repositoryKeyShards = 0;
+    private long repositoryIndexVerifyInterval = 60 * 60 * 1000;
+    private int bucketWipeMaxJobs = WipeScheduler.DEFAULT_MAX_JOBS;
+    private int bucketWipeThreads = WipeScheduler.DEFAULT_THREADS;
+    private int bucketWipeMaxConcurrent = WipeScheduler.DEFAULT_MAX_CONCURRENT;
+    private int bucketWipeBatchSize = ResumableBucketWipe.DEFAULT_BATCH_SIZE;
+    private int bucketWipeBatchesInFlight = ResumableBucketWipe.DEFAULT_BATCHES_IN_FLIGHT;
+    private int bucketWipeMaxPartitions = ResumableBucketWipe.DEFAULT_MAX_PARTITIONS;
+    private long bucketWipeCheckpointInterval = ResumableBucketWipe.DEFAULT_CHECKPOINT_INTERVAL;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -214,4 +281,424 @@ public class BrokerConfig {
     public void setDefaultReclaimPolicy(String defaultReclaimPolicy) {
         this.defaultReclaimPolicy = defaultReclaimPolicy;
     }
+
+    public int getManagementConnectTimeout() {
+        return managementConnectTimeout;
+    }
+
+    public void setManagementConnectTimeout(int managementConnectTimeout) {
+        this.managementConnectTimeout = managementConnectTimeout;
+    }
+
+    public int getManagementReadTimeout() {
+        return managementReadTimeout;
+    }
+
+    public void setManagementReadTimeout(int managementReadTimeout) {
+        this.managementReadTimeout = managementReadTimeout;
+    }
+
+    public int getManagementMaxConnections() {
+        return managementMaxConnections;
+    }
+
+    public void setManagementMaxConnections(int managementMaxConnections) {
+        this.managementMaxConnections = managementMaxConnections;
+    }
+
+    public int getManagementMaxConnectionsPerRoute() {
+        return managementMaxConnectionsPerRoute;
+    }
+
+    public void setManagementMaxConnectionsPerRoute(int managementMaxConnectionsPerRoute) {
+        this.managementMaxConnectionsPerRoute = managementMaxConnectionsPerRoute;
+    }
+
+    public long getManagementTokenRefreshInterval() {
+        return managementTokenRefreshInterval;
+    }
+
+    public void setManagementTokenRefreshInterval(long managementTokenRefreshInterval) {
+        this.managementTokenRefreshInterval = managementTokenRefreshInterval;
+    }
+
+    public int getManagementIoThreads() {
+        return managementIoThreads;
+    }
+
+    public void setManagementIoThreads(int managementIoThreads) {
+        this.managementIoThreads = managementIoThreads;
+    }
+
+    public int getManagementMaxRetries() {
+        return managementMaxRetries;
+    }
+
+    public void setManagementMaxRetries(int managementMaxRetries) {
+        this.managementMaxRetries = managementMaxRetries;
+    }
+
+    public long getManagementRetryInitialBackoff() {
+        return managementRetryInitialBackoff;
+    }
+
+    public void setManagementRetryInitialBackoff(long managementRetryInitialBackoff) {
+        this.managementRetryInitialBackoff = managementRetryInitialBackoff;
+    }
+
+    public long getManagementRetryMaxBackoff() {
+        return managementRetryMaxBackoff;
+    }
+
+    public void setManagementRetryMaxBackoff(long managementRetryMaxBackoff) {
+        this.managementRetryMaxBackoff = managementRetryMaxBackoff;
+    }
+
+    public long getManagementRetryTimeBudget() {
+        return managementRetryTimeBudget;
+    }
+
+    public void setManagementRetryTimeBudget(long managementRetryTimeBudget) {
+        this.managementRetryTimeBudget = managementRetryTimeBudget;
+    }
+
+    public int getManagementCircuitFailureRateThreshold() {
+        return managementCircuitFailureRateThreshold;
+    }
+
+    public void setManagementCircuitFailureRateThreshold(int managementCircuitFailureRateThreshold) {
+        this.managementCircuitFailureRateThreshold = managementCircuitFailureRateThreshold;
+    }
+
+    public int getManagementCircuitSlowCallRateThreshold() {
+        return managementCircuitSlowCallRateThreshold;
+    }
+
+    public void setManagementCircuitSlowCallRateThreshold(int managementCircuitSlowCallRateThreshold) {
+        this.managementCircuitSlowCallRateThreshold = managementCircuitSlowCallRateThreshold;
+    }
+
+    public long getManagementCircuitSlowCallDuration() {
+        return managementCircuitSlowCallDuration;
+    }
+
+    public void setManagementCircuitSlowCallDuration(long managementCircuitSlowCallDuration) {
+        this.managementCircuitSlowCallDuration = managementCircuitSlowCallDuration;
+    }
+
+    public int getManagementCircuitWindowSize() {
+        return managementCircuitWindowSize;
+    }
+
+    public void setManagementCircuitWindowSize(int managementCircuitWindowSize) {
+        this.managementCircuitWindowSize = managementCircuitWindowSize;
+    }
+
+    public long getManagementCircuitOpenDuration() {
+        return managementCircuitOpenDuration;
+    }
+
+    public void setManagementCircuitOpenDuration(long managementCircuitOpenDuration) {
+        this.managementCircuitOpenDuration = managementCircuitOpenDuration;
+    }
+
+    /**
+     * Management endpoints of every ECS node to spread calls over, falling
+     * back to the single management endpoint when none are configured.
+     */
+    public List<String> getManagementEndpoints() {
+        if (managementEndpoints == null || managementEndpoints.isEmpty())
+            return Collections.singletonList(managementEndpoint);
+        return managementEndpoints;
+    }
+
+    public void setManagementEndpoints(List<String> managementEndpoints) {
+        this.managementEndpoints = managementEndpoints;
+    }
+
+    public long getManagementHealthCheckInterval() {
+        return managementHealthCheckInterval;
+    }
+
+    public void setManagementHealthCheckInterval(long managementHealthCheckInterval) {
+        this.managementHealthCheckInterval = managementHealthCheckInterval;
+    }
+
+    public long getManagementTopologyRefreshInterval() {
+        return managementTopologyRefreshInterval;
+    }
+
+    public void setManagementTopologyRefreshInterval(long managementTopologyRefreshInterval) {
+        this.managementTopologyRefreshInterval = managementTopologyRefreshInterval;
+    }
+
+    public long getManagementCacheMaxSize() {
+        return managementCacheMaxSize;
+    }
+
+    public void setManagementCacheMaxSize(long managementCacheMaxSize) {
+        this.managementCacheMaxSize = managementCacheMaxSize;
+    }
+
+    public long getManagementCacheTtl() {
+        return managementCacheTtl;
+    }
+
+    public void setManagementCacheTtl(long managementCacheTtl) {
+        this.managementCacheTtl = managementCacheTtl;
+    }
+
+    /**
+     * Cache time-to-live by management action, for example
+     * {@code broker.management-cache-ttls[bucket.quota]: 30000}.  Actions
+     * other than {@link ResponseCache#DEFAULT_CACHED_ACTIONS} are cached only
+     * when listed here.
+     */
+    public Map<String, Long> getManagementCacheTtls() {
+        return managementCacheTtls;
+    }
+
+    public void setManagementCacheTtls(Map<String, Long> managementCacheTtls) {
+        this.managementCacheTtls = managementCacheTtls;
+    }
+
+    public boolean isManagementLeakDetection() {
+        return managementLeakDetection;
+    }
+
+    public void setManagementLeakDetection(boolean managementLeakDetection) {
+        this.managementLeakDetection = managementLeakDetection;
+    }
+
+    public long getRepositoryCacheTtl() {
+        return repositoryCacheTtl;
+    }
+
+    public void setRepositoryCacheTtl(long repositoryCacheTtl) {
+        this.repositoryCacheTtl = repositoryCacheTtl;
+    }
+
+    public long getRepositoryCacheMaxBytes() {
+        return repositoryCacheMaxBytes;
+    }
+
+    public void setRepositoryCacheMaxBytes(long repositoryCacheMaxBytes) {
+        this.repositoryCacheMaxBytes = repositoryCacheMaxBytes;
+    }
+
+    public String getRepositoryStore() {
+        return repositoryStore;
+    }
+
+    public void setRepositoryStore(String repositoryStore) {
+        this.repositoryStore = repositoryStore;
+    }
+
+    public String getRepositoryLocalPath() {
+        return repositoryLocalPath;
+    }
+
+    public void setRepositoryLocalPath(String repositoryLocalPath) {
+        this.repositoryLocalPath = repositoryLocalPath;
+    }
+
+    public boolean isRepositoryLocalSync() {
+        return repositoryLocalSync;
+    }
+
+    public void setRepositoryLocalSync(boolean repositoryLocalSync) {
+        this.repositoryLocalSync = repositoryLocalSync;
+    }
+
+    public String getRepositoryMigrateFrom() {
+        return repositoryMigrateFrom;
+    }
+
+    public void setRepositoryMigrateFrom(String repositoryMigrateFrom) {
+        this.repositoryMigrateFrom = repositoryMigrateFrom;
+    }
+
+    public RecordCodec.Format getRepositoryRecordFormat() {
+        return repositoryRecordFormat;
+    }
+
+    public void setRepositoryRecordFormat(RecordCodec.Format repositoryRecordFormat) {
+        this.repositoryRecordFormat = repositoryRecordFormat;
+    }
+
+    public boolean isRepositoryRecordCompression() {
+        return repositoryRecordCompression;
+    }
+
+    public void setRepositoryRecordCompression(boolean repositoryRecordCompression) {
+        this.repositoryRecordCompression = repositoryRecordCompression;
+    }
+
+    public int getRepositoryMaxConnections() {
+        return repositoryMaxConnections;
+    }
+
+    public void setRepositoryMaxConnections(int repositoryMaxConnections) {
+        this.repositoryMaxConnections = repositoryMaxConnections;
+    }
+
+    public int getRepositoryConnectTimeout() {
+        return repositoryConnectTimeout;
+    }
+
+    public void setRepositoryConnectTimeout(int repositoryConnectTimeout) {
+        this.repositoryConnectTimeout = repositoryConnectTimeout;
+    }
+
+    public int getRepositoryReadTimeout() {
+        return repositoryReadTimeout;
+    }
+
+    public void setRepositoryReadTimeout(int repositoryReadTimeout) {
+        this.repositoryReadTimeout = repositoryReadTimeout;
+    }
+
+    public long getRepositoryKeepAlive() {
+        return repositoryKeepAlive;
+    }
+
+    public void setRepositoryKeepAlive(long repositoryKeepAlive) {
+        this.repositoryKeepAlive = repositoryKeepAlive;
+    }
+
+    public String getRepositoryCertificate() {
+        return repositoryCertificate;
+    }
+
+    public void setRepositoryCertificate(String repositoryCertificate) {
+        this.repositoryCertificate = repositoryCertificate;
+    }
+
+    public List<String> getRepositoryTlsProtocols() {
+        return repositoryTlsProtocols;
+    }
+
+    public void setRepositoryTlsProtocols(List<String> repositoryTlsProtocols) {
+        this.repositoryTlsProtocols = repositoryTlsProtocols;
+    }
+
+    public boolean isRepositorySmartClient() {
+        return repositorySmartClient;
+    }
+
+    public void setRepositorySmartClient(boolean repositorySmartClient) {
+        this.repositorySmartClient = repositorySmartClient;
+    }
+
+    public List<String> getRepositoryHosts() {
+        return repositoryHosts;
+    }
+
+    public void setRepositoryHosts(List<String> repositoryHosts) {
+        this.repositoryHosts = repositoryHosts;
+    }
+
+    public boolean isRepositoryHostDiscovery() {
+        return repositoryHostDiscovery;
+    }
+
+    public void setRepositoryHostDiscovery(boolean repositoryHostDiscovery) {
+        this.repositoryHostDiscovery = repositoryHostDiscovery;
+    }
+
+    public boolean isRepositoryHostHealthCheck() {
+        return repositoryHostHealthCheck;
+    }
+
+    public void setRepositoryHostHealthCheck(boolean repositoryHostHealthCheck) {
+        this.repositoryHostHealthCheck = repositoryHostHealthCheck;
+    }
+
+    public int getRepositoryListConcurrency() {
+        return repositoryListConcurrency;
+    }
+
+    public void setRepositoryListConcurrency(int repositoryListConcurrency) {
+        this.repositoryListConcurrency = repositoryListConcurrency;
+    }
+
+    public int getRepositoryListPageSize() {
+        return repositoryListPageSize;
+    }
+
+    public void setRepositoryListPageSize(int repositoryListPageSize) {
+        this.repositoryListPageSize = repositoryListPageSize;
+    }
+
+    public int getRepositoryKeyShards() {
+        return repositoryKeyShards;
+    }
+
+    public void setRepositoryKeyShards(int repositoryKeyShards) {
+        this.repositoryKeyShards = repositoryKeyShards;
+    }
+
+    public long getRepositoryIndexVerifyInterval() {
+        return repositoryIndexVerifyInterval;
+    }
+
+    public void setRepositoryIndexVerifyInterval(long repositoryIndexVerifyInterval) {
+        this.repositoryIndexVerifyInterval = repositoryIndexVerifyInterval;
+    }
+
+    public int getBucketWipeMaxJobs() {
+        return bucketWipeMaxJobs;
+    }
+
+    public void setBucketWipeMaxJobs(int bucketWipeMaxJobs) {
+        this.bucketWipeMaxJobs = bucketWipeMaxJobs;
+    }
+
+    public int getBucketWipeThreads() {
+        return bucketWipeThreads;
+    }
+
+    public void setBucketWipeThreads(int bucketWipeThreads) {
+        this.bucketWipeThreads = bucketWipeThreads;
+    }
+
+    public int getBucketWipeMaxConcurrent() {
+        return bucketWipeMaxConcurrent;
+    }
+
+    public void setBucketWipeMaxConcurrent(int bucketWipeMaxConcurrent) {
+        this.bucketWipeMaxConcurrent = bucketWipeMaxConcurrent;
+    }
+
+    public int getBucketWipeBatchSize() {
+        return bucketWipeBatchSize;
+    }
+
+    public void setBucketWipeBatchSize(int bucketWipeBatchSize) {
+        this.bucketWipeBatchSize = bucketWipeBatchSize;
+    }
+
+    public int getBucketWipeBatchesInFlight() {
+        return bucketWipeBatchesInFlight;
+    }
+
+    public void setBucketWipeBatchesInFlight(int bucketWipeBatchesInFlight) {
+        this.bucketWipeBatchesInFlight = bucketWipeBatchesInFlight;
+    }
+
+    public int getBucketWipeMaxPartitions() {
+        return bucketWipeMaxPartitions;
+    }
+
+    public void setBucketWipeMaxPartitions(int bucketWipeMaxPartitions) {
+        this.bucketWipeMaxPartitions = bucketWipeMaxPartitions;
+    }
+
+    public long getBucketWipeCheckpointInterval() {
+        return bucketWipeCheckpointInterval;
+    }
+
+    public void setBucketWipeCheckpointInterval(long bucketWipeCheckpointInterval) {
+        this.bucketWipeCheckpointInterval = bucketWipeCheckpointInterval;
+    }
 }
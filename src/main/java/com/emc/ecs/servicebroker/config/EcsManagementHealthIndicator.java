@@ -0,0 +1,43 @@
+package com.emc.ecs.servicebroker.config;
+
+import com.emc.ecs.management.sdk.CircuitBreaker;
+import com.emc.ecs.management.sdk.Connection;
+import com.emc.ecs.management.sdk.ManagementNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the management API as down when no node can take requests,
+ * because every node failed its health probe or has its circuit breaker open.
+ */
+public class EcsManagementHealthIndicator extends AbstractHealthIndicator {
+
+    @Autowired
+    private Connection connection;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        boolean available = false;
+        for (ManagementNode node : connection.getNodes()) {
+            CircuitBreaker circuitBreaker = node.getCircuitBreaker();
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("healthy", node.isHealthy());
+            details.put("circuitBreaker", circuitBreaker.getState());
+            details.put("failureRate", circuitBreaker.getFailureRate());
+            details.put("slowCallRate", circuitBreaker.getSlowCallRate());
+            details.put("bufferedCalls", circuitBreaker.getBufferedCalls());
+            details.put("outstanding", node.getOutstanding());
+            builder.withDetail(node.getEndpoint(), details);
+            available |= node.isAvailable();
+        }
+        if (available) {
+            builder.up();
+        } else {
+            builder.down();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.emc.ecs.servicebroker.config;
+
+import com.emc.ecs.management.sdk.TopologyCache;
+import com.emc.ecs.management.sdk.model.BaseUrl;
+import com.emc.ecs.management.sdk.model.DataServiceReplicationGroup;
+import com.emc.ecs.servicebroker.EcsManagementClientException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the cached ECS topology and lets operators reload it after changing
+ * base URLs or replication groups on ECS.  A delete drops the cache, a write
+ * reloads it at once.
+ */
+@Endpoint(id = "ecstopology")
+public class EcsTopologyEndpoint {
+
+    @Autowired
+    private TopologyCache topology;
+
+    @ReadOperation
+    public Map<String, Object> topology() throws EcsManagementClientException {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("baseUrls", topology.getBaseUrls().stream()
+                .collect(Collectors.toMap(BaseUrl::getName, BaseUrl::getId, (a, b) -> a, LinkedHashMap::new)));
+        details.put("replicationGroups", topology.getReplicationGroups().stream()
+                .collect(Collectors.toMap(DataServiceReplicationGroup::getName, DataServiceReplicationGroup::getId,
+                        (a, b) -> a, LinkedHashMap::new)));
+        details.put("lastRefresh", topology.getLastRefresh());
+        details.put("refreshInterval", topology.getRefreshInterval());
+        return details;
+    }
+
+    @WriteOperation
+    public void refresh() throws EcsManagementClientException {
+        topology.refresh();
+    }
+
+    @DeleteOperation
+    public void invalidate() {
+        topology.invalidate();
+    }
+}
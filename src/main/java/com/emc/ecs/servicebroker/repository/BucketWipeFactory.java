@@ -1,28 +1,36 @@
 package com.emc.ecs.servicebroker.repository;
 
 import com.emc.ecs.servicebroker.config.BrokerConfig;
-import com.emc.ecs.tool.BucketWipeOperations;
-import com.emc.ecs.tool.BucketWipeResult;
-import com.emc.object.s3.S3Config;
-import com.emc.object.s3.jersey.S3JerseyClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
 
-import java.net.URI;
+import java.io.IOException;
 import java.net.URISyntaxException;
 
 /**
- * Used to create instances of the BucketWipeOperations based on a given broker config
+ * Used to create instances of the ResumableBucketWipe based on a given broker config
  */
 public class BucketWipeFactory {
 
-    public BucketWipeOperations getBucketWipe(BrokerConfig broker) throws URISyntaxException {
-        S3Config s3Config = new S3Config(new URI(broker.getRepositoryEndpoint()));
-        s3Config.withIdentity(broker.getPrefixedUserName())
-            .withSecretKey(broker.getRepositorySecret());
+    @Autowired
+    private S3ClientFactory s3ClientFactory;
 
-        return new BucketWipeOperations(new S3JerseyClient(s3Config));
-    }
+    @Autowired
+    private RepositoryStoreFactory storeFactory;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
 
-    public BucketWipeResult newBucketWipeResult() {
-        return new BucketWipeResult();
+    public ResumableBucketWipe getBucketWipe(BrokerConfig broker) throws IOException, URISyntaxException {
+        BucketWipeJobRepository jobs = new BucketWipeJobRepository(
+                storeFactory.getStore(broker, BucketWipeJobRepository.getKeys()),
+                new RecordCodec(broker.getRepositoryRecordFormat(), broker.isRepositoryRecordCompression()));
+        WipeScheduler scheduler = new WipeScheduler(broker.getBucketWipeMaxJobs(), broker.getBucketWipeThreads(),
+                broker.getBucketWipeMaxConcurrent());
+        scheduler.bindTo(meterRegistry != null ? meterRegistry : Metrics.globalRegistry);
+        return new ResumableBucketWipe(s3ClientFactory.getClient(broker), jobs, scheduler,
+                broker.getBucketWipeBatchSize(), broker.getBucketWipeBatchesInFlight(),
+                broker.getBucketWipeMaxPartitions(), broker.getBucketWipeCheckpointInterval());
     }
 }
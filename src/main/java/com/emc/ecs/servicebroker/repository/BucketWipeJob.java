@@ -0,0 +1,275 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress of a bucket wipe, kept so that it can be resumed after a restart.
+ *
+ * The broker replica running the wipe holds a lease on it, which it renews
+ * while the wipe runs, so that other replicas leave it alone.  A wipe that
+ * failed is kept, marked as such, until the bucket is wiped again.
+ */
+@SuppressWarnings("unused")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BucketWipeJob {
+
+    @JsonSerialize
+    @JsonProperty("service_instance_id")
+    private String serviceInstanceId;
+
+    @JsonSerialize
+    @JsonProperty("bucket")
+    private String bucket;
+
+    /**
+     * Last key of the listing that every key up to has been deleted, of the
+     * first partition when the listing is partitioned
+     */
+    @JsonSerialize
+    @JsonProperty("marker")
+    private String marker;
+
+    /**
+     * Parts of the listing that are yet to be deleted, absent for a wipe
+     * saved before it was partitioned
+     */
+    @JsonSerialize
+    @JsonProperty("partitions")
+    private List<Partition> partitions;
+
+    @JsonSerialize
+    @JsonProperty("deleted_objects")
+    private long deletedObjects;
+
+    @JsonSerialize
+    @JsonProperty("error_count")
+    private long errorCount;
+
+    /**
+     * The first few errors, which are reported when the wipe completes
+     */
+    @JsonSerialize
+    @JsonProperty("errors")
+    private List<String> errors = new ArrayList<>();
+
+    /**
+     * Wipes of higher priority are started first when the broker is busy
+     */
+    @JsonSerialize
+    @JsonProperty("priority")
+    private int priority;
+
+    @JsonSerialize
+    @JsonProperty("started")
+    private long started;
+
+    @JsonSerialize
+    @JsonProperty("checkpointed")
+    private long checkpointed;
+
+    /**
+     * Broker replica running the wipe, absent if none is
+     */
+    @JsonSerialize
+    @JsonProperty("owner")
+    private String owner;
+
+    /**
+     * Time the owner's lease on the wipe expires unless renewed
+     */
+    @JsonSerialize
+    @JsonProperty("lease_expires")
+    private long leaseExpires;
+
+    @JsonSerialize
+    @JsonProperty("failed")
+    private boolean failed;
+
+    @JsonIgnore
+    private String eTag;
+
+    private BucketWipeJob() {
+        super();
+    }
+
+    public BucketWipeJob(String serviceInstanceId, String bucket) {
+        this(serviceInstanceId, bucket, WipeScheduler.DEFAULT_PRIORITY);
+    }
+
+    public BucketWipeJob(String serviceInstanceId, String bucket, int priority) {
+        super();
+        this.serviceInstanceId = serviceInstanceId;
+        this.bucket = bucket;
+        this.priority = priority;
+        this.started = System.currentTimeMillis();
+    }
+
+    public String getServiceInstanceId() {
+        return serviceInstanceId;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public String getMarker() {
+        return marker;
+    }
+
+    /**
+     * Parts of the listing to resume, the whole of it from the marker if the
+     * wipe was saved before it was partitioned.
+     */
+    public List<Partition> getPartitions() {
+        if (partitions == null)
+            return Collections.singletonList(new Partition(marker, null));
+        return partitions;
+    }
+
+    public long getDeletedObjects() {
+        return deletedObjects;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public long getCheckpointed() {
+        return checkpointed;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getLeaseExpires() {
+        return leaseExpires;
+    }
+
+    /**
+     * Tells whether a replica other than the given owner holds an unexpired
+     * lease on the wipe.
+     */
+    public boolean isLeasedToOther(String owner) {
+        return this.owner != null && !this.owner.equals(owner) && leaseExpires > System.currentTimeMillis();
+    }
+
+    /**
+     * Takes or renews the lease on the wipe, to be saved conditionally.
+     */
+    public void lease(String owner, long duration) {
+        this.owner = owner;
+        this.leaseExpires = System.currentTimeMillis() + duration;
+    }
+
+    /**
+     * Gives up the lease on the wipe, so another replica may resume it.
+     */
+    public void release() {
+        this.owner = null;
+        this.leaseExpires = 0;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Marks the wipe as failed and gives up its lease.
+     */
+    public void fail() {
+        this.failed = true;
+        release();
+    }
+
+    /**
+     * Records how far the wipe has got.
+     */
+    public void checkpoint(String marker, long deletedObjects, long errorCount, List<String> errors) {
+        this.marker = marker;
+        this.partitions = null;
+        this.deletedObjects = deletedObjects;
+        this.errorCount = errorCount;
+        this.errors = new ArrayList<>(errors);
+        this.checkpointed = System.currentTimeMillis();
+    }
+
+    /**
+     * Records how far each partition of the wipe has got.
+     */
+    public void checkpoint(List<Partition> partitions, long deletedObjects, long errorCount, List<String> errors) {
+        checkpoint(partitions.isEmpty() ? marker : partitions.get(0).getMarker(), deletedObjects, errorCount, errors);
+        this.partitions = new ArrayList<>(partitions);
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    /**
+     * Range of keys listed by one of the listings of a wipe.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.NONE)
+    public static class Partition {
+
+        /**
+         * Key after which the keys of the range are yet to be deleted
+         */
+        @JsonSerialize
+        @JsonProperty("marker")
+        private String marker;
+
+        /**
+         * Last key of the range, absent if it runs to the end of the bucket
+         */
+        @JsonSerialize
+        @JsonProperty("end")
+        private String end;
+
+        private Partition() {
+            super();
+        }
+
+        public Partition(String marker, String end) {
+            super();
+            this.marker = marker;
+            this.end = end;
+        }
+
+        public String getMarker() {
+            return marker;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the progress of bucket wipes, by service instance ID.  There are
+ * only ever as many as there are wipes in progress, so they are neither
+ * cached nor sharded.
+ */
+public class BucketWipeJobRepository {
+    private static final Logger logger = LoggerFactory.getLogger(BucketWipeJobRepository.class);
+
+    public static final String NAME = "bucket-wipe";
+
+    private final RepositoryStore store;
+    private final RecordKeys keys;
+    private final RecordCodec codec;
+
+    public BucketWipeJobRepository(RepositoryStore store, RecordCodec codec) {
+        this.store = store;
+        this.keys = getKeys();
+        this.codec = codec;
+    }
+
+    /**
+     * Keys the jobs are kept under, for opening their store.
+     */
+    public static RecordKeys getKeys() {
+        return new RecordKeys(NAME, 0);
+    }
+
+    public void save(BucketWipeJob job) throws IOException {
+        RecordBuffer buffer = codec.encodeToBuffer(job);
+        job.setETag(store.put(keys.getKey(job.getServiceInstanceId()), buffer.array(), 0, buffer.size(),
+                job.getETag()));
+    }
+
+    public BucketWipeJob find(String id) throws IOException {
+        StoredObject object = store.get(keys.getKey(id), null);
+        if (object == null)
+            return null;
+        try (InputStream input = object.getContent()) {
+            BucketWipeJob job = codec.decode(input, BucketWipeJob.class);
+            job.setETag(object.getETag());
+            return job;
+        }
+    }
+
+    public void delete(String id) throws IOException {
+        store.delete(keys.getKey(id));
+    }
+
+    /**
+     * Reads every job.
+     */
+    public List<BucketWipeJob> list() throws IOException {
+        List<BucketWipeJob> jobs = new ArrayList<>();
+        for (String key : store.list(keys.getLegacyPrefix())) {
+            String id = keys.getId(key);
+            BucketWipeJob job = id == null ? null : find(id);
+            if (job != null)
+                jobs.add(job);
+        }
+        logger.debug("Found {} bucket wipe jobs", jobs.size());
+        return jobs;
+    }
+
+    public void close() throws IOException {
+        store.close();
+    }
+}
@@ -0,0 +1,184 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and deletes records by ID under the {@link RecordKeys} layout, and
+ * moves records from their legacy keys once the layout is sharded.
+ *
+ * A record still under its legacy key is moved as soon as it is read, so
+ * it is only ever written under its sharded key.  The rest are moved in the
+ * background after the repository starts.  The move only creates the
+ * sharded copy if there is none, so it cannot overwrite a newer write, and
+ * takes it back if the legacy copy was deleted or changed meanwhile, so it
+ * cannot bring back a deleted record.
+ */
+final class KeyMigration implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(KeyMigration.class);
+
+    private final RepositoryStore store;
+    private final RecordKeys keys;
+    private ExecutorService mover;
+
+    KeyMigration(RepositoryStore store, RecordKeys keys) {
+        this.store = store;
+        this.keys = keys;
+    }
+
+    /**
+     * Reads a record, first moving it from its legacy key if it is there.
+     *
+     * @see RepositoryStore#get
+     */
+    StoredObject get(String id, String ifNoneMatch) throws IOException {
+        StoredObject object = store.get(keys.getKey(id), ifNoneMatch);
+        if (object != null || !keys.isSharded() || !move(id))
+            return object;
+        return store.get(keys.getKey(id), ifNoneMatch);
+    }
+
+    void delete(String id) throws IOException {
+        // Legacy copy first, so a move that still finds it after this has
+        // its sharded copy deleted below
+        if (keys.isSharded())
+            store.delete(keys.getLegacyKey(id));
+        store.delete(keys.getKey(id));
+    }
+
+    /**
+     * Starts moving every record still under its legacy key, if the layout
+     * is sharded.
+     */
+    synchronized void start() {
+        if (!keys.isSharded() || mover != null)
+            return;
+        mover = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ecs-repository-" + keys.getName() + "-rekey");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mover.submit(() -> {
+            try {
+                moveAll();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Moving {} records to sharded keys failed, the rest will be moved as they are read",
+                        keys.getName(), e);
+            }
+        });
+    }
+
+    /**
+     * Moves every record still under its legacy key.
+     *
+     * @return how many records were moved
+     */
+    int moveAll() throws IOException {
+        long start = System.currentTimeMillis();
+        int moved = 0;
+        String pageToken = null;
+        do {
+            RepositoryPage<String> page = store.list(keys.getLegacyPrefix(), pageToken,
+                    RepositoryStore.DEFAULT_PAGE_SIZE);
+            for (String key : page.getItems()) {
+                if (Thread.currentThread().isInterrupted())
+                    return moved;
+                String id = keys.getId(key);
+                // Only records directly under the legacy prefix are legacy
+                if (id != null && key.equals(keys.getLegacyKey(id)) && move(id))
+                    moved++;
+            }
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        logger.info("Moved {} {} records to sharded keys in {} ms", moved, keys.getName(),
+                System.currentTimeMillis() - start);
+        return moved;
+    }
+
+    /**
+     * Moves a record to its sharded key, unless it is already there.
+     *
+     * @return whether the record was under its legacy key
+     */
+    boolean move(String id) throws IOException {
+        String legacyKey = keys.getLegacyKey(id);
+        while (true) {
+            StoredObject legacy = store.get(legacyKey, null);
+            if (legacy == null)
+                return false;
+
+            byte[] content;
+            try (InputStream input = legacy.getContent()) {
+                content = ByteStreams.toByteArray(input);
+            }
+            boolean copied = false;
+            try {
+                store.putIfAbsent(keys.getKey(id), content);
+                copied = true;
+            } catch (RepositoryConflictException e) {
+                // Already moved, or written since, which the legacy copy must not replace
+                logger.debug("{} was already under its sharded key", legacyKey);
+            }
+
+            // Only drop the legacy copy that was read; if it was deleted or
+            // changed since, so is the copy just made
+            StoredObject current = store.get(legacyKey, legacy.getETag());
+            if (current != null && !current.isModified()) {
+                store.delete(legacyKey);
+                return true;
+            }
+            if (current != null)
+                current.getContent().close();
+            if (copied)
+                store.delete(keys.getKey(id));
+            if (current == null) {
+                logger.debug("{} was deleted while being moved", legacyKey);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Lists the keys of records a page at a time, across the shards and
+     * then the legacy prefix.  A listing taken while records are being moved
+     * may miss or repeat those moved during it.
+     */
+    RepositoryPage<String> list(String pageToken, int limit) throws IOException {
+        List<String> prefixes = keys.getAllPrefixes();
+        int index = 0;
+        if (pageToken != null) {
+            while (index < prefixes.size() - 1 && !pageToken.startsWith(prefixes.get(index)))
+                index++;
+        }
+        for (; index < prefixes.size(); index++) {
+            String prefix = prefixes.get(index);
+            RepositoryPage<String> page = store.list(prefix,
+                    pageToken != null && pageToken.startsWith(prefix) ? pageToken : null, limit);
+            if (page.getNextPageToken() != null)
+                return page;
+            if (!page.getItems().isEmpty()) {
+                List<String> items = page.getItems();
+                // Carry on from the end of this prefix next time, unless it was the last
+                return new RepositoryPage<>(items, index < prefixes.size() - 1 ? items.get(items.size() - 1) : null);
+            }
+        }
+        return new RepositoryPage<>(Collections.emptyList(), null);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mover != null) {
+            mover.shutdownNow();
+            mover = null;
+        }
+    }
+}
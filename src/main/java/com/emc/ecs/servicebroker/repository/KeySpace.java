@@ -0,0 +1,141 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Picks keys to split a listing of a bucket at, so that its parts can be
+ * listed in parallel.
+ *
+ * S3 lists keys in order but cannot count them, so a range is split where a
+ * common prefix of the bucket falls inside it, or otherwise half way through
+ * the keys that could fall in it, made only of the range of characters keys
+ * seen so far have at each position.  For keys drawn evenly from those
+ * characters, such as IDs, counters and hashes, each half then holds about
+ * as many keys.
+ */
+final class KeySpace {
+    private final TreeSet<Character> alphabet = new TreeSet<>();
+    private final List<TreeSet<Character>> positions = new ArrayList<>();
+    private final TreeSet<String> boundaries = new TreeSet<>();
+
+    synchronized void add(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (positions.size() == i)
+                positions.add(new TreeSet<>());
+            positions.get(i).add(key.charAt(i));
+            alphabet.add(key.charAt(i));
+        }
+    }
+
+    /**
+     * Adds common prefixes of the bucket, which split it at natural points.
+     */
+    synchronized void addBoundaries(Collection<String> prefixes) {
+        prefixes.forEach(this::add);
+        boundaries.addAll(prefixes);
+    }
+
+    /**
+     * Characters seen at any position of a key.
+     */
+    synchronized char[] getAlphabet() {
+        return toArray(alphabet);
+    }
+
+    /**
+     * Characters seen anywhere that fall between the lowest and highest seen
+     * at a position of a key, or all of them if no key seen is that long.
+     */
+    synchronized char[] getAlphabet(int position) {
+        if (position >= positions.size())
+            return toArray(alphabet);
+        TreeSet<Character> seen = positions.get(position);
+        return toArray(alphabet.subSet(seen.first(), true, seen.last(), true));
+    }
+
+    private static char[] toArray(Set<Character> seen) {
+        char[] chars = new char[seen.size()];
+        int i = 0;
+        for (char c : seen)
+            chars[i++] = c;
+        return chars;
+    }
+
+    /**
+     * Finds a key to split a range at.
+     *
+     * @param low  key after which the range starts, or null from the start
+     * @param high last key of the range
+     * @return key strictly between the two, or null if there is none
+     */
+    synchronized String split(String low, String high) {
+        if (low != null && low.compareTo(high) >= 0)
+            return null;
+        NavigableSet<String> inside = low == null
+                ? boundaries.headSet(high, false)
+                : boundaries.subSet(low, false, high, false);
+        if (!inside.isEmpty())
+            return inside.stream().skip(inside.size() / 2).findFirst().orElse(null);
+        return midpoint(low == null ? "" : low, high);
+    }
+
+    // Must hold the lock
+    private String midpoint(String low, String high) {
+        if (alphabet.isEmpty())
+            return null;
+
+        // Each key is a number with one digit a character, 0 standing for
+        // the end of a key shorter than the other
+        int length = Math.max(low.length(), high.length()) + 1;
+        char[][] chars = new char[length][];
+        for (int i = 0; i < length; i++)
+            chars[i] = getAlphabet(i);
+        BigInteger mid = value(low, chars).add(value(high, chars)).shiftRight(1);
+
+        char[] key = new char[length];
+        int end = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            BigInteger[] digit = mid.divideAndRemainder(BigInteger.valueOf(chars[i].length + 1));
+            int d = digit[1].intValue();
+            key[i] = d == 0 ? chars[i][0] : chars[i][d - 1];
+            if (d != 0 && end == 0)
+                end = i + 1;
+            mid = digit[0];
+        }
+        String split = new String(key, 0, end);
+        return split.compareTo(low) > 0 && split.compareTo(high) < 0 ? split : null;
+    }
+
+    private static BigInteger value(String key, char[][] chars) {
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 0; i < chars.length; i++) {
+            int digit = i < key.length() ? digit(key.charAt(i), chars[i]) : 0;
+            value = value.multiply(BigInteger.valueOf(chars[i].length + 1)).add(BigInteger.valueOf(digit));
+        }
+        return value;
+    }
+
+    /**
+     * Digit of the highest character in the alphabet not above the one
+     * given, 0 if the alphabet has none.
+     */
+    private static int digit(char c, char[] chars) {
+        int low = 0, high = chars.length - 1, digit = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chars[mid] <= c) {
+                digit = mid + 1;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,412 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.io.BaseEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps repository records in an append-only log on local disk, for
+ * deployments with a persistent volume that want to avoid a round-trip to
+ * ECS on every read.  Where the latest version of each record lies in the
+ * log is held in memory, in key order, so a read is a single positional file
+ * read and a listing walks the keys from where the last page ended.
+ *
+ * Each write appends a record and, unless sync is turned off, forces it to
+ * disk before returning, so an acknowledged write survives a crash.  When
+ * the log is opened it is replayed to rebuild the index.  A last record cut
+ * short or damaged by a crash fails its checksum, and the log is truncated
+ * there; a damaged record with others after it is not a crash's doing, and
+ * the log is left alone and refused rather than dropping the records that
+ * follow.  Once superseded records make up more than half of the log, it is
+ * compacted into a new file that atomically replaces the old one.  A lock
+ * file next to the log keeps a second process from opening it.
+ */
+public class LocalRepositoryStore implements RepositoryStore {
+    private static final Logger logger = LoggerFactory.getLogger(LocalRepositoryStore.class);
+
+    static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    // type, key length, ETag length, content length
+    private static final int HEADER_LENGTH = 1 + 2 + 2 + 4;
+    private static final int CRC_LENGTH = 4;
+
+    private final Path file;
+    private final boolean sync;
+    private final FileChannel lockChannel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Entry> index = new TreeMap<>();
+    private FileChannel channel;
+    private long size;
+    private long liveSize;
+
+    /**
+     * @param file log file, created if it does not exist
+     * @param sync whether each write is forced to disk before returning
+     */
+    public LocalRepositoryStore(Path file, boolean sync) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.sync = sync;
+        Files.createDirectories(this.file.getParent());
+        // Locked through a file of its own, as compaction replaces the log
+        this.lockChannel = FileChannel.open(this.file.resolveSibling(this.file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (!tryLock(lockChannel))
+                throw new IOException("Repository log " + this.file + " is in use by another process");
+            this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+        } catch (IOException | RuntimeException e) {
+            if (channel != null)
+                channel.close();
+            lockChannel.close();
+            throw e;
+        }
+        logger.info("Opened repository log {} with {} records", this.file, index.size());
+    }
+
+    @Override
+    public StoredObject get(String key, String ifNoneMatch) throws IOException {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (entry == null)
+                return null;
+            if (entry.eTag.equals(ifNoneMatch))
+                return StoredObject.notModified(entry.eTag);
+
+            ByteBuffer content = ByteBuffer.allocate(entry.contentLength);
+            readFully(channel, content, entry.contentOffset);
+            return new StoredObject(entry.eTag, new ByteArrayInputStream(content.array()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String put(String key, byte[] content, int offset, int length, String ifMatch) throws IOException {
+        String eTag = eTag(content, offset, length);
+        lock.writeLock().lock();
+        try {
+            Entry entry = index.get(key);
+            if (ifMatch != null && (entry == null || !entry.eTag.equals(ifMatch)))
+                throw new RepositoryConflictException(key + " was changed concurrently", null);
+            append(PUT, key, eTag, content, offset, length);
+            compactIfWasteful();
+            return eTag;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String putIfAbsent(String key, byte[] content) throws IOException {
+        String eTag = eTag(content, 0, content.length);
+        lock.writeLock().lock();
+        try {
+            if (index.containsKey(key))
+                throw new RepositoryConflictException(key + " already exists", null);
+            append(PUT, key, eTag, content, 0, content.length);
+            compactIfWasteful();
+            return eTag;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (index.containsKey(key)) {
+                append(DELETE, key, "", new byte[0], 0, 0);
+                compactIfWasteful();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public RepositoryPage<String> list(String prefix, String pageToken, int limit) {
+        lock.readLock().lock();
+        try {
+            String from = pageToken != null && pageToken.compareTo(prefix) > 0 ? pageToken : prefix;
+            List<String> keys = new ArrayList<>();
+            for (String key : index.tailMap(from, !from.equals(pageToken)).keySet()) {
+                if (!key.startsWith(prefix))
+                    break;
+                if (keys.size() == limit)
+                    return new RepositoryPage<>(keys, keys.get(keys.size() - 1));
+                keys.add(key);
+            }
+            return new RepositoryPage<>(keys, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            lockChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    private void replay() throws IOException {
+        long end = channel.size();
+        long position = 0;
+        while (position < end) {
+            long length = recordLength(position, end);
+            ByteBuffer record = length > 0 && length <= end - position ? readRecord(position, length) : null;
+            if (record == null) {
+                if (!isTornTail(position, length, end))
+                    throw new IOException("Repository log " + file + " has a damaged record at " + position
+                            + " of " + end + " bytes followed by other records; restore or move it aside");
+                logger.warn("Repository log {} has an incomplete or damaged last record at {} of {} bytes, "
+                        + "truncating it there", file, position, end);
+                channel.truncate(position);
+                channel.force(true);
+                break;
+            }
+            apply(record, position);
+            position += record.limit();
+        }
+        size = position;
+    }
+
+    /**
+     * Returns the length the header at a position gives its record, which
+     * may run past the end of the log, {@code -1} if the header itself does
+     * not fit, or {@code 0} if it makes no sense.
+     */
+    private long recordLength(long position, long end) throws IOException {
+        if (end - position < HEADER_LENGTH + CRC_LENGTH)
+            return -1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(channel, header, position);
+        byte type = header.get(0);
+        int keyLength = header.getShort(1) & 0xffff;
+        int eTagLength = header.getShort(3) & 0xffff;
+        int contentLength = header.getInt(5);
+        if ((type != PUT && type != DELETE) || contentLength < 0)
+            return 0;
+        return (long) HEADER_LENGTH + keyLength + eTagLength + contentLength + CRC_LENGTH;
+    }
+
+    /**
+     * Reads the record at a position, or returns {@code null} if it fails
+     * its checksum.
+     */
+    private ByteBuffer readRecord(long position, long length) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate((int) length);
+        readFully(channel, record, position);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.limit() - CRC_LENGTH);
+        if ((int) crc.getValue() != record.getInt(record.limit() - CRC_LENGTH))
+            return null;
+        return record;
+    }
+
+    /**
+     * Tells whether a bad record at a position is the last append, torn by a
+     * crash: its header is cut short, it runs to or past the end of the log,
+     * or nothing but the zeros a file system may leave follows it.
+     */
+    private boolean isTornTail(long position, long length, long end) throws IOException {
+        if (length < 0 || length >= end - position)
+            return true;
+        ByteBuffer rest = ByteBuffer.allocate(8192);
+        for (long at = position; at < end; at += rest.limit()) {
+            rest.clear().limit((int) Math.min(rest.capacity(), end - at));
+            readFully(channel, rest, at);
+            for (int i = 0; i < rest.limit(); i++) {
+                if (rest.get(i) != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void apply(ByteBuffer record, long position) {
+        int keyLength = record.getShort(1) & 0xffff;
+        int eTagLength = record.getShort(3) & 0xffff;
+        int contentLength = record.getInt(5);
+        String key = new String(record.array(), HEADER_LENGTH, keyLength, StandardCharsets.UTF_8);
+
+        Entry previous;
+        if (record.get(0) == PUT) {
+            String eTag = new String(record.array(), HEADER_LENGTH + keyLength, eTagLength, StandardCharsets.UTF_8);
+            Entry entry = new Entry(position, record.limit(), HEADER_LENGTH + keyLength + eTagLength,
+                    contentLength, eTag);
+            previous = index.put(key, entry);
+            liveSize += entry.length;
+        } else {
+            previous = index.remove(key);
+        }
+        if (previous != null)
+            liveSize -= previous.length;
+    }
+
+    private void append(byte type, String key, String eTag, byte[] content, int offset, int length)
+            throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] eTagBytes = eTag.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + keyBytes.length + eTagBytes.length
+                + length + CRC_LENGTH);
+        record.put(type)
+                .putShort((short) keyBytes.length)
+                .putShort((short) eTagBytes.length)
+                .putInt(length)
+                .put(keyBytes)
+                .put(eTagBytes)
+                .put(content, offset, length);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        try {
+            writeFully(channel, record, size);
+            if (sync)
+                channel.force(false);
+        } catch (IOException e) {
+            // Drop whatever part of the record made it, so it is not mistaken
+            // for the start of the next one
+            channel.truncate(size);
+            throw e;
+        }
+        apply(record, size);
+        size += record.limit();
+    }
+
+    private void compactIfWasteful() throws IOException {
+        if (size < MIN_COMPACTION_SIZE || liveSize * 2 > size)
+            return;
+
+        long start = System.currentTimeMillis();
+        long before = size;
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        Map<String, Entry> moved = new HashMap<>();
+        long position = 0;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, Entry> live : index.entrySet()) {
+                Entry entry = live.getValue();
+                ByteBuffer record = ByteBuffer.allocate(entry.length);
+                readFully(channel, record, entry.offset);
+                record.flip();
+                writeFully(out, record, position);
+                moved.put(live.getKey(), entry.movedTo(position));
+                position += entry.length;
+            }
+            out.force(true);
+        }
+
+        Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.putAll(moved);
+        size = position;
+        liveSize = position;
+        logger.info("Compacted repository log {} from {} to {} bytes in {} ms",
+                file, before, size, System.currentTimeMillis() - start);
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the rename still happened
+            logger.debug("Could not sync directory {}: {}", file.getParent(), e.getMessage());
+        }
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            // Held by another store in this process
+            return false;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new EOFException("Unexpected end of repository log");
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining())
+            channel.write(buffer, start + buffer.position());
+    }
+
+    private static String eTag(byte[] content, int offset, int length) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            md5.update(content, offset, length);
+            return BaseEncoding.base16().lowerCase().encode(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final long offset;
+        private final int length;
+        private final long contentOffset;
+        private final int contentLength;
+        private final String eTag;
+
+        private Entry(long offset, int length, int contentStart, int contentLength, String eTag) {
+            this.offset = offset;
+            this.length = length;
+            this.contentOffset = offset + contentStart;
+            this.contentLength = contentLength;
+            this.eTag = eTag;
+        }
+
+        private Entry movedTo(long offset) {
+            return new Entry(offset, length, (int) (contentOffset - this.offset), contentLength, eTag);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * A growable buffer an encoded record is written into, whose content can be
+ * uploaded or stored without being copied first.
+ *
+ * Buffers are reused by the thread that obtained them from
+ * {@link RecordCodec#encodeToBuffer}, so the content is only valid until that
+ * thread encodes its next record.
+ */
+public final class RecordBuffer extends ByteArrayOutputStream {
+    RecordBuffer(int size) {
+        super(size);
+    }
+
+    /**
+     * The backing array; only the first {@link #size()} bytes are content.
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    /**
+     * Reads the content without copying it.
+     */
+    public InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+}
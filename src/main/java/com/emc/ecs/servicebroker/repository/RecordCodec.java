@@ -0,0 +1,162 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes repository records.
+ *
+ * Records are written as JSON or as Smile, a binary equivalent of JSON that
+ * drops the repeated field names, and can be gzip compressed on top.  Reading
+ * looks at the first bytes of a record to tell how it was written, so records
+ * written in any format can be read whichever format is configured, and a
+ * repository moves to a new format as its records are saved again.
+ *
+ * Readers and writers are created once per record type, and records are
+ * encoded into a buffer each thread keeps between saves, so encoding a
+ * record allocates little more than the objects Jackson needs to walk it.
+ */
+public class RecordCodec {
+    public enum Format {
+        JSON, SMILE
+    }
+
+    // Smile documents start with ":)\n"
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    static final int INITIAL_BUFFER_SIZE = 4096;
+    // A buffer grown past this by an unusually large record is not kept
+    static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectReader> jsonReaders = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectReader> smileReaders = new ConcurrentHashMap<>();
+    private final ThreadLocal<RecordBuffer> buffers = ThreadLocal.withInitial(() -> new RecordBuffer(INITIAL_BUFFER_SIZE));
+    private final Format format;
+    private final boolean compress;
+
+    public RecordCodec() {
+        this(Format.JSON, false);
+    }
+
+    /**
+     * @param format   format records are written in
+     * @param compress whether written records are gzip compressed
+     */
+    public RecordCodec(Format format, boolean compress) {
+        this.format = format;
+        this.compress = compress;
+    }
+
+    public RecordCodec registerModule(Module module) {
+        json.registerModule(module);
+        smile.registerModule(module);
+        writers.clear();
+        jsonReaders.clear();
+        smileReaders.clear();
+        return this;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * Encodes a record into a new array of exactly its size.
+     */
+    public byte[] encode(Object record) throws IOException {
+        RecordBuffer buffer = encodeToBuffer(record);
+        return Arrays.copyOf(buffer.array(), buffer.size());
+    }
+
+    /**
+     * Encodes a record into this thread's buffer, which stays valid until
+     * the thread encodes another record.
+     */
+    public RecordBuffer encodeToBuffer(Object record) throws IOException {
+        RecordBuffer buffer = buffers.get();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = new RecordBuffer(INITIAL_BUFFER_SIZE);
+            buffers.set(buffer);
+        }
+        buffer.reset();
+
+        ObjectWriter writer = writers.computeIfAbsent(record.getClass(),
+                type -> (format == Format.SMILE ? smile : json).writerFor(type));
+        if (compress) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                writer.writeValue(gzip, record);
+            }
+        } else {
+            writer.writeValue(buffer, record);
+        }
+        return buffer;
+    }
+
+    public <T> T decode(byte[] record, Class<T> type) throws IOException {
+        if (isGzip(record, record.length))
+            return decode(new GZIPInputStream(new ByteArrayInputStream(record)), type);
+        return reader(isSmile(record, record.length), type).readValue(record);
+    }
+
+    /**
+     * Reads a record in whichever format it was written.  A JSON record is
+     * read no further than the end of its JSON.
+     */
+    public <T> T decode(InputStream record, Class<T> type) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(record, SMILE_HEADER.length);
+        byte[] head = new byte[SMILE_HEADER.length];
+        int length = readHead(input, head);
+        input.unread(head, 0, length);
+
+        if (isGzip(head, length))
+            return decode(new GZIPInputStream(input), type);
+        return reader(isSmile(head, length), type).readValue(input);
+    }
+
+    private ObjectReader reader(boolean isSmile, Class<?> type) {
+        return isSmile ? smileReaders.computeIfAbsent(type, smile::readerFor)
+                : jsonReaders.computeIfAbsent(type, json::readerFor);
+    }
+
+    private static boolean isGzip(byte[] head, int length) {
+        return length >= 2 && (head[0] & 0xff) == GZIP_MAGIC_1 && (head[1] & 0xff) == GZIP_MAGIC_2;
+    }
+
+    private static boolean isSmile(byte[] head, int length) {
+        return length >= SMILE_HEADER.length && head[0] == SMILE_HEADER[0] && head[1] == SMILE_HEADER[1]
+                && head[2] == SMILE_HEADER[2];
+    }
+
+    private static int readHead(InputStream input, byte[] head) throws IOException {
+        int length = 0;
+        while (length < head.length) {
+            int read = input.read(head, length, head.length - length);
+            if (read < 0)
+                break;
+            length += read;
+        }
+        return length;
+    }
+}
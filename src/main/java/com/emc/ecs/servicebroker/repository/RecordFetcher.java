@@ -0,0 +1,189 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records of a repository listing, several at a time.
+ *
+ * At most the configured number of records are read at once, and a stream
+ * reads no further ahead than twice that, so only a page of keys and a
+ * handful of records are ever held however many there are.  Records come
+ * back in key order; any deleted since they were listed are left out.
+ */
+public final class RecordFetcher implements Closeable {
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final String name;
+    private final int concurrency;
+    private ExecutorService executor;
+
+    @FunctionalInterface
+    interface Fetch<T> {
+        /**
+         * @return the record, or {@code null} if it no longer exists
+         */
+        T fetch(String key) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Pages {
+        RepositoryPage<String> list(String pageToken) throws IOException;
+    }
+
+    RecordFetcher(String name, int concurrency) {
+        this.name = name;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Reads the records of one page of keys.
+     */
+    <T> RepositoryPage<T> fetch(RepositoryPage<String> keys, Fetch<T> fetch) throws IOException {
+        List<T> records = new ArrayList<>(keys.getItems().size());
+        RepositoryPage<String> only = new RepositoryPage<>(keys.getItems(), null);
+        try (Stream<T> stream = stream(token -> only, fetch)) {
+            stream.forEach(records::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new RepositoryPage<>(records, keys.getNextPageToken());
+    }
+
+    /**
+     * Streams the records of every page of keys, listing each page only
+     * once the previous one has been read.  Closing the stream cancels any
+     * reads still in progress.
+     *
+     * @throws UncheckedIOException from the stream if a listing or read fails
+     */
+    <T> Stream<T> stream(Pages pages, Fetch<T> fetch) {
+        Reader<T> reader = new Reader<>(pages, fetch);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::cancel);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(concurrency, r -> {
+                Thread thread = new Thread(r, "ecs-repository-" + name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private final class Reader<T> implements Iterator<T> {
+        private final Pages pages;
+        private final Fetch<T> fetch;
+        private final Deque<String> keys = new ArrayDeque<>();
+        private final Deque<Future<T>> reads = new ArrayDeque<>();
+        private String pageToken;
+        private boolean listed;
+        private T next;
+
+        private Reader(Pages pages, Fetch<T> fetch) {
+            this.pages = pages;
+            this.fetch = fetch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                startReads();
+                if (reads.isEmpty())
+                    return false;
+                next = await(reads.poll());
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            T record = next;
+            next = null;
+            return record;
+        }
+
+        private void startReads() {
+            while (reads.size() < concurrency * 2) {
+                if (keys.isEmpty() && !listNextPage())
+                    return;
+                String key = keys.poll();
+                reads.add(getExecutor().submit(() -> fetch.fetch(key)));
+            }
+        }
+
+        private boolean listNextPage() {
+            while (keys.isEmpty() && !listed) {
+                RepositoryPage<String> page;
+                try {
+                    page = pages.list(pageToken);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                keys.addAll(page.getItems());
+                pageToken = page.getNextPageToken();
+                listed = pageToken == null;
+            }
+            return !keys.isEmpty();
+        }
+
+        private T await(Future<T> read) {
+            try {
+                return read.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted reading " + name + " records"));
+            } catch (ExecutionException e) {
+                cancel();
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw new UncheckedIOException((IOException) cause);
+                if (cause instanceof UncheckedIOException)
+                    throw (UncheckedIOException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        private void cancel() {
+            reads.forEach(read -> read.cancel(true));
+            reads.clear();
+            keys.clear();
+            listed = true;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Finds the records of a repository by the value of a field without
+ * reading them all.
+ *
+ * Each indexed value of a record is kept as an empty object named
+ * {@code <repository>-index/<field>/<value>/<id>}, so the records with a
+ * value are found by listing that prefix.  As the store cannot write several
+ * objects at once, the entries are written before the record itself, and
+ * are only removed once the record no longer has the value.  An entry can
+ * therefore point at a record that has since changed or been deleted, but a
+ * saved record is never missing from the index.  Every record found through
+ * the index is checked against the value, and entries that no longer match
+ * are removed as they are found.  Before an entry is removed the record is
+ * read again from the store, and entries younger than {@link #ENTRY_GRACE}
+ * are kept, since the save that wrote one may not have written its record
+ * yet.
+ *
+ * The entries of the records last read or saved are remembered along with
+ * their ETags, so saving a record over the copy it was read from writes only
+ * the entries of values that changed.
+ *
+ * A verifier also runs in the background on one broker replica at a time,
+ * adding the entries of records saved before they were indexed and removing
+ * any that no longer match.
+ */
+final class RecordIndex<T> implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RecordIndex.class);
+
+    /**
+     * Milliseconds an entry is kept even if its record does not match, as
+     * the save that wrote it may still be writing the record
+     */
+    static final long ENTRY_GRACE = 60000;
+
+    /**
+     * Milliseconds after starting that the verifier first runs, or the
+     * interval if that is shorter
+     */
+    static final long VERIFY_DELAY = 10 * 60 * 1000;
+
+    private static final int MAX_TRACKED = 10000;
+
+    private final RepositoryStore store;
+    private final String name;
+    private final Function<T, String> id;
+    private final Function<T, String> eTag;
+    private final Map<String, Function<T, String>> fields = new LinkedHashMap<>();
+    private final RecordFetcher.Fetch<T> find;
+    private final RecordFetcher.Fetch<T> load;
+    private final Supplier<Stream<T>> records;
+    private final RecordFetcher fetcher;
+    private final RepositoryLease lease;
+    // Entry keys of records by ID, as of the ETag they were read or saved with
+    private final Cache<String, Tracked> tracked = CacheBuilder.newBuilder().maximumSize(MAX_TRACKED).build();
+    private long entryGrace = ENTRY_GRACE;
+    private ScheduledExecutorService verifier;
+
+    /**
+     * @param name    name of the repository, which the entry keys include
+     * @param id      the ID of a record
+     * @param eTag    the ETag of the stored copy a record was read from
+     * @param find    reads a record by ID, possibly from a cache
+     * @param load    reads a record by ID from the store itself
+     * @param records streams every record from the store itself, for the
+     *                verifier
+     * @param fetcher reads the records found
+     */
+    RecordIndex(RepositoryStore store, String name, Function<T, String> id, Function<T, String> eTag,
+                RecordFetcher.Fetch<T> find, RecordFetcher.Fetch<T> load, Supplier<Stream<T>> records,
+                RecordFetcher fetcher) {
+        this.store = store;
+        this.name = name;
+        this.id = id;
+        this.eTag = eTag;
+        this.find = find;
+        this.load = load;
+        this.records = records;
+        this.fetcher = fetcher;
+        this.lease = new RepositoryLease(store, name + "-index.lease", RepositoryLease.LOCAL_OWNER);
+    }
+
+    /**
+     * Indexes records by a field, which is left out for records without it.
+     */
+    RecordIndex<T> field(String field, Function<T, String> value) {
+        fields.put(field, value);
+        return this;
+    }
+
+    /**
+     * Sets how long entries are kept even if their record does not match,
+     * {@link #ENTRY_GRACE} by default.
+     */
+    RecordIndex<T> entryGrace(long entryGrace) {
+        this.entryGrace = entryGrace;
+        return this;
+    }
+
+    /**
+     * Writes the entries of a record, which must be done before the record
+     * itself is.  Entries the stored copy it was read from already has are
+     * not written again.
+     */
+    void add(T record) throws IOException {
+        Tracked previous = tracked.getIfPresent(id.apply(record));
+        String readETag = eTag.apply(record);
+        for (String key : getKeys(record)) {
+            if (previous == null || readETag == null || !readETag.equals(previous.eTag)
+                    || !previous.keys.contains(key))
+                store.put(key, stamp(), null);
+        }
+    }
+
+    /**
+     * Remembers the entries of a record as stored under its ETag, once it
+     * has been read or saved.
+     */
+    void track(T record) {
+        String recordETag = eTag.apply(record);
+        if (recordETag != null)
+            tracked.put(id.apply(record), new Tracked(recordETag, getKeys(record)));
+    }
+
+    /**
+     * Reads every record with a value.
+     */
+    List<T> find(String field, String value) throws IOException {
+        if (!fields.containsKey(field))
+            throw new IllegalArgumentException("No " + name + " index on " + field);
+        String prefix = getPrefix(field, value);
+        List<String> keys = store.list(prefix);
+        return fetcher.fetch(new RepositoryPage<>(keys, null), key -> {
+            String recordId = decode(key.substring(prefix.length()));
+            T record = find.fetch(recordId);
+            if (matches(record, field, value))
+                return record;
+            // What was found may be a cached copy older than the entry
+            record = load.fetch(recordId);
+            if (matches(record, field, value))
+                return record;
+            removeIfOld(key);
+            return null;
+        }).getItems();
+    }
+
+    /**
+     * Starts verifying the index every interval, unless the interval is 0,
+     * on whichever broker replica holds the verifier's lease.  The first
+     * run waits for {@link #VERIFY_DELAY} or the interval, whichever is
+     * shorter, so that it does not add to the work of starting up.
+     */
+    synchronized void start(long interval) {
+        if (interval <= 0 || verifier != null)
+            return;
+        verifier = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ecs-repository-" + name + "-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        verifier.scheduleWithFixedDelay(() -> {
+            try {
+                // Held across runs, so outlasts the wait for the next one
+                if (lease.tryAcquire(interval * 2))
+                    verify();
+                else
+                    logger.debug("The {} index is verified by another broker replica", name);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Verifying the {} index failed, it will be retried", name, e);
+            }
+        }, Math.min(interval, VERIFY_DELAY), interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds the missing entries of every record, and removes the entries of
+     * records that no longer match.
+     *
+     * @return how many entries were added or removed
+     */
+    int verify() throws IOException {
+        long start = System.currentTimeMillis();
+        Set<String> unmatched = new HashSet<>(store.list(getPrefix()));
+        int added = 0;
+        try (Stream<T> stream = records.get()) {
+            for (T record : (Iterable<T>) stream::iterator) {
+                for (String key : getKeys(record)) {
+                    if (!unmatched.remove(key)) {
+                        store.put(key, stamp(), null);
+                        added++;
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Records may have been saved since they were streamed, so read each
+        // again rather than remove an entry that has only just been written
+        int removed = 0;
+        for (String key : unmatched) {
+            String[] parts = key.substring(getPrefix().length()).split("/");
+            if (parts.length != 3 || !fields.containsKey(parts[0]))
+                continue;
+            T record = load.fetch(decode(parts[2]));
+            if (!matches(record, parts[0], decode(parts[1])) && removeIfOld(key))
+                removed++;
+        }
+        logger.info("Verified the {} index in {} ms, added {} and removed {} entries", name,
+                System.currentTimeMillis() - start, added, removed);
+        return added + removed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (verifier != null) {
+            verifier.shutdownNow();
+            verifier = null;
+            try {
+                lease.release();
+            } catch (IOException e) {
+                logger.warn("Could not release the {} index verifier lease: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private boolean matches(T record, String field, String value) {
+        return record != null && value.equals(fields.get(field).apply(record));
+    }
+
+    /**
+     * Deletes an entry that no longer matches its record, unless it was
+     * written too recently to tell.
+     *
+     * @return whether the entry was deleted
+     */
+    private boolean removeIfOld(String key) throws IOException {
+        StoredObject entry = store.get(key, null);
+        if (entry == null)
+            return false;
+        long written;
+        try (InputStream content = entry.getContent()) {
+            written = parseStamp(ByteStreams.toByteArray(content));
+        }
+        if (System.currentTimeMillis() - written < entryGrace) {
+            logger.debug("Keeping {} index entry {} written {} ms ago", name, key,
+                    System.currentTimeMillis() - written);
+            return false;
+        }
+        logger.debug("Removing {} index entry {} of a record that no longer matches", name, key);
+        store.delete(key);
+        return true;
+    }
+
+    private Set<String> getKeys(T record) {
+        Set<String> keys = new HashSet<>();
+        for (Map.Entry<String, Function<T, String>> field : fields.entrySet()) {
+            String value = field.getValue().apply(record);
+            if (value != null)
+                keys.add(getPrefix(field.getKey(), value) + encode(Objects.requireNonNull(id.apply(record))));
+        }
+        return keys;
+    }
+
+    // Entries hold the time they were written; those written before that
+    // was recorded are empty, and taken to be old
+    private static byte[] stamp() {
+        return Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long parseStamp(byte[] content) {
+        try {
+            return content.length == 0 ? 0 : Long.parseLong(new String(content, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private String getPrefix() {
+        return name + "-index/";
+    }
+
+    private String getPrefix(String field, String value) {
+        return getPrefix() + field + "/" + encode(value) + "/";
+    }
+
+    // Values and IDs are escaped so that they cannot contain the separator
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Tracked {
+        private final String eTag;
+        private final Set<String> keys;
+
+        private Tracked(String eTag, Set<String> keys) {
+            this.eTag = eTag;
+            this.keys = keys;
+        }
+    }
+}
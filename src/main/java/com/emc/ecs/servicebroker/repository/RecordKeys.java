@@ -0,0 +1,109 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the records of a repository are kept in its store.
+ *
+ * Records used to all be kept under one prefix, as
+ * {@code service-instance/<id>.json}.  With shards configured, they are
+ * instead spread by a hash of their ID across that many prefixes led by the
+ * shard number, as {@code 0a/service-instance/<id>.json}, which keeps each
+ * listing small and lets the shards be listed independently.  Records still
+ * under the legacy key are moved by a {@link KeyMigration}.
+ *
+ * The number of shards must not change once records have been written
+ * sharded, as they would no longer be found.
+ */
+public final class RecordKeys {
+    private static final String SUFFIX = ".json";
+
+    private final String name;
+    private final int shards;
+    private final String shardFormat;
+
+    /**
+     * @param name   name of the repository, which its keys include
+     * @param shards number of shards, or 0 to keep every record under the
+     *               legacy prefix
+     */
+    public RecordKeys(String name, int shards) {
+        if (shards < 0)
+            throw new IllegalArgumentException("Number of repository shards cannot be negative: " + shards);
+        this.name = name;
+        this.shards = shards;
+        int digits = shards <= 1 ? 1 : Integer.toHexString(shards - 1).length();
+        this.shardFormat = "%0" + digits + "x/";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isSharded() {
+        return shards > 0;
+    }
+
+    /**
+     * The key a record is written under.
+     */
+    public String getKey(String id) {
+        if (!isSharded())
+            return getLegacyKey(id);
+        int shard = Math.floorMod(Hashing.murmur3_32().hashString(id, StandardCharsets.UTF_8).asInt(), shards);
+        return getShardPrefix(shard) + id + SUFFIX;
+    }
+
+    /**
+     * The key a record was written under before sharding.
+     */
+    public String getLegacyKey(String id) {
+        return getLegacyPrefix() + id + SUFFIX;
+    }
+
+    public String getLegacyPrefix() {
+        return name + "/";
+    }
+
+    /**
+     * The prefixes records are written under, in key order.
+     */
+    public List<String> getPrefixes() {
+        if (!isSharded())
+            return Collections.singletonList(getLegacyPrefix());
+        List<String> prefixes = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++)
+            prefixes.add(getShardPrefix(shard));
+        return prefixes;
+    }
+
+    /**
+     * Every prefix a record may be found under, in key order: the shards,
+     * then the legacy prefix of records not yet moved.
+     */
+    public List<String> getAllPrefixes() {
+        List<String> prefixes = new ArrayList<>(getPrefixes());
+        if (isSharded())
+            prefixes.add(getLegacyPrefix());
+        return prefixes;
+    }
+
+    /**
+     * The ID of the record with a key, or {@code null} if it is not the key
+     * of a record.
+     */
+    public String getId(String key) {
+        if (!key.endsWith(SUFFIX))
+            return null;
+        return key.substring(key.lastIndexOf('/') + 1, key.length() - SUFFIX.length());
+    }
+
+    private String getShardPrefix(int shard) {
+        return String.format(shardFormat, shard) + name + "/";
+    }
+}
@@ -0,0 +1,137 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the serialized form of recently used repository objects together
+ * with their ETags.
+ *
+ * An entry younger than the time-to-live is trusted as is.  An older entry
+ * is revalidated with a conditional GET, which costs a round-trip but no
+ * transfer when the object has not changed.  The cache is bounded by the
+ * total size of the objects it holds, and callers get their own copy of an
+ * object since they are free to modify it.
+ */
+public class RepositoryCache implements MeterBinder {
+    public static final long DEFAULT_TTL = 5000;
+    public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Fetches an object, conditionally when an ETag is given.
+     */
+    @FunctionalInterface
+    interface Loader {
+        /**
+         * @param ifNoneMatch ETag of the cached copy, or {@code null}
+         * @return the object, or {@code null} if it still matches the ETag
+         */
+        Versioned load(String ifNoneMatch) throws IOException;
+    }
+
+    static final class Versioned {
+        private final String eTag;
+        private final byte[] body;
+        private volatile long validatedAt = System.nanoTime();
+
+        Versioned(String eTag, byte[] body) {
+            this.eTag = eTag;
+            this.body = body;
+        }
+
+        String getETag() {
+            return eTag;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final Cache<String, Versioned> entries;
+    private volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    /**
+     * @param name     names the repository in metrics
+     * @param ttl      milliseconds an entry is trusted before revalidation
+     * @param maxBytes upper bound on the total size of cached objects
+     */
+    public RepositoryCache(String name, long ttl, long maxBytes) {
+        this.name = name;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Versioned value) -> key.length() + value.body.length)
+                .build();
+    }
+
+    /**
+     * Returns the serialized object and its ETag, loading or revalidating it
+     * as needed.
+     */
+    Versioned get(String key, Loader loader) throws IOException {
+        Versioned cached = entries.getIfPresent(key);
+        if (cached != null && System.nanoTime() - cached.validatedAt < ttlNanos) {
+            count("hit");
+            return cached;
+        }
+
+        Versioned loaded = loader.load(cached != null ? cached.eTag : null);
+        if (loaded == null && cached != null) {
+            count("revalidated");
+            cached.validatedAt = System.nanoTime();
+            return cached;
+        }
+        count("miss");
+        if (loaded.eTag != null)
+            entries.put(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Records an object just written, so the next read need not fetch it.
+     */
+    void put(String key, String eTag, byte[] body) {
+        if (eTag == null) {
+            entries.invalidate(key);
+        } else {
+            entries.put(key, new Versioned(eTag, body));
+        }
+    }
+
+    void invalidate(String key) {
+        entries.invalidate(key);
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        Gauge.builder("ecs.repository.cache.size", this, RepositoryCache::size)
+                .description("Repository objects cached")
+                .tag("repository", name)
+                .register(registry);
+    }
+
+    private void count(String result) {
+        Counter.builder("ecs.repository.cache.requests")
+                .description("Repository reads by whether the cached copy was used")
+                .tag("repository", name)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,15 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a save is rejected because the stored object changed since it
+ * was read.
+ */
+public class RepositoryConflictException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public RepositoryConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,112 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.client.apache4.ApacheHttpClient4;
+import com.sun.jersey.client.apache4.ApacheHttpClient4Handler;
+import com.sun.jersey.client.apache4.config.ApacheHttpClient4Config;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.pool.PoolStats;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.List;
+
+/**
+ * The pool of connections to the repository endpoint and the Apache client
+ * handler that uses it.
+ *
+ * The object client is built on Jersey 1 and the Apache client it ships
+ * with, so the pool is the older, deprecated kind that client accepts.  The
+ * deprecated types are kept to this class and named in full rather than
+ * imported, so their warnings are suppressed here alone.
+ */
+@SuppressWarnings("deprecation")
+final class RepositoryConnectionPool {
+    private final org.apache.http.impl.conn.PoolingClientConnectionManager manager;
+
+    RepositoryConnectionPool(BrokerConfig broker) {
+        org.apache.http.conn.scheme.SchemeRegistry schemes = new org.apache.http.conn.scheme.SchemeRegistry();
+        schemes.register(new org.apache.http.conn.scheme.Scheme("http", 80,
+                org.apache.http.conn.scheme.PlainSocketFactory.getSocketFactory()));
+        schemes.register(new org.apache.http.conn.scheme.Scheme("https", 443, buildSslSocketFactory(broker)));
+
+        manager = new org.apache.http.impl.conn.PoolingClientConnectionManager(schemes);
+        manager.setMaxTotal(broker.getRepositoryMaxConnections());
+        // Every request goes to the one repository endpoint
+        manager.setDefaultMaxPerRoute(broker.getRepositoryMaxConnections());
+    }
+
+    /**
+     * Builds the handler the S3 client sends its requests through, drawing
+     * connections from this pool.
+     */
+    ApacheHttpClient4Handler buildClientHandler(BrokerConfig broker) {
+        DefaultClientConfig clientConfig = new DefaultClientConfig();
+        clientConfig.getProperties().put(ApacheHttpClient4Config.PROPERTY_CONNECTION_MANAGER, manager);
+        clientConfig.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, broker.getRepositoryConnectTimeout());
+        ApacheHttpClient4Handler handler = ApacheHttpClient4.create(clientConfig).getClientHandler();
+
+        org.apache.http.impl.client.AbstractHttpClient httpClient =
+                (org.apache.http.impl.client.AbstractHttpClient) handler.getHttpClient();
+        // Wait no longer for a pooled connection than for a new one
+        httpClient.getParams().setLongParameter(org.apache.http.client.params.ClientPNames.CONN_MANAGER_TIMEOUT,
+                broker.getRepositoryConnectTimeout());
+        if (broker.isRepositorySmartClient()) {
+            // As the object client does itself, so a failed request is retried
+            // on another node rather than the same one
+            httpClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+        }
+        long keepAlive = broker.getRepositoryKeepAlive();
+        httpClient.setKeepAliveStrategy((response, context) -> {
+            long offered = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return offered > 0 ? Math.min(offered, keepAlive) : keepAlive;
+        });
+        return handler;
+    }
+
+    PoolStats getTotalStats() {
+        return manager.getTotalStats();
+    }
+
+    void shutdown() {
+        manager.shutdown();
+    }
+
+    private static org.apache.http.conn.ssl.SSLSocketFactory buildSslSocketFactory(BrokerConfig broker) {
+        List<String> protocols = broker.getRepositoryTlsProtocols();
+        if (broker.getRepositoryCertificate() == null && protocols == null)
+            return org.apache.http.conn.ssl.SSLSocketFactory.getSocketFactory();
+        try {
+            SSLContext sslContext;
+            if (broker.getRepositoryCertificate() != null) {
+                Certificate caCert = CertificateFactory.getInstance("X.509").generateCertificate(
+                        new ByteArrayInputStream(broker.getRepositoryCertificate().getBytes(StandardCharsets.UTF_8)));
+                KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                keyStore.load(null);
+                keyStore.setCertificateEntry("caCert", caCert);
+                TrustManagerFactory trustMgrFactory = TrustManagerFactory
+                        .getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                trustMgrFactory.init(keyStore);
+                sslContext = SSLContext.getInstance("TLS");
+                sslContext.init(null, trustMgrFactory.getTrustManagers(), null);
+            } else {
+                sslContext = SSLContext.getDefault();
+            }
+            return new org.apache.http.conn.ssl.SSLSocketFactory(sslContext,
+                    protocols == null ? null : protocols.toArray(new String[0]), null,
+                    org.apache.http.conn.ssl.SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("Could not set up TLS for the repository endpoint", e);
+        }
+    }
+}
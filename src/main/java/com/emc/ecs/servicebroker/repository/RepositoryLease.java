@@ -0,0 +1,96 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A lease on a task, kept as an object in the repository so that of several
+ * broker replicas only one does the task at a time.
+ *
+ * The object names the owner and when the lease expires.  It is taken and
+ * renewed with conditional writes, so of replicas racing for it only one
+ * succeeds, and another may take it over once it expires without being
+ * renewed.  Replicas are assumed to have roughly synchronized clocks.
+ */
+final class RepositoryLease {
+    /**
+     * Names this broker process as the owner of the leases it takes
+     */
+    static final String LOCAL_OWNER = ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    private final RepositoryStore store;
+    private final String key;
+    private final String owner;
+
+    RepositoryLease(RepositoryStore store, String key, String owner) {
+        this.store = store;
+        this.key = key;
+        this.owner = owner;
+    }
+
+    /**
+     * Takes or renews the lease for a time, unless another owner holds it
+     * and it has not expired.
+     *
+     * @return whether this owner now holds the lease
+     */
+    boolean tryAcquire(long duration) throws IOException {
+        byte[] claim = (owner + "\n" + (System.currentTimeMillis() + duration)).getBytes(StandardCharsets.UTF_8);
+        StoredObject current = store.get(key, null);
+        try {
+            if (current == null) {
+                store.putIfAbsent(key, claim);
+                return true;
+            }
+            Holder holder = read(current);
+            if (!owner.equals(holder.owner) && holder.expiresAt > System.currentTimeMillis())
+                return false;
+            store.put(key, claim, current.getETag());
+            return true;
+        } catch (RepositoryConflictException e) {
+            // Taken or renewed by another owner meanwhile
+            return false;
+        }
+    }
+
+    /**
+     * Gives up the lease if this owner holds it, so another may take it
+     * without waiting for it to expire.
+     */
+    void release() throws IOException {
+        StoredObject current = store.get(key, null);
+        if (current != null && owner.equals(read(current).owner))
+            store.delete(key);
+    }
+
+    private static Holder read(StoredObject object) throws IOException {
+        String content;
+        try (InputStream input = object.getContent()) {
+            content = new String(ByteStreams.toByteArray(input), StandardCharsets.UTF_8);
+        }
+        String[] parts = content.split("\n", 2);
+        long expiresAt;
+        try {
+            expiresAt = parts.length < 2 ? 0 : Long.parseLong(parts[1].trim());
+        } catch (NumberFormatException e) {
+            expiresAt = 0;
+        }
+        return new Holder(parts[0], expiresAt);
+    }
+
+    private static final class Holder {
+        private final String owner;
+        private final long expiresAt;
+
+        private Holder(String owner, long expiresAt) {
+            this.owner = owner;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
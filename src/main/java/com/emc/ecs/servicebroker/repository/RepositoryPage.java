@@ -0,0 +1,28 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.util.List;
+
+/**
+ * One page of a listing, in key order, and where the next page starts.
+ */
+public final class RepositoryPage<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public RepositoryPage(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Token to pass to get the next page, or {@code null} if this is the
+     * last one.
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+}
@@ -0,0 +1,87 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where the repositories keep their serialized records.
+ *
+ * Every stored object has an ETag that changes whenever the object does,
+ * which is what conditional reads and writes are checked against.
+ */
+public interface RepositoryStore extends Closeable {
+
+    /**
+     * The most keys S3 lists at once.
+     */
+    int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * Reads an object.
+     *
+     * @param ifNoneMatch ETag of a copy the caller already has, or {@code null}
+     * @return the object, {@link StoredObject#notModified} if it still matches
+     * {@code ifNoneMatch}, or {@code null} if there is no such object
+     */
+    StoredObject get(String key, String ifNoneMatch) throws IOException;
+
+    /**
+     * Writes an object.
+     *
+     * @param ifMatch ETag the stored object must still have, or {@code null}
+     *                to write unconditionally
+     * @return the ETag of the written object
+     * @throws RepositoryConflictException if the stored object does not match
+     *                                     {@code ifMatch}
+     */
+    default String put(String key, byte[] content, String ifMatch) throws IOException {
+        return put(key, content, 0, content.length, ifMatch);
+    }
+
+    /**
+     * Writes an object from part of an array, which is not retained.
+     *
+     * @see #put(String, byte[], String)
+     */
+    String put(String key, byte[] content, int offset, int length, String ifMatch) throws IOException;
+
+    /**
+     * Writes an object only if there is none with the key yet.
+     *
+     * @return the ETag of the written object
+     * @throws RepositoryConflictException if the object already exists
+     */
+    String putIfAbsent(String key, byte[] content) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Lists the keys of all objects starting with a prefix.
+     */
+    default List<String> list(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        String pageToken = null;
+        do {
+            RepositoryPage<String> page = list(prefix, pageToken, DEFAULT_PAGE_SIZE);
+            keys.addAll(page.getItems());
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return keys;
+    }
+
+    /**
+     * Lists the keys of objects starting with a prefix a page at a time, in
+     * key order.
+     *
+     * @param pageToken token of the page to list, from the previous page, or
+     *                  {@code null} for the first page
+     * @param limit     most keys to list
+     */
+    RepositoryPage<String> list(String prefix, String pageToken, int limit) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,88 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+
+/**
+ * Used to create the {@link RepositoryStore} each repository keeps its
+ * records in, based on a given broker config, and to copy records over
+ * when switching from one kind of store to another.
+ */
+public class RepositoryStoreFactory {
+    private static final Logger logger = LoggerFactory.getLogger(RepositoryStoreFactory.class);
+
+    public static final String S3 = "s3";
+    public static final String LOCAL = "local";
+
+    @Autowired
+    private S3ClientFactory s3ClientFactory;
+
+    /**
+     * Opens the configured store for the records of one repository, kept
+     * under the given keys.  Any of its records that the store lacks are
+     * first copied in from the store named by
+     * {@link BrokerConfig#getRepositoryMigrateFrom}, if there is one.
+     */
+    public RepositoryStore getStore(BrokerConfig broker, RecordKeys keys) throws IOException, URISyntaxException {
+        RepositoryStore store = getStore(broker, broker.getRepositoryStore(), keys.getName());
+        String migrateFrom = broker.getRepositoryMigrateFrom();
+        if (migrateFrom != null && !migrateFrom.equalsIgnoreCase(broker.getRepositoryStore())) {
+            try (RepositoryStore source = getStore(broker, migrateFrom, keys.getName())) {
+                for (String prefix : keys.getAllPrefixes())
+                    migrate(source, store, prefix);
+            }
+        }
+        return store;
+    }
+
+    RepositoryStore getStore(BrokerConfig broker, String type, String name)
+            throws IOException, URISyntaxException {
+        if (S3.equalsIgnoreCase(type)) {
+            logger.info("Service repository bucket name: {}", broker.getPrefixedBucketName());
+            return new S3RepositoryStore(s3ClientFactory.getClient(broker), broker.getPrefixedBucketName());
+        } else if (LOCAL.equalsIgnoreCase(type)) {
+            if (broker.getRepositoryLocalPath() == null)
+                throw new IllegalStateException("broker.repository-local-path must be set to use a local repository");
+            return new LocalRepositoryStore(Paths.get(broker.getRepositoryLocalPath(), name + ".log"),
+                    broker.isRepositoryLocalSync());
+        }
+        throw new IllegalStateException("Unknown repository store: " + type);
+    }
+
+    /**
+     * Copies the records under a prefix that the target does not have yet.
+     * Records already in the target are left alone, so running this again,
+     * or after the broker has started writing to the target, is harmless.
+     *
+     * @return how many records were copied
+     */
+    static int migrate(RepositoryStore source, RepositoryStore target, String prefix) throws IOException {
+        int copied = 0;
+        int skipped = 0;
+        for (String key : source.list(prefix)) {
+            StoredObject existing = target.get(key, null);
+            if (existing != null) {
+                existing.getContent().close();
+                skipped++;
+                continue;
+            }
+            StoredObject object = source.get(key, null);
+            if (object == null)
+                continue;
+            try (InputStream content = object.getContent()) {
+                target.put(key, ByteStreams.toByteArray(content), null);
+            }
+            copied++;
+        }
+        logger.info("Migrated {} repository records under {}, {} were already present", copied, prefix, skipped);
+        return copied;
+    }
+}
@@ -0,0 +1,852 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.tool.BucketWipeResult;
+import com.emc.object.s3.S3Client;
+import com.emc.object.s3.S3Exception;
+import com.emc.object.s3.bean.AbstractDeleteResult;
+import com.emc.object.s3.bean.DeleteError;
+import com.emc.object.s3.bean.EncodingType;
+import com.emc.object.s3.bean.ListObjectsResult;
+import com.emc.object.s3.bean.S3Object;
+import com.emc.object.s3.request.DeleteObjectsRequest;
+import com.emc.object.s3.request.ListObjectsRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes every object in a bucket, recording its progress as a
+ * {@link BucketWipeJob} so that a wipe cut short by a restart carries on
+ * from where it got to.
+ *
+ * The bucket is listed a page at a time from the marker of the job, and
+ * the objects of each page are deleted in batches by a {@link WipeScheduler}
+ * shared by every wipe, which limits how many run at once.  Each batch is a
+ * single multi-object delete, of which a wipe keeps a bounded number in
+ * flight while it lists the next page.  Delete requests are let through a
+ * {@link WipeLimiter} shared by every wipe.  Keys a delete fails for are
+ * queued again after a random wait that doubles each time, rather than
+ * holding up a thread of the scheduler, and keys ECS throttles have more
+ * attempts than the rest, so that a busy ECS slows wipes down rather than
+ * failing them.
+ *
+ * While listing rather than deleting holds a wipe back, the rest of a
+ * listing is split off to list in parallel, at a point picked by
+ * {@link KeySpace}, until there are as many partitions as allowed or
+ * listing slows down.  Every checkpoint interval the marker of each
+ * partition is saved, but only once every key up to it has been deleted, so
+ * a resumed wipe never skips an object.  Deletes that failed are counted and
+ * the first few kept, so that the wipe still fails once it is resumed.
+ *
+ * A wipe is leased to the broker replica running it, renewed every
+ * checkpoint interval with a conditional write, so that while the replica
+ * runs no other resumes the wipe.  Once the lease expires, or is given up
+ * when the wipe is closed, any replica may resume it.
+ */
+public class ResumableBucketWipe implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableBucketWipe.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_BATCHES_IN_FLIGHT = 8;
+    public static final int DEFAULT_MAX_PARTITIONS = 8;
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+    /**
+     * Most keys S3 deletes in a single request
+     */
+    static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Attempts at deleting a key of a batch before it is an error
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Attempts at a delete ECS keeps throttling before it is an error
+     */
+    static final int MAX_THROTTLED_ATTEMPTS = 8;
+
+    /**
+     * Milliseconds waited at most before the first retry of a delete,
+     * doubling with each further retry up to {@link #MAX_RETRY_DELAY}
+     */
+    static final long RETRY_DELAY = 100;
+    static final long MAX_RETRY_DELAY = 10000;
+
+    /**
+     * Times slower than the first listing of a wipe its listings may get
+     * before it stops adding partitions
+     */
+    static final int LATENCY_FACTOR = 2;
+
+    /**
+     * Most listings made to find the last key of a bucket to partition
+     */
+    static final int MAX_PROBES = 256;
+
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+    private static final List<String> THROTTLED_CODES = Arrays.asList("SlowDown", "ServiceUnavailable");
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String DELIMITER = "/";
+
+    /**
+     * Most errors a job keeps, beyond which they are only counted
+     */
+    static final int MAX_ERRORS = 10;
+
+    /**
+     * Renewals a lease on a wipe lasts for, so that it outlives a few that
+     * fail
+     */
+    static final int LEASE_RENEWALS = 6;
+
+    /**
+     * Fewest milliseconds between renewals of the leases on wipes
+     */
+    static final long MIN_LEASE_RENEWAL = 1000;
+
+    private final S3Client client;
+    private final BucketWipeJobRepository jobs;
+    private final WipeScheduler scheduler;
+    private final WipeLimiter limiter;
+    private final int batchSize;
+    private final int batchesInFlight;
+    private final int maxPartitions;
+    private final long checkpointInterval;
+    private final String owner;
+    private final long leaseRenewal;
+    private final Map<String, Result> running = new ConcurrentHashMap<>();
+    private ScheduledExecutorService renewer;
+
+    /**
+     * @param batchSize       keys deleted per request, or 1 to delete each
+     *                        object with a request of its own
+     * @param batchesInFlight most delete requests of each listing of a wipe
+     *                        queued or running at once
+     * @param maxPartitions   most listings of a bucket run in parallel
+     */
+    public ResumableBucketWipe(S3Client client, BucketWipeJobRepository jobs, WipeScheduler scheduler,
+                               int batchSize, int batchesInFlight, int maxPartitions, long checkpointInterval) {
+        this(client, jobs, scheduler, batchSize, batchesInFlight, maxPartitions, checkpointInterval,
+                RepositoryLease.LOCAL_OWNER);
+    }
+
+    /**
+     * @param owner names this broker replica in the leases on its wipes
+     */
+    ResumableBucketWipe(S3Client client, BucketWipeJobRepository jobs, WipeScheduler scheduler,
+                        int batchSize, int batchesInFlight, int maxPartitions, long checkpointInterval,
+                        String owner) {
+        this.client = client;
+        this.jobs = jobs;
+        this.scheduler = scheduler;
+        this.limiter = scheduler.getLimiter();
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.batchesInFlight = Math.max(1, batchesInFlight);
+        this.maxPartitions = Math.max(1, maxPartitions);
+        this.checkpointInterval = checkpointInterval;
+        this.owner = owner;
+        this.leaseRenewal = Math.max(MIN_LEASE_RENEWAL, checkpointInterval);
+    }
+
+    /**
+     * Starts wiping a bucket, or carries on with a wipe of it already
+     * started.
+     *
+     * @param id service instance the bucket belongs to
+     */
+    public BucketWipeResult start(String id, String bucket) throws IOException {
+        return start(id, bucket, WipeScheduler.DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Starts wiping a bucket ahead of wipes of lower priority, or carries on
+     * with a wipe of it already started at the priority it was started with.
+     * A wipe of it that failed is started over.
+     *
+     * @param id service instance the bucket belongs to
+     * @throws RepositoryConflictException if another broker replica is
+     *                                     running the wipe
+     */
+    public synchronized BucketWipeResult start(String id, String bucket, int priority) throws IOException {
+        Result result = running.get(id);
+        if (result != null)
+            return result;
+
+        BucketWipeJob job = jobs.find(id);
+        if (job == null || job.isFailed()) {
+            String eTag = job == null ? null : job.getETag();
+            job = new BucketWipeJob(id, bucket, priority);
+            job.setETag(eTag);
+        } else if (job.isLeasedToOther(owner)) {
+            throw new RepositoryConflictException("Wipe of bucket " + job.getBucket()
+                    + " is running on broker " + job.getOwner(), null);
+        } else {
+            logger.info("Resuming wipe of bucket {} after {} deleted objects", job.getBucket(),
+                    job.getDeletedObjects());
+        }
+        job.lease(owner, leaseRenewal * LEASE_RENEWALS);
+        jobs.save(job);
+        return run(job);
+    }
+
+    /**
+     * Carries on with a wipe left unfinished, unless another broker replica
+     * has taken it on first.
+     *
+     * @return the result of the wipe, or {@code null} if another replica is
+     * running it
+     */
+    public synchronized BucketWipeResult resume(BucketWipeJob job) throws IOException {
+        Result result = running.get(job.getServiceInstanceId());
+        if (result != null)
+            return result;
+        if (job.isFailed() || job.isLeasedToOther(owner))
+            return null;
+
+        job.lease(owner, leaseRenewal * LEASE_RENEWALS);
+        try {
+            jobs.save(job);
+        } catch (RepositoryConflictException e) {
+            logger.info("Wipe of bucket {} was taken on by another broker replica", job.getBucket());
+            return null;
+        }
+        logger.info("Resuming wipe of bucket {} after {} deleted objects", job.getBucket(), job.getDeletedObjects());
+        return run(job);
+    }
+
+    /**
+     * Lists the wipes left unfinished that no broker replica is running,
+     * which carry on from where they got to when resumed.
+     */
+    public List<BucketWipeJob> getUnfinished() throws IOException {
+        List<BucketWipeJob> unfinished = new ArrayList<>();
+        for (BucketWipeJob job : jobs.list()) {
+            if (!running.containsKey(job.getServiceInstanceId()) && !job.isFailed()
+                    && !job.isLeasedToOther(owner))
+                unfinished.add(job);
+        }
+        return unfinished;
+    }
+
+    /**
+     * Forgets a wipe once whatever was waiting on it is done, so that it is
+     * not resumed.
+     */
+    public void finish(String id) {
+        running.remove(id);
+        try {
+            jobs.delete(id);
+        } catch (IOException e) {
+            logger.warn("Unable to remove bucket wipe job {}, it will be resumed on restart", id, e);
+        }
+    }
+
+    /**
+     * Keeps the job of a wipe that failed, marked as such, once whatever was
+     * waiting on it is done.  It is not resumed, and the next wipe of the
+     * bucket starts over.
+     */
+    public void fail(String id) {
+        Result result = running.remove(id);
+        if (result == null)
+            return;
+        BucketWipeJob job = result.getJob();
+        synchronized (job) {
+            job.fail();
+            try {
+                jobs.save(job);
+            } catch (IOException e) {
+                logger.warn("Unable to record bucket wipe job {} as failed, it will be resumed", id, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the store of the jobs, which is left open when the wipe is
+     * closed.
+     */
+    public BucketWipeJobRepository getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Stops every wipe, leaving each to be resumed from its last checkpoint
+     * by whichever broker replica gets to it first.
+     */
+    @Override
+    public void close() {
+        scheduler.close();
+        synchronized (this) {
+            if (renewer != null) {
+                renewer.shutdownNow();
+                renewer = null;
+            }
+        }
+        for (Result result : running.values()) {
+            BucketWipeJob job = result.getJob();
+            synchronized (job) {
+                job.release();
+                try {
+                    jobs.save(job);
+                } catch (IOException e) {
+                    logger.warn("Unable to release wipe of bucket {}, it is resumed once its lease expires",
+                            job.getBucket(), e);
+                }
+            }
+        }
+        running.clear();
+    }
+
+    /**
+     * Renews the leases on the running wipes.
+     */
+    void renewLeases() {
+        for (Result result : running.values()) {
+            BucketWipeJob job = result.getJob();
+            synchronized (job) {
+                job.lease(owner, leaseRenewal * LEASE_RENEWALS);
+                try {
+                    jobs.save(job);
+                } catch (RepositoryConflictException e) {
+                    // Finished meanwhile, or its lease lapsed and another replica took it on
+                    logger.debug("Lease on wipe of bucket {} not renewed as the job changed", job.getBucket());
+                } catch (IOException e) {
+                    logger.warn("Unable to renew lease on wipe of bucket {}, it will be retried", job.getBucket(), e);
+                }
+            }
+        }
+    }
+
+    // Must hold the lock
+    private BucketWipeResult run(BucketWipeJob job) {
+        if (renewer == null) {
+            renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ecs-bucket-wipe-lease");
+                thread.setDaemon(true);
+                return thread;
+            });
+            renewer.scheduleWithFixedDelay(this::renewLeases, leaseRenewal, leaseRenewal, TimeUnit.MILLISECONDS);
+        }
+        Result result = new Result(job);
+        running.put(job.getServiceInstanceId(), result);
+        scheduler.submit(job.getBucket(), job.getPriority(), scheduled -> {
+            result.getCompletedFuture().whenComplete((completed, e) -> scheduled.finish());
+            new Wipe(job, scheduled, result).start();
+        });
+        return result;
+    }
+
+    private CompletableFuture<Void> delete(WipeScheduler.Job scheduled, String bucket, List<String> keys,
+                                           Result result) throws InterruptedException {
+        for (int i = 0; i < keys.size(); i++)
+            result.actionOutstanding();
+        List<String> batch = new ArrayList<>(keys);
+        Deletion deletion = new Deletion(scheduled, bucket, batch, batch.size() == 1, result, 1, 0);
+        return deletion.then(scheduled.execute(deletion, batch.size()))
+                .thenRun(() -> batch.forEach(key -> result.actionComplete()));
+    }
+
+    private static boolean isThrottled(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof S3Exception) {
+                S3Exception s3Exception = (S3Exception) cause;
+                return s3Exception.getHttpCode() == SERVICE_UNAVAILABLE
+                        || THROTTLED_CODES.contains(s3Exception.getErrorCode());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks a random wait up to a limit that doubles with each retry, so
+     * that failed and throttled wipes do not all retry at once.
+     */
+    private static long retryDelay(int retries) {
+        long limit = Math.min(MAX_RETRY_DELAY, RETRY_DELAY << Math.min(retries - 1, 20));
+        return ThreadLocalRandom.current().nextLong(limit + 1);
+    }
+
+    private static String await(Batch batch) throws InterruptedException {
+        try {
+            batch.deleted.get();
+            return batch.lastKey;
+        } catch (ExecutionException e) {
+            // Failed deletes are recorded as errors rather than thrown
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private String firstKeyAfter(String bucket, String marker) {
+        List<S3Object> objects = client.listObjects(new ListObjectsRequest(bucket)
+                .withMarker(marker)
+                .withMaxKeys(1)
+                .withEncodingType(EncodingType.url)).getObjects();
+        return objects.isEmpty() ? null : objects.get(0).getKey();
+    }
+
+    /**
+     * A running wipe, listing the bucket in one or more partitions.
+     */
+    private final class Wipe {
+        private final BucketWipeJob job;
+        private final WipeScheduler.Job scheduled;
+        private final Result result;
+        private final KeySpace keySpace = new KeySpace();
+        private final List<Lister> listers = new ArrayList<>();
+        private int listing;
+        private long lastCheckpoint = System.currentTimeMillis();
+        private long baselineLatency;
+        private boolean discovered;
+        private String lastKey;
+
+        private Wipe(BucketWipeJob job, WipeScheduler.Job scheduled, Result result) {
+            this.job = job;
+            this.scheduled = scheduled;
+            this.result = result;
+        }
+
+        private void start() {
+            List<Lister> started = new ArrayList<>();
+            synchronized (this) {
+                for (BucketWipeJob.Partition partition : job.getPartitions())
+                    started.add(add(partition.getMarker(), partition.getEnd()));
+            }
+            if (started.isEmpty()) {
+                result.allActionsSubmitted();
+                return;
+            }
+            started.subList(1, started.size()).forEach(scheduled::fork);
+            started.get(0).run();
+        }
+
+        // Must hold the lock
+        private Lister add(String marker, String end) {
+            Lister lister = new Lister(this, marker, end);
+            listers.add(lister);
+            listing++;
+            result.partitionStarted(listers.size());
+            return lister;
+        }
+
+        /**
+         * Splits the rest of a partition off to list in parallel when it is
+         * listing, rather than deleting, that holds the partition back, and
+         * listing has not slowed down since the wipe started.  The first
+         * time, the bucket is first probed for where to split it, without
+         * holding up the other partitions meanwhile.
+         */
+        private void listed(Lister lister, long listMillis, long waitMillis) {
+            boolean discover;
+            synchronized (this) {
+                if (baselineLatency == 0)
+                    baselineLatency = Math.max(1, listMillis);
+                if (listers.size() >= maxPartitions || listMillis <= waitMillis)
+                    return;
+                if (listMillis > baselineLatency * LATENCY_FACTOR) {
+                    logger.debug("Listing bucket {} slowed to {} ms from {} ms, not partitioning it further",
+                            job.getBucket(), listMillis, baselineLatency);
+                    return;
+                }
+                discover = !discovered;
+                discovered = true;
+            }
+
+            if (discover) {
+                try {
+                    String found = discover(lister.marker);
+                    synchronized (this) {
+                        lastKey = found;
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to partition listing of bucket {}, listing it as it is", job.getBucket(), e);
+                }
+            }
+
+            synchronized (this) {
+                if (listers.size() >= maxPartitions)
+                    return;
+                String high = lister.end != null ? lister.end : lastKey;
+                String split = high == null ? null : keySpace.split(lister.marker, high);
+                if (split == null)
+                    return;
+
+                Lister forked = add(split, lister.end);
+                lister.end = split;
+                logger.debug("Listing bucket {} in {} partitions, split at {}", job.getBucket(), listers.size(), split);
+                scheduled.fork(forked);
+            }
+        }
+
+        /**
+         * Finds the common prefixes of the bucket and roughly its last key,
+         * which bound the keys the last partition is split between.
+         *
+         * @return the last key found, or the key given if none is later
+         */
+        private String discover(String after) {
+            String bucket = job.getBucket();
+            keySpace.addBoundaries(client.listObjects(new ListObjectsRequest(bucket)
+                    .withDelimiter(DELIMITER)
+                    .withEncodingType(EncodingType.url)).getCommonPrefixes());
+
+            // Work out the last key a character at a time, each the highest
+            // of the characters seen that some key has at that position
+            char[] alphabet = keySpace.getAlphabet();
+            String prefix = "";
+            String last = after;
+            int probes = 0;
+            while (probes < MAX_PROBES) {
+                String found = null;
+                int low = 0, high = alphabet.length - 1;
+                while (low <= high && probes++ < MAX_PROBES) {
+                    int mid = (low + high) >>> 1;
+                    String key = firstKeyAfter(bucket, prefix + alphabet[mid]);
+                    if (key != null && key.startsWith(prefix)) {
+                        found = key;
+                        low = mid + 1;
+                    } else {
+                        high = mid - 1;
+                    }
+                }
+                if (found == null)
+                    break;
+                keySpace.add(found);
+                if (last == null || found.compareTo(last) > 0)
+                    last = found;
+                prefix = found.substring(0, prefix.length() + 1);
+            }
+            logger.debug("Bucket {} ends at about {}, found with {} probes", bucket, last, probes);
+            return last;
+        }
+
+        /**
+         * Saves how far every partition has got, if it is time to.
+         */
+        private synchronized void checkpointIfDue() {
+            if (System.currentTimeMillis() - lastCheckpoint < checkpointInterval)
+                return;
+            List<BucketWipeJob.Partition> partitions = new ArrayList<>();
+            for (Lister lister : listers)
+                partitions.add(new BucketWipeJob.Partition(lister.deletedUpTo, lister.end));
+            List<String> errors = result.getErrors();
+            synchronized (job) {
+                job.checkpoint(partitions, result.getDeletedObjects(), result.getErrorCount(),
+                        errors.subList(0, Math.min(errors.size(), MAX_ERRORS)));
+                job.lease(owner, leaseRenewal * LEASE_RENEWALS);
+                try {
+                    jobs.save(job);
+                    logger.debug("Wipe of bucket {} deleted {} objects up to {} in {} partitions", job.getBucket(),
+                            job.getDeletedObjects(), job.getMarker(), partitions.size());
+                } catch (IOException e) {
+                    logger.warn("Unable to checkpoint wipe of bucket {}, it will be retried", job.getBucket(), e);
+                }
+            }
+            lastCheckpoint = System.currentTimeMillis();
+        }
+
+        /**
+         * Counts a partition as listed, once every key of it has been
+         * deleted unless the listing failed, and finishes the wipe after the
+         * last.
+         */
+        private void finished(Lister lister, boolean deleted) {
+            synchronized (this) {
+                if (deleted)
+                    listers.remove(lister);
+                if (--listing > 0)
+                    return;
+            }
+            result.allActionsSubmitted();
+        }
+    }
+
+    /**
+     * Lists the keys of a partition of a bucket, from after its marker up to
+     * its end, and deletes them.
+     */
+    private final class Lister implements Runnable {
+        private final Wipe wipe;
+        private final Deque<Batch> batches = new ArrayDeque<>();
+        private String marker;
+        private volatile String end;
+        private volatile String deletedUpTo;
+
+        private Lister(Wipe wipe, String marker, String end) {
+            this.wipe = wipe;
+            this.marker = marker;
+            this.end = end;
+            this.deletedUpTo = marker;
+        }
+
+        @Override
+        public void run() {
+            String bucket = wipe.job.getBucket();
+            Result result = wipe.result;
+            boolean deleted = false;
+            try {
+                boolean more;
+                do {
+                    long listStart = System.currentTimeMillis();
+                    ListObjectsResult listing = client.listObjects(new ListObjectsRequest(bucket)
+                            .withMarker(marker)
+                            .withEncodingType(EncodingType.url));
+                    long listMillis = System.currentTimeMillis() - listStart;
+
+                    more = listing.isTruncated() && !listing.getObjects().isEmpty();
+                    String last = end;
+                    List<String> keys = new ArrayList<>();
+                    for (S3Object object : listing.getObjects()) {
+                        if (last != null && object.getKey().compareTo(last) > 0) {
+                            more = false;
+                            break;
+                        }
+                        result.setLastKey(object.getKey());
+                        keys.add(object.getKey());
+                        marker = object.getKey();
+                    }
+                    // The ends of each page are enough to learn the
+                    // characters keys are made of
+                    if (!keys.isEmpty()) {
+                        wipe.keySpace.add(keys.get(0));
+                        wipe.keySpace.add(keys.get(keys.size() - 1));
+                    }
+
+                    // Keys are listed in order, so once the oldest batches have
+                    // been deleted every key up to their last has been
+                    long waitStart = System.currentTimeMillis();
+                    for (int i = 0; i < keys.size(); i += batchSize) {
+                        List<String> batch = keys.subList(i, Math.min(i + batchSize, keys.size()));
+                        batches.add(new Batch(batch.get(batch.size() - 1),
+                                delete(wipe.scheduled, bucket, batch, result)));
+                        while (batches.size() > batchesInFlight)
+                            deletedUpTo = await(batches.poll());
+                    }
+                    if (more)
+                        wipe.listed(this, listMillis, System.currentTimeMillis() - waitStart);
+                    wipe.checkpointIfDue();
+                } while (more);
+
+                while (!batches.isEmpty())
+                    deletedUpTo = await(batches.poll());
+                deleted = true;
+            } catch (InterruptedException e) {
+                // Shutting down, leave the job to be resumed
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                // Errors as well, or the wipe would never finish
+                logger.error("Listing bucket {} failed", bucket, e);
+                result.addError("Listing bucket " + bucket + " failed: " + e.getMessage());
+            }
+            wipe.finished(this, deleted);
+        }
+    }
+
+    /**
+     * A request deleting keys of a batch, one at a time or with a
+     * multi-object delete.  Keys that fail are queued again after backing
+     * off, those ECS throttled apart from the rest so that each runs out of
+     * attempts of its own kind.  A single object is only retried while ECS
+     * throttles it, as the client retries other server errors itself.
+     */
+    private final class Deletion implements Runnable {
+        private final WipeScheduler.Job scheduled;
+        private final String bucket;
+        private final List<String> keys;
+        private final boolean single;
+        private final Result result;
+        private final int attempt;
+        private final int throttles;
+        private final Map<String, String> failed = new LinkedHashMap<>();
+        private final Map<String, String> throttled = new LinkedHashMap<>();
+
+        /**
+         * @param single    whether the keys are a single object deleted on its
+         *                  own rather than with a multi-object delete
+         * @param attempt   attempts at the keys that were not throttled,
+         *                  this one included
+         * @param throttles times the keys were throttled before
+         */
+        private Deletion(WipeScheduler.Job scheduled, String bucket, List<String> keys, boolean single,
+                         Result result, int attempt, int throttles) {
+            this.scheduled = scheduled;
+            this.bucket = bucket;
+            this.keys = keys;
+            this.single = single;
+            this.result = result;
+            this.attempt = attempt;
+            this.throttles = throttles;
+        }
+
+        @Override
+        public void run() {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted deleting from bucket " + bucket, e);
+            }
+            long start = System.nanoTime();
+            boolean wasThrottled = false;
+            try {
+                if (single) {
+                    client.deleteObject(bucket, keys.get(0));
+                } else {
+                    DeleteObjectsRequest request = new DeleteObjectsRequest(bucket)
+                            .withKeys(keys.toArray(new String[0]));
+                    request.getDeleteObjects().setQuiet(true);
+                    for (AbstractDeleteResult deleted : client.deleteObjects(request).getResults()) {
+                        if (deleted instanceof DeleteError && !NO_SUCH_KEY.equals(((DeleteError) deleted).getCode())) {
+                            DeleteError error = (DeleteError) deleted;
+                            boolean isThrottled = THROTTLED_CODES.contains(error.getCode());
+                            (isThrottled ? throttled : failed).put(error.getKey(),
+                                    error.getCode() + ": " + error.getMessage());
+                            wasThrottled |= isThrottled;
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                wasThrottled = isThrottled(e);
+                for (String key : keys)
+                    (wasThrottled ? throttled : failed).put(key, e.getMessage());
+            }
+            limiter.release(System.nanoTime() - start, wasThrottled ? WipeLimiter.Outcome.THROTTLED
+                    : failed.isEmpty() ? WipeLimiter.Outcome.SUCCEEDED : WipeLimiter.Outcome.FAILED);
+            if (!failed.isEmpty() || !throttled.isEmpty())
+                logger.debug("Deleting {} of {} keys from bucket {} failed, {} throttled, on attempt {}",
+                        failed.size() + throttled.size(), keys.size(), bucket, throttled.size(), attempt + throttles);
+        }
+
+        /**
+         * Follows this request, once it has run, with the retries of its
+         * keys that failed.
+         *
+         * @param ran completion of this request
+         * @return completion once every key is deleted or out of attempts
+         */
+        private CompletableFuture<Void> then(CompletableFuture<Void> ran) {
+            return ran.handle((done, e) -> e).thenCompose(e -> {
+                if (e != null) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    for (String key : keys)
+                        result.addError("Deleting " + key + " failed: " + cause.getMessage());
+                    return CompletableFuture.completedFuture(null);
+                }
+                return CompletableFuture.allOf(
+                        retry(throttled, attempt, throttles + 1,
+                                throttles + 1 < MAX_THROTTLED_ATTEMPTS ? throttles + 1 : 0),
+                        retry(failed, attempt + 1, throttles,
+                                !single && attempt < MAX_ATTEMPTS ? attempt : 0));
+            });
+        }
+
+        /**
+         * @param retries times the keys have been retried of the kind they
+         *                failed with, or 0 when they are out of attempts
+         */
+        private CompletableFuture<Void> retry(Map<String, String> errors, int attempt, int throttles,
+                                              int retries) {
+            if (errors.isEmpty())
+                return CompletableFuture.completedFuture(null);
+            if (retries == 0) {
+                errors.forEach((key, error) -> result.addError("Deleting " + key + " failed: " + error));
+                return CompletableFuture.completedFuture(null);
+            }
+            Deletion next = new Deletion(scheduled, bucket, new ArrayList<>(errors.keySet()), single, result,
+                    attempt, throttles);
+            return next.then(scheduled.retry(next, retryDelay(retries)));
+        }
+    }
+
+    private static final class Batch {
+        private final String lastKey;
+        private final CompletableFuture<Void> deleted;
+
+        private Batch(String lastKey, CompletableFuture<Void> deleted) {
+            this.lastKey = lastKey;
+            this.deleted = deleted;
+        }
+    }
+
+    /**
+     * Result of a wipe that includes what was done before it was resumed.
+     */
+    static final class Result extends BucketWipeResult {
+        private final BucketWipeJob job;
+        private final long deletedBefore;
+        private final List<String> errorsBefore;
+        private final AtomicLong errorCount;
+        private final AtomicInteger partitions = new AtomicInteger();
+
+        Result(BucketWipeJob job) {
+            this.job = job;
+            this.deletedBefore = job.getDeletedObjects();
+            this.errorsBefore = new ArrayList<>(job.getErrors());
+            this.errorCount = new AtomicLong(job.getErrorCount());
+        }
+
+        @Override
+        public long getDeletedObjects() {
+            return deletedBefore + super.getDeletedObjects();
+        }
+
+        @Override
+        public void addError(String error) {
+            errorCount.incrementAndGet();
+            super.addError(error);
+        }
+
+        @Override
+        public List<String> getErrors() {
+            List<String> errors = new ArrayList<>(errorsBefore);
+            List<String> added = super.getErrors();
+            synchronized (added) {
+                errors.addAll(added);
+            }
+            return errors;
+        }
+
+        long getErrorCount() {
+            return errorCount.get();
+        }
+
+        BucketWipeJob getJob() {
+            return job;
+        }
+
+        /**
+         * Most partitions the bucket was listed in at once.
+         */
+        int getPartitions() {
+            return partitions.get();
+        }
+
+        void partitionStarted(int listing) {
+            partitions.accumulateAndGet(listing, Math::max);
+        }
+
+        @Override
+        protected void setLastKey(String lastKey) {
+            super.setLastKey(lastKey);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.emc.object.Protocol;
+import com.emc.object.s3.S3Config;
+import com.emc.object.s3.jersey.S3JerseyClient;
+import com.sun.jersey.api.client.config.ClientConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Owns the one S3 client the repositories and bucket wipe share, and the
+ * connection pool behind it.
+ *
+ * The client is built on first use rather than with the bean, since the
+ * repository user's secret key is only known once the broker has looked it
+ * up.  Connections are kept alive for reuse for at most the configured time,
+ * and the pool's statistics are published as metrics.  In smart client mode
+ * requests are spread across the ECS data nodes, with unhealthy ones left
+ * out, instead of all going to the one repository endpoint.
+ */
+public class S3ClientFactory implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(S3ClientFactory.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+    public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+    private S3JerseyClient client;
+    private RepositoryConnectionPool connectionPool;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /**
+     * Returns the shared client, building it from the broker config the
+     * first time.
+     */
+    public synchronized S3JerseyClient getClient(BrokerConfig broker) throws URISyntaxException {
+        if (client == null) {
+            logger.info("Creating S3 client for repository endpoint {} with up to {} connections",
+                    broker.getRepositoryEndpoint(), broker.getRepositoryMaxConnections());
+            RepositoryConnectionPool pool = new RepositoryConnectionPool(broker);
+
+            S3Config s3Config = buildS3Config(broker);
+            s3Config.withIdentity(broker.getPrefixedUserName()).withSecretKey(broker.getRepositorySecret());
+            s3Config.setProperty(ClientConfig.PROPERTY_CONNECT_TIMEOUT, broker.getRepositoryConnectTimeout());
+            s3Config.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, broker.getRepositoryReadTimeout());
+
+            client = new S3JerseyClient(s3Config, pool.buildClientHandler(broker));
+            connectionPool = pool;
+            maxConnections = broker.getRepositoryMaxConnections();
+        }
+        return client;
+    }
+
+    /**
+     * Destroys the shared client and closes its pooled connections.  A new
+     * client is built on the next call to {@link #getClient}.
+     */
+    public synchronized void close() {
+        if (client != null) {
+            client.destroy();
+            connectionPool.shutdown();
+            client = null;
+            connectionPool = null;
+        }
+    }
+
+    /**
+     * Counts the data nodes requests are balanced across, optionally only
+     * those passing their health checks.
+     */
+    public synchronized int getHostCount(boolean healthyOnly) {
+        if (client == null)
+            return 0;
+        return (int) client.getLoadBalancer().getAllHosts().stream()
+                .filter(host -> !healthyOnly || host.isHealthy())
+                .count();
+    }
+
+    public synchronized PoolStats getPoolStats() {
+        if (connectionPool == null)
+            return new PoolStats(0, 0, 0, maxConnections);
+        return connectionPool.getTotalStats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindPoolGauge(registry, "leased", "Repository S3 connections in use", PoolStats::getLeased);
+        bindPoolGauge(registry, "idle", "Idle repository S3 connections kept alive in the pool", PoolStats::getAvailable);
+        bindPoolGauge(registry, "pending", "Requests waiting for a repository S3 connection", PoolStats::getPending);
+        bindPoolGauge(registry, "max", "Maximum repository S3 connections", PoolStats::getMax);
+        Gauge.builder("ecs.repository.hosts", this, f -> f.getHostCount(false))
+                .description("ECS data nodes repository requests are balanced across")
+                .register(registry);
+        Gauge.builder("ecs.repository.hosts.healthy", this, f -> f.getHostCount(true))
+                .description("ECS data nodes passing their health checks")
+                .register(registry);
+    }
+
+    private void bindPoolGauge(MeterRegistry registry, String name, String description, ToIntFunction<PoolStats> stat) {
+        Gauge.builder("ecs.repository.connections." + name, this, f -> stat.applyAsInt(f.getPoolStats()))
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Configures the client for the repository endpoint alone or, in smart
+     * client mode, to balance requests across the ECS data nodes.  Those are
+     * the configured hosts, or the endpoint's host if there are none, plus
+     * any nodes discovered from them when discovery is on.  Each node is
+     * reached on the endpoint's protocol and port.
+     */
+    static S3Config buildS3Config(BrokerConfig broker) throws URISyntaxException {
+        URI endpoint = new URI(broker.getRepositoryEndpoint());
+        if (!broker.isRepositorySmartClient())
+            return new S3Config(endpoint);
+
+        List<String> hosts = broker.getRepositoryHosts();
+        if (hosts == null || hosts.isEmpty())
+            hosts = Collections.singletonList(endpoint.getHost());
+        logger.info("Balancing repository requests across ECS data nodes {}{}", hosts,
+                broker.isRepositoryHostDiscovery() ? " and any discovered from them" : "");
+
+        S3Config s3Config = new S3Config(Protocol.valueOf(endpoint.getScheme().toUpperCase()),
+                hosts.toArray(new String[0]));
+        if (endpoint.getPort() > 0)
+            s3Config.setPort(endpoint.getPort());
+        s3Config.setProperty(S3Config.PROPERTY_DISABLE_HOST_UPDATE, !broker.isRepositoryHostDiscovery());
+        s3Config.setProperty(S3Config.PROPERTY_DISABLE_HEALTH_CHECK, !broker.isRepositoryHostHealthCheck());
+        return s3Config;
+    }
+}
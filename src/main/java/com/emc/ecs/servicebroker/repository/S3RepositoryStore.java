@@ -0,0 +1,96 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.object.s3.S3Exception;
+import com.emc.object.s3.S3ObjectMetadata;
+import com.emc.object.s3.bean.GetObjectResult;
+import com.emc.object.s3.bean.ListObjectsResult;
+import com.emc.object.s3.bean.S3Object;
+import com.emc.object.s3.jersey.S3JerseyClient;
+import com.emc.object.s3.request.GetObjectRequest;
+import com.emc.object.s3.request.ListObjectsRequest;
+import com.emc.object.s3.request.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps repository records as objects in the ECS repository bucket.  The
+ * client is shared, so closing the store leaves it open.
+ */
+public class S3RepositoryStore implements RepositoryStore {
+    private final S3JerseyClient s3;
+    private final String bucket;
+
+    public S3RepositoryStore(S3JerseyClient s3, String bucket) {
+        this.s3 = s3;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public StoredObject get(String key, String ifNoneMatch) {
+        GetObjectResult<InputStream> result;
+        try {
+            result = s3.getObject(new GetObjectRequest<>(bucket, key).withIfNoneMatch(ifNoneMatch), InputStream.class);
+        } catch (S3Exception e) {
+            if (e.getHttpCode() == 404)
+                return null;
+            throw e;
+        }
+        // The client answers a 304 Not Modified with no result
+        if (result == null)
+            return StoredObject.notModified(ifNoneMatch);
+        return new StoredObject(result.getObjectMetadata().getETag(), result.getObject());
+    }
+
+    @Override
+    public String put(String key, byte[] content, int offset, int length, String ifMatch)
+            throws RepositoryConflictException {
+        // Streamed from the caller's array with its length given up front
+        PutObjectRequest request = new PutObjectRequest(bucket, key, new ByteArrayInputStream(content, offset, length))
+                .withObjectMetadata(new S3ObjectMetadata().withContentLength(length))
+                .withIfMatch(ifMatch);
+        try {
+            return s3.putObject(request).getETag();
+        } catch (S3Exception e) {
+            if (e.getHttpCode() == 412)
+                throw new RepositoryConflictException(key + " was changed concurrently", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public String putIfAbsent(String key, byte[] content) throws RepositoryConflictException {
+        PutObjectRequest request = new PutObjectRequest(bucket, key, new ByteArrayInputStream(content))
+                .withObjectMetadata(new S3ObjectMetadata().withContentLength(content.length))
+                .withIfNoneMatch("*");
+        try {
+            return s3.putObject(request).getETag();
+        } catch (S3Exception e) {
+            if (e.getHttpCode() == 412)
+                throw new RepositoryConflictException(key + " already exists", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        s3.deleteObject(bucket, key);
+    }
+
+    @Override
+    public RepositoryPage<String> list(String prefix, String pageToken, int limit) {
+        ListObjectsResult result = s3.listObjects(new ListObjectsRequest(bucket)
+                .withPrefix(prefix).withMarker(pageToken).withMaxKeys(limit));
+        List<String> keys = new ArrayList<>(result.getObjects().size());
+        for (S3Object object : result.getObjects())
+            keys.add(object.getKey());
+        if (!result.isTruncated() || keys.isEmpty())
+            return new RepositoryPage<>(keys, null);
+        // The next marker is only given for a delimited listing; otherwise
+        // the next page starts after the last key of this one
+        String nextMarker = result.getNextMarker();
+        return new RepositoryPage<>(keys, nextMarker != null ? nextMarker : keys.get(keys.size() - 1));
+    }
+}
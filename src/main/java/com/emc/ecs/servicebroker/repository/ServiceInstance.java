@@ -70,6 +70,13 @@ public class ServiceInstance {
     @JsonIgnore
     private boolean async;
 
+    /**
+     * ETag of the stored copy this instance was read from, sent as If-Match
+     * when it is saved so that a concurrent change is not overwritten
+     */
+    @JsonIgnore
+    private String eTag;
+
     @JsonSerialize
     @JsonProperty("service_settings")
     private Map<String, Object> serviceSettings;
@@ -133,6 +140,14 @@ public class ServiceInstance {
         return async;
     }
 
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
     public Mono<GetLastServiceOperationResponse> getServiceInstanceLastOperation(GetLastServiceOperationRequest request) {
         String serviceInstanceId = request.getServiceInstanceId();
         return Mono.just(GetLastServiceOperationResponse.builder()
@@ -1,6 +1,8 @@
 package com.emc.ecs.servicebroker.repository;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -14,12 +16,17 @@ import java.util.Map;
 @SuppressWarnings("unused")
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class ServiceInstanceBinding {
 
     @JsonSerialize
     @JsonProperty("binding_id")
     private String bindingId;
 
+    @JsonSerialize
+    @JsonProperty("service_instance_id")
+    private String serviceInstanceId;
+
     @JsonSerialize
     @JsonProperty("service_id")
     private String serviceDefinitionId;
@@ -44,12 +51,20 @@ public class ServiceInstanceBinding {
     @JsonProperty("volume_mounts")
     private List<VolumeMount> volumeMounts;
 
+    /**
+     * ETag of the stored copy this binding was read from, sent as If-Match
+     * when it is saved so that a concurrent change is not overwritten
+     */
+    @JsonIgnore
+    private String eTag;
+
     public ServiceInstanceBinding() {
         super();
     }
 
     public ServiceInstanceBinding(CreateServiceInstanceBindingRequest request) {
         super();
+        this.serviceInstanceId = request.getServiceInstanceId();
         this.serviceDefinitionId = request.getServiceDefinitionId();
         this.planId = request.getPlanId();
         this.bindResource = request.getBindResource();
@@ -80,6 +95,14 @@ public class ServiceInstanceBinding {
         this.planId = planId;
     }
 
+    public String getServiceInstanceId() {
+        return serviceInstanceId;
+    }
+
+    public void setServiceInstanceId(String serviceInstanceId) {
+        this.serviceInstanceId = serviceInstanceId;
+    }
+
     public String getServiceDefinitionId() {
         return serviceDefinitionId;
     }
@@ -107,4 +130,12 @@ public class ServiceInstanceBinding {
     public List<VolumeMount> getVolumeMounts() { return volumeMounts; }
 
     public void setVolumeMounts(List<VolumeMount> volumeMounts) { this.volumeMounts = volumeMounts; }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
 }
@@ -1,16 +1,10 @@
 package com.emc.ecs.servicebroker.repository;
 
 import com.emc.ecs.management.sdk.ObjectUserMapAction;
-import com.emc.ecs.servicebroker.EcsManagementClientException;
-import com.emc.ecs.servicebroker.EcsManagementResourceNotFoundException;
 import com.emc.ecs.servicebroker.config.BrokerConfig;
-import com.emc.object.s3.S3Config;
-import com.emc.object.s3.bean.GetObjectResult;
-import com.emc.object.s3.jersey.S3JerseyClient;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.slf4j.Logger;
@@ -21,36 +15,36 @@ import org.springframework.cloud.servicebroker.model.binding.VolumeDevice;
 import org.springframework.cloud.servicebroker.model.binding.VolumeMount;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
 public class ServiceInstanceBindingRepository {
 
     static final Logger LOG = LoggerFactory.getLogger(ObjectUserMapAction.class);
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private S3JerseyClient s3;
-    private String bucket;
+    private RecordCodec codec;
+    private RepositoryStore store;
+    private RecordKeys keys;
+    private KeyMigration records;
+    private RecordFetcher fetcher;
+    private RecordIndex<ServiceInstanceBinding> index;
     @Autowired
     private BrokerConfig broker;
-
-    private static String getFilename(String id) {
-        return "service-instance-binding/" + id + ".json";
-    }
+    @Autowired
+    private RepositoryStoreFactory storeFactory;
 
     @PostConstruct
-    public void initialize() throws EcsManagementClientException,
-            EcsManagementResourceNotFoundException, URISyntaxException {
-        S3Config s3Config = new S3Config(
-                new URI(broker.getRepositoryEndpoint()));
-        s3Config.withIdentity(broker.getPrefixedUserName())
-                .withSecretKey(broker.getRepositorySecret());
-        this.s3 = new S3JerseyClient(s3Config);
-        this.bucket = broker.getPrefixedBucketName();
+    public void initialize() throws IOException, URISyntaxException {
+        this.keys = new RecordKeys("service-instance-binding", broker.getRepositoryKeyShards());
+        this.store = storeFactory.getStore(broker, keys);
+        this.records = new KeyMigration(store, keys);
+        this.codec = new RecordCodec(broker.getRepositoryRecordFormat(), broker.isRepositoryRecordCompression());
 
         // NOTE -- ideally we would not need this code, but for now, the VolumeMount class has
         // custom serialization that is not matched with corresponding deserialization, so
@@ -59,24 +53,84 @@ public class ServiceInstanceBindingRepository {
         module.addDeserializer(VolumeMount.DeviceType.class, new DeviceTypeDeserializer());
         module.addDeserializer(VolumeMount.Mode.class, new ModeDeserializer());
         module.addDeserializer(VolumeDevice.class, new VolumeDeviceDeserializer());
-        objectMapper.registerModule(module);
+        codec.registerModule(module);
+
+        this.records.start();
+        this.fetcher = new RecordFetcher("service-instance-binding", broker.getRepositoryListConcurrency());
+        // Bindings are not cached, so are always read from the store itself
+        this.index = new RecordIndex<>(store, "service-instance-binding", ServiceInstanceBinding::getBindingId,
+                ServiceInstanceBinding::getETag, this::find, this::find, this::stream, fetcher)
+                .field("service-instance", ServiceInstanceBinding::getServiceInstanceId);
+        this.index.start(broker.getRepositoryIndexVerifyInterval());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+        records.close();
+        fetcher.close();
+        store.close();
     }
 
     public void save(ServiceInstanceBinding binding)
             throws IOException, JAXBException {
-        String serialized = objectMapper.writeValueAsString(binding);
-        s3.putObject(bucket, getFilename(binding.getBindingId()), serialized, null);
+        RecordBuffer buffer = codec.encodeToBuffer(binding);
+        index.add(binding);
+        binding.setETag(store.put(keys.getKey(binding.getBindingId()), buffer.array(), 0, buffer.size(),
+                binding.getETag()));
+        index.track(binding);
     }
 
     public ServiceInstanceBinding find(String id) throws IOException {
-        GetObjectResult<InputStream> input = s3.getObject(bucket,
-                getFilename(id));
-        return objectMapper.readValue(input.getObject(),
-                ServiceInstanceBinding.class);
+        StoredObject object = records.get(id, null);
+        if (object == null)
+            return null;
+        try (InputStream input = object.getContent()) {
+            ServiceInstanceBinding binding = codec.decode(input, ServiceInstanceBinding.class);
+            binding.setETag(object.getETag());
+            index.track(binding);
+            return binding;
+        }
+    }
+
+    public void delete(String id) throws IOException {
+        records.delete(id);
+    }
+
+    /**
+     * Lists a page of bindings, in order of binding ID within each shard.
+     *
+     * @param pageToken token from the previous page, or {@code null} for the
+     *                  first page
+     */
+    public RepositoryPage<ServiceInstanceBinding> list(String pageToken, int pageSize) throws IOException {
+        return fetcher.fetch(records.list(pageToken, pageSize), this::fetch);
+    }
+
+    /**
+     * Streams every binding, shard by shard, listing and reading them as
+     * the stream is consumed.  The stream should be closed if it is not
+     * consumed to the end.
+     *
+     * @throws java.io.UncheckedIOException from the stream if the repository
+     *                                      cannot be read
+     */
+    public Stream<ServiceInstanceBinding> stream() {
+        return fetcher.stream(pageToken -> records.list(pageToken, broker.getRepositoryListPageSize()),
+                this::fetch);
+    }
+
+    /**
+     * Reads every binding of a service instance.  Bindings saved before
+     * they recorded their service instance are not found.
+     */
+    public List<ServiceInstanceBinding> findByServiceInstance(String serviceInstanceId) throws IOException {
+        return index.find("service-instance", serviceInstanceId);
     }
 
-    public void delete(String id) {
-        s3.deleteObject(bucket, getFilename(id));
+    private ServiceInstanceBinding fetch(String key) throws IOException {
+        String id = keys.getId(key);
+        return id == null ? null : find(id);
     }
 
     public static class ModeDeserializer extends StdDeserializer<VolumeMount.Mode> {
@@ -1,90 +1,181 @@
 package com.emc.ecs.servicebroker.repository;
 
 import com.emc.ecs.servicebroker.config.BrokerConfig;
-import com.emc.object.s3.S3Config;
-import com.emc.object.s3.bean.GetObjectResult;
-import com.emc.object.s3.jersey.S3JerseyClient;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
-
-import static java.lang.String.format;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class ServiceInstanceRepository {
     private static final Logger logger = LoggerFactory.getLogger(ServiceInstanceRepository.class);
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    private String bucket;
+    private RecordCodec codec;
 
-    private S3JerseyClient s3;
+    private RepositoryStore store;
 
-    @Autowired
-    private BrokerConfig broker;
+    private RepositoryCache cache;
 
-    private static String getFilename(String id) {
-        return "service-instance/" + id + ".json";
-    }
+    private RecordKeys keys;
 
-    @PostConstruct
-    public void initialize() throws URISyntaxException {
-        logger.info(format("Creating S3 config with repository endpoint %s", broker.getRepositoryEndpoint()));
+    private KeyMigration records;
 
-        S3Config s3Config = new S3Config(new URI(broker.getRepositoryEndpoint()));
+    private RecordFetcher fetcher;
 
-        logger.debug(format("Created S3 config %s", s3Config));
+    private RecordIndex<ServiceInstance> index;
 
-        s3Config.withIdentity(broker.getPrefixedUserName()).withSecretKey(broker.getRepositorySecret());
-
-        this.s3 = new S3JerseyClient(s3Config, new URLConnectionClientHandler());
+    @Autowired
+    private BrokerConfig broker;
 
-        logger.debug(format("JerseyClient S3 config %s", this.s3.getS3Config()));
+    @Autowired
+    private RepositoryStoreFactory storeFactory;
 
-        this.bucket = broker.getPrefixedBucketName();
+    @PostConstruct
+    public void initialize() throws IOException, URISyntaxException {
+        logger.info("Using {} service instance repository", broker.getRepositoryStore());
+
+        this.keys = new RecordKeys("service-instance", broker.getRepositoryKeyShards());
+        this.store = storeFactory.getStore(broker, keys);
+        this.records = new KeyMigration(store, keys);
+        this.codec = new RecordCodec(broker.getRepositoryRecordFormat(), broker.isRepositoryRecordCompression());
+
+        this.cache = new RepositoryCache("service-instance", broker.getRepositoryCacheTtl(),
+                broker.getRepositoryCacheMaxBytes());
+        this.cache.bindTo(Metrics.globalRegistry);
+        this.records.start();
+        this.fetcher = new RecordFetcher("service-instance", broker.getRepositoryListConcurrency());
+        this.index = new RecordIndex<>(store, "service-instance", ServiceInstance::getServiceInstanceId,
+                ServiceInstance::getETag, this::find, this::load, this::streamUncached, fetcher)
+                .field("plan", ServiceInstance::getPlanId)
+                .field("service", ServiceInstance::getServiceDefinitionId);
+        this.index.start(broker.getRepositoryIndexVerifyInterval());
+    }
 
-        logger.info("Service repository bucket name: {}", this.bucket);
+    @PreDestroy
+    public void close() throws IOException {
+        index.close();
+        records.close();
+        fetcher.close();
+        store.close();
     }
 
     public void save(ServiceInstance instance) throws IOException {
-        logger.info(format("Host: %s, Namespace: %s, Protocol: %s, Identity: %s, Port: %s",
-                this.s3.getS3Config().getHost(),
-                this.s3.getS3Config().getNamespace(),
-                this.s3.getS3Config().getProtocol(),
-                this.s3.getS3Config().getIdentity(),
-                this.s3.getS3Config().getPort()));
+        RecordBuffer buffer = codec.encodeToBuffer(instance);
+
+        String id = instance.getServiceInstanceId();
+        logger.info("Saving service instance {}", id);
+        try {
+            index.add(instance);
+            String eTag = store.put(keys.getKey(id), buffer.array(), 0, buffer.size(), instance.getETag());
+            instance.setETag(eTag);
+            index.track(instance);
+            cache.put(id, eTag, buffer.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            cache.invalidate(id);
+            throw e;
+        }
+    }
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        objectMapper.writeValue(output, instance);
-        output.close();
+    public ServiceInstance find(String id) throws IOException {
+        RepositoryCache.Versioned stored = cache.get(id, ifNoneMatch -> {
+            logger.debug("Loading service instance {}", id);
+
+            StoredObject object = records.get(id, ifNoneMatch);
+            if (object == null)
+                return new RepositoryCache.Versioned(null, null);
+            if (!object.isModified())
+                return null;
+            // Parse straight from the stream, which stops at the end of a
+            // JSON record rather than the end of the object, and cache it
+            // re-encoded in the configured format
+            try (InputStream content = object.getContent()) {
+                ServiceInstance instance = codec.decode(content, ServiceInstance.class);
+                return new RepositoryCache.Versioned(object.getETag(), codec.encode(instance));
+            }
+        });
+        if (stored.getBody() == null)
+            return null;
+
+        ServiceInstance instance = codec.decode(stored.getBody(), ServiceInstance.class);
+        instance.setETag(stored.getETag());
+        index.track(instance);
+        return instance;
+    }
 
-        ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+    public void delete(String id) throws IOException {
+        cache.invalidate(id);
+        records.delete(id);
+    }
 
-        logger.info(format("Saving Repository - bucket: %s", bucket));
-        s3.putObject(bucket, getFilename(instance.getServiceInstanceId()), input, null);
+    /**
+     * Lists a page of service instances, in order of ID within each shard.
+     *
+     * @param pageToken token from the previous page, or {@code null} for the
+     *                  first page
+     */
+    public RepositoryPage<ServiceInstance> list(String pageToken, int pageSize) throws IOException {
+        return fetcher.fetch(records.list(pageToken, pageSize), this::fetch);
     }
 
-    public ServiceInstance find(String id) throws IOException {
-        String filename = getFilename(id);
+    /**
+     * Streams every service instance, shard by shard, listing and reading
+     * them as the stream is consumed.  The stream should be closed if it is
+     * not consumed to the end.
+     *
+     * @throws java.io.UncheckedIOException from the stream if the repository
+     *                                      cannot be read
+     */
+    public Stream<ServiceInstance> stream() {
+        return fetcher.stream(pageToken -> records.list(pageToken, broker.getRepositoryListPageSize()),
+                this::fetch);
+    }
 
-        logger.debug("Loading file {}", filename);
+    /**
+     * Reads every service instance of a plan.
+     */
+    public List<ServiceInstance> findByPlan(String planId) throws IOException {
+        return index.find("plan", planId);
+    }
 
-        GetObjectResult<InputStream> input = s3.getObject(bucket, filename);
+    /**
+     * Reads every service instance of a service definition.
+     */
+    public List<ServiceInstance> findByServiceDefinition(String serviceDefinitionId) throws IOException {
+        return index.find("service", serviceDefinitionId);
+    }
+
+    private ServiceInstance fetch(String key) throws IOException {
+        String id = keys.getId(key);
+        return id == null ? null : find(id);
+    }
 
-        return objectMapper.readValue(input.getObject(), ServiceInstance.class);
+    /**
+     * Reads a service instance from the store, neither using nor filling
+     * the cache.
+     */
+    private ServiceInstance load(String id) throws IOException {
+        StoredObject object = records.get(id, null);
+        if (object == null)
+            return null;
+        try (InputStream content = object.getContent()) {
+            ServiceInstance instance = codec.decode(content, ServiceInstance.class);
+            instance.setETag(object.getETag());
+            return instance;
+        }
     }
 
-    public void delete(String id) {
-        s3.deleteObject(bucket, getFilename(id));
+    private Stream<ServiceInstance> streamUncached() {
+        return fetcher.stream(pageToken -> records.list(pageToken, broker.getRepositoryListPageSize()), key -> {
+            String id = keys.getId(key);
+            return id == null ? null : load(id);
+        });
     }
 
-}
\ No newline at end of file
+}
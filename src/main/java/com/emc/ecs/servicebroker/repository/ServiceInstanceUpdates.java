@@ -0,0 +1,89 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-modify-write of a stored service instance.
+ *
+ * The change is applied to a fresh copy of the instance and saved with
+ * If-Match, so a concurrent save of the same instance is never lost: when
+ * the save is rejected the instance is read again and the change re-applied,
+ * a bounded number of times.  Changes may therefore run more than once and
+ * should only modify the instance they are given.
+ */
+public final class ServiceInstanceUpdates {
+    private static final Logger logger = LoggerFactory.getLogger(ServiceInstanceUpdates.class);
+
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF = 20;
+
+    @FunctionalInterface
+    public interface Change<T> {
+        /**
+         * @param instance the stored instance, or {@code null} if there is
+         *                 none, in which case nothing is saved
+         * @return a result for the caller
+         */
+        T apply(ServiceInstance instance) throws IOException;
+    }
+
+    private ServiceInstanceUpdates() {
+    }
+
+    /**
+     * Applies a change to an instance and saves it, retrying on conflict.
+     *
+     * @return the result of the change that was saved
+     */
+    public static <T> T update(ServiceInstanceRepository repository, String id, Change<T> change)
+            throws IOException {
+        return update(repository, id, null, change);
+    }
+
+    /**
+     * Applies a change to an instance the caller has already read and saves
+     * it.  The instance is read again only if the save conflicts.
+     *
+     * @return the result of the change that was saved
+     */
+    public static <T> T update(ServiceInstanceRepository repository, ServiceInstance instance, Change<T> change)
+            throws IOException {
+        return update(repository, instance.getServiceInstanceId(), instance, change);
+    }
+
+    private static <T> T update(ServiceInstanceRepository repository, String id, ServiceInstance current,
+                                Change<T> change) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            ServiceInstance instance = current != null ? current : repository.find(id);
+            current = null;
+            T result = change.apply(instance);
+            if (instance == null)
+                return result;
+            try {
+                repository.save(instance);
+                return result;
+            } catch (RepositoryConflictException e) {
+                if (attempt >= MAX_ATTEMPTS)
+                    throw e;
+                logger.info("Service instance {} changed while being updated, retrying (attempt {} of {})",
+                        id, attempt + 1, MAX_ATTEMPTS);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private static void backoff(int attempt) throws InterruptedIOException {
+        try {
+            // Jittered so that writers that collided do not collide again
+            Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while retrying update");
+        }
+    }
+}
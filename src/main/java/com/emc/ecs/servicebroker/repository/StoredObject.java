@@ -0,0 +1,36 @@
+package com.emc.ecs.servicebroker.repository;
+
+import java.io.InputStream;
+
+/**
+ * An object read from a {@link RepositoryStore}.  The content stream must be
+ * closed by the reader.
+ */
+public final class StoredObject {
+    private final String eTag;
+    private final InputStream content;
+
+    public StoredObject(String eTag, InputStream content) {
+        this.eTag = eTag;
+        this.content = content;
+    }
+
+    /**
+     * The answer to a conditional read of an object that has not changed.
+     */
+    public static StoredObject notModified(String eTag) {
+        return new StoredObject(eTag, null);
+    }
+
+    public boolean isModified() {
+        return content != null;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public InputStream getContent() {
+        return content;
+    }
+}
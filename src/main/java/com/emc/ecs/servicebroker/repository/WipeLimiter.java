@@ -0,0 +1,197 @@
+package com.emc.ecs.servicebroker.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many delete requests bucket wipes have in flight at once,
+ * adapting the limit to how ECS copes with them.
+ *
+ * The limit is reviewed after each window of requests, as many as the limit
+ * and at least {@link #MIN_WINDOW}.  It is halved when ECS throttled any of
+ * them, more than {@link #MAX_ERROR_RATE} of them failed, or their median
+ * latency rose past {@link #LATENCY_FACTOR} times the usual median, which
+ * unlike the slowest requests is not thrown by the odd pause.  Otherwise, if
+ * the limit held requests back, it is raised: doubled until ECS first pushes
+ * back, then by one.  It starts at a quarter of the most allowed, the
+ * threads deleting objects, and never goes below one.
+ */
+final class WipeLimiter implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(WipeLimiter.class);
+
+    /**
+     * Fewest requests a window has
+     */
+    static final int MIN_WINDOW = 10;
+
+    /**
+     * Fraction of the requests of a window that may fail without ECS being
+     * taken to be overloaded
+     */
+    static final double MAX_ERROR_RATE = 0.05;
+
+    /**
+     * Times the usual median latency the median of a window may reach
+     * without ECS being taken to be overloaded
+     */
+    static final int LATENCY_FACTOR = 3;
+
+    /**
+     * Share of the gap to a window's median latency the usual median moves
+     * by when latency rises, so that it follows a lasting change
+     */
+    private static final int BASELINE_DRIFT = 16;
+
+    enum Outcome {
+        SUCCEEDED, THROTTLED, FAILED
+    }
+
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+    private final long[] latencies;
+    private int limit;
+    private int inFlight;
+    private boolean slowStart = true;
+    private boolean saturated;
+    private int samples;
+    private int throttled;
+    private int failed;
+    private long baseline;
+    private long throttledTotal;
+
+    /**
+     * @param maxLimit most requests in flight at once
+     */
+    WipeLimiter(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.latencies = new long[Math.max(MIN_WINDOW, this.maxLimit)];
+        this.limit = Math.max(1, this.maxLimit / 4);
+    }
+
+    /**
+     * Waits until a request may be made, which must then be released.
+     */
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= limit) {
+                saturated = true;
+                permitFreed.await();
+            }
+            inFlight++;
+            if (inFlight == limit)
+                saturated = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records how a request went, reviewing the limit at the end of a
+     * window.
+     *
+     * @param latencyNanos time the request took
+     */
+    void release(long latencyNanos, Outcome outcome) {
+        lock.lock();
+        try {
+            inFlight--;
+            latencies[samples++] = latencyNanos;
+            if (outcome == Outcome.THROTTLED) {
+                throttled++;
+                throttledTotal++;
+            } else if (outcome == Outcome.FAILED) {
+                failed++;
+            }
+            if (samples >= Math.max(MIN_WINDOW, limit))
+                review();
+            permitFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must hold the lock
+    private void review() {
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        long median = sorted[samples / 2];
+
+        String overloaded = null;
+        if (throttled > 0)
+            overloaded = throttled + " throttled requests";
+        else if (failed > samples * MAX_ERROR_RATE)
+            overloaded = failed + " failed requests";
+        else if (baseline > 0 && median > baseline * LATENCY_FACTOR)
+            overloaded = "median latency of " + TimeUnit.NANOSECONDS.toMillis(median) + " ms";
+
+        if (overloaded != null) {
+            int previous = limit;
+            limit = Math.max(1, limit / 2);
+            slowStart = false;
+            logger.debug("Bucket wipe deletes cut from {} to {} in flight after {}", previous, limit, overloaded);
+        } else if (saturated && limit < maxLimit) {
+            limit = Math.min(maxLimit, slowStart ? limit * 2 : limit + 1);
+        }
+
+        if (baseline == 0 || median < baseline)
+            baseline = median;
+        else
+            baseline += (median - baseline) / BASELINE_DRIFT;
+
+        samples = 0;
+        throttled = 0;
+        failed = 0;
+        saturated = inFlight >= limit;
+    }
+
+    int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getThrottled() {
+        lock.lock();
+        try {
+            return throttledTotal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ecs.bucket-wipe.deletes.limit", this, WipeLimiter::getLimit)
+                .description("Delete requests bucket wipes may have in flight, adapted to how ECS copes")
+                .register(registry);
+        Gauge.builder("ecs.bucket-wipe.deletes.in-flight", this, WipeLimiter::getInFlight)
+                .description("Delete requests of bucket wipes in flight")
+                .register(registry);
+        FunctionCounter.builder("ecs.bucket-wipe.deletes.throttled", this, WipeLimiter::getThrottled)
+                .description("Delete requests of bucket wipes ECS throttled")
+                .register(registry);
+    }
+}
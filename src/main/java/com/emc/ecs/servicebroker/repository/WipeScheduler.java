@@ -0,0 +1,364 @@
+package com.emc.ecs.servicebroker.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs the bucket wipes of the whole broker within fixed limits, so that
+ * deleting many instances at once cannot flood ECS.
+ *
+ * At most the configured number of jobs run at once; the rest wait,
+ * highest priority first and then in the order they were submitted.  Each
+ * running job lists its bucket on a thread of its own and queues deletes,
+ * up to an equal share of the queued deletes allowed between the jobs
+ * running at the time, so a job running alone may use all of them.  A
+ * fixed number of threads carry out the deletes, taking one from each
+ * running job in turn, so a large bucket cannot hold up the others.  Tasks
+ * to retry are queued again after a delay rather than waiting on those
+ * threads.  How many of their requests are in flight at once is limited by
+ * a {@link WipeLimiter}, which adapts to how ECS copes with them.
+ */
+public class WipeScheduler implements MeterBinder, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WipeScheduler.class);
+
+    public static final int DEFAULT_MAX_JOBS = 4;
+    public static final int DEFAULT_THREADS = 32;
+    public static final int DEFAULT_MAX_CONCURRENT = 2000;
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private final int maxJobs;
+    private final int maxQueued;
+    private final ExecutorService listers;
+    private final ExecutorService deleters;
+    private final ScheduledExecutorService retries;
+    private final WipeLimiter limiter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tasksQueued = lock.newCondition();
+    private final Condition spaceFreed = lock.newCondition();
+    private final PriorityQueue<Job> waiting = new PriorityQueue<>(
+            Comparator.comparingInt(Job::getPriority).reversed().thenComparingLong(job -> job.sequence));
+    private final List<Job> running = new ArrayList<>();
+    private long sequence;
+    private int next;
+    private volatile MeterRegistry meterRegistry;
+
+    /**
+     * @param maxJobs   most jobs to run at once
+     * @param threads   threads deleting objects for all jobs
+     * @param maxQueued most deletes queued across all running jobs
+     */
+    public WipeScheduler(int maxJobs, int threads, int maxQueued) {
+        this.maxJobs = maxJobs;
+        this.maxQueued = maxQueued;
+        this.listers = Executors.newCachedThreadPool(daemonThreads("ecs-bucket-wipe-list-"));
+        this.deleters = Executors.newFixedThreadPool(threads, daemonThreads("ecs-bucket-wipe-"));
+        this.retries = Executors.newSingleThreadScheduledExecutor(daemonThreads("ecs-bucket-wipe-retry-"));
+        this.limiter = new WipeLimiter(threads);
+        for (int i = 0; i < threads; i++)
+            deleters.submit(this::work);
+    }
+
+    /**
+     * Queues a job, which is started once there is room for it.
+     *
+     * @param name  what the job works on, such as its bucket
+     * @param start lists the work of the job, queueing it with
+     *              {@link Job#execute}, and calls {@link Job#finish} once it
+     *              has all been done
+     */
+    public Job submit(String name, int priority, Consumer<Job> start) {
+        lock.lock();
+        try {
+            Job job = new Job(name, priority, sequence++, start);
+            waiting.add(job);
+            startWaiting();
+            if (waiting.contains(job))
+                logger.info("Wipe of {} is queued behind {} running and {} waiting", name, running.size(),
+                        waiting.size() - 1);
+            return job;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingJobs() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunningJobs() {
+        lock.lock();
+        try {
+            return running.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedTasks() {
+        lock.lock();
+        try {
+            return running.stream().mapToInt(job -> job.tasks.size()).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Limit shared by the delete requests of every job.
+     */
+    WipeLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        limiter.bindTo(registry);
+        Gauge.builder("ecs.bucket-wipe.jobs.waiting", this, WipeScheduler::getWaitingJobs)
+                .description("Bucket wipes waiting for a running one to finish")
+                .register(registry);
+        Gauge.builder("ecs.bucket-wipe.jobs.running", this, WipeScheduler::getRunningJobs)
+                .description("Bucket wipes running")
+                .register(registry);
+        Gauge.builder("ecs.bucket-wipe.deletes.queued", this, WipeScheduler::getQueuedTasks)
+                .description("Delete requests queued by running bucket wipes")
+                .register(registry);
+    }
+
+    /**
+     * Stops every job, leaving them unfinished.
+     */
+    @Override
+    public void close() {
+        listers.shutdownNow();
+        deleters.shutdownNow();
+        retries.shutdownNow();
+    }
+
+    // Must hold the lock
+    private int jobCapacity() {
+        return Math.max(1, maxQueued / Math.max(1, running.size()));
+    }
+
+    // Must hold the lock
+    private void startWaiting() {
+        while (running.size() < maxJobs && !waiting.isEmpty()) {
+            Job job = waiting.poll();
+            running.add(job);
+            job.started = System.currentTimeMillis();
+            if (meterRegistry != null) {
+                job.deleted = Counter.builder("ecs.bucket-wipe.deletes")
+                        .description("Objects deleted by a running bucket wipe")
+                        .tag("bucket", job.name)
+                        .register(meterRegistry);
+            }
+            listers.execute(() -> job.start.accept(job));
+        }
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted())
+                take().run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                int size = running.size();
+                for (int i = 0; i < size; i++) {
+                    Job job = running.get((next + i) % size);
+                    Runnable task = job.tasks.poll();
+                    if (task != null) {
+                        next = (next + i + 1) % size;
+                        spaceFreed.signalAll();
+                        return task;
+                    }
+                }
+                tasksQueued.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A job's place in the scheduler.
+     */
+    public final class Job {
+        private final String name;
+        private final int priority;
+        private final long sequence;
+        private final Consumer<Job> start;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private final AtomicLong completed = new AtomicLong();
+        private long started;
+        private Counter deleted;
+        private boolean finished;
+
+        private Job(String name, int priority, long sequence, Consumer<Job> start) {
+            this.name = name;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.start = start;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Queues a task that deletes a single object.
+         *
+         * @see #execute(Runnable, int)
+         */
+        public CompletableFuture<Void> execute(Runnable task) throws InterruptedException {
+            return execute(task, 1);
+        }
+
+        /**
+         * Queues a task, first waiting while the job has its share of tasks
+         * queued already.
+         *
+         * @param objects how many objects the task deletes, for metrics
+         * @return completion of the task
+         */
+        public CompletableFuture<Void> execute(Runnable task, int objects) throws InterruptedException {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            Runnable run = track(task, objects, future);
+
+            lock.lockInterruptibly();
+            try {
+                while (tasks.size() >= jobCapacity())
+                    spaceFreed.await();
+                tasks.add(run);
+                tasksQueued.signal();
+            } finally {
+                lock.unlock();
+            }
+            return future;
+        }
+
+        /**
+         * Queues a task again after a delay, ahead of the job's other tasks
+         * and without waiting for room, as its objects were counted when it
+         * was first queued.
+         *
+         * @return completion of the task
+         */
+        public CompletableFuture<Void> retry(Runnable task, long delayMillis) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            Runnable run = track(task, 0, future);
+            try {
+                retries.schedule(() -> {
+                    lock.lock();
+                    try {
+                        tasks.addFirst(run);
+                        tasksQueued.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        private Runnable track(Runnable task, int objects, CompletableFuture<Void> future) {
+            return () -> {
+                Throwable error = null;
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    error = e;
+                }
+                completed.addAndGet(objects);
+                if (deleted != null && objects > 0)
+                    deleted.increment(objects);
+                if (error == null)
+                    future.complete(null);
+                else
+                    future.completeExceptionally(error);
+            };
+        }
+
+        /**
+         * Runs more of the job's listing alongside what it runs already.
+         */
+        public void fork(Runnable lister) {
+            listers.execute(lister);
+        }
+
+        /**
+         * Gives up the job's place to the next waiting job.
+         */
+        public void finish() {
+            lock.lock();
+            try {
+                if (finished)
+                    return;
+                finished = true;
+                running.remove(this);
+                waiting.remove(this);
+                startWaiting();
+                // The jobs left may have a larger share
+                spaceFreed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (deleted != null)
+                meterRegistry.remove(deleted);
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - started);
+            logger.info("Wipe of {} deleted {} objects in {} ms, {} per second", name, completed.get(), elapsed,
+                    completed.get() * 1000 / elapsed);
+        }
+    }
+}
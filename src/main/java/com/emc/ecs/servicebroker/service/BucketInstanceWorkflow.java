@@ -5,6 +5,8 @@ import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.model.ReclaimPolicy;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdates;
+import com.emc.ecs.servicebroker.repository.WipeScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
@@ -17,6 +19,7 @@ import java.util.stream.Collectors;
 
 public class BucketInstanceWorkflow extends InstanceWorkflowImpl {
     private static final Logger logger = LoggerFactory.getLogger(BucketInstanceWorkflow.class);
+    private static final String WIPE_PRIORITY = "wipe-priority";
 
     BucketInstanceWorkflow(ServiceInstanceRepository repo, EcsService ecs) {
         super(repo, ecs);
@@ -48,7 +51,7 @@ public class BucketInstanceWorkflow extends InstanceWorkflowImpl {
                         return null;
                     case Delete:
                         logger.info("Reclaim Policy is {} for bucket {}, Wiping and Deleting bucket", reclaimPolicy, ecs.prefix(instance.getName()));
-                        return ecs.wipeAndDeleteBucket(id);
+                        return ecs.wipeAndDeleteBucket(id, getWipePriority(instance.getServiceSettings()));
                     default:
                         throw new ServiceBrokerException("ReclaimPolicy "+reclaimPolicy+" not supported");
                 }
@@ -58,16 +61,29 @@ public class BucketInstanceWorkflow extends InstanceWorkflowImpl {
         }
     }
 
+    private static int getWipePriority(Map<String, Object> settings) {
+        Object priority = settings == null ? null : settings.get(WIPE_PRIORITY);
+        if (priority == null)
+            return WipeScheduler.DEFAULT_PRIORITY;
+        try {
+            return Integer.parseInt(priority.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} {}, wiping at the default priority", WIPE_PRIORITY, priority);
+            return WipeScheduler.DEFAULT_PRIORITY;
+        }
+    }
+
     private void removeInstanceFromReferences(ServiceInstance instance, String id) throws IOException {
         for (String refId : instance.getReferences()) {
             if (!refId.equals(id)) {
-                ServiceInstance ref = instanceRepository.find(refId);
-                Set<String> references = ref.getReferences()
-                        .stream()
-                        .filter((String i) -> ! i.equals(id))
-                        .collect(Collectors.toSet());
-                ref.setReferences(references);
-                instanceRepository.save(ref);
+                ServiceInstanceUpdates.update(instanceRepository, refId, ref -> {
+                    Set<String> references = ref.getReferences()
+                            .stream()
+                            .filter((String i) -> ! i.equals(id))
+                            .collect(Collectors.toSet());
+                    ref.setReferences(references);
+                    return null;
+                });
             }
         }
     }
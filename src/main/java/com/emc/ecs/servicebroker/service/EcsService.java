@@ -9,7 +9,8 @@ import com.emc.ecs.servicebroker.model.PlanProxy;
 import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.model.ReclaimPolicy;
 import com.emc.ecs.servicebroker.repository.BucketWipeFactory;
-import com.emc.ecs.tool.BucketWipeOperations;
+import com.emc.ecs.servicebroker.repository.BucketWipeJob;
+import com.emc.ecs.servicebroker.repository.ResumableBucketWipe;
 import com.emc.ecs.tool.BucketWipeResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +20,8 @@ import org.springframework.cloud.servicebroker.exception.ServiceInstanceExistsEx
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -53,7 +56,10 @@ public class EcsService {
     @Autowired
     private BucketWipeFactory bucketWipeFactory;
 
-    private BucketWipeOperations bucketWipe;
+    @Autowired
+    private TopologyCache topology;
+
+    private ResumableBucketWipe bucketWipe;
 
     private String replicationGroupID;
     private String objectEndpoint;
@@ -78,11 +84,23 @@ public class EcsService {
             prepareBucketWipe();
         } catch (EcsManagementClientException e) {
             throw new ServiceBrokerException(e);
-        } catch (URISyntaxException e) {
+        } catch (URISyntaxException | IOException e) {
             throw new ServiceBrokerException(e);
         }
     }
 
+    @PreDestroy
+    void close() {
+        if (bucketWipe == null)
+            return;
+        bucketWipe.close();
+        try {
+            bucketWipe.getJobs().close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the bucket wipe job store", e);
+        }
+    }
+
     CompletableFuture deleteBucket(String id) {
         try {
             if (bucketExists(prefix(id))) {
@@ -97,7 +115,7 @@ public class EcsService {
         }
     }
 
-    CompletableFuture wipeAndDeleteBucket(String id) {
+    CompletableFuture wipeAndDeleteBucket(String id, int priority) {
         try {
             if (!bucketExists(prefix(id))) {
                 logger.info("Bucket {} no longer exists, assume already deleted", prefix(id));
@@ -107,15 +125,46 @@ public class EcsService {
             addUserToBucket(id, broker.getRepositoryUser());
 
             logger.info("Started Wiped of bucket {}", prefix(id));
-            BucketWipeResult result = bucketWipeFactory.newBucketWipeResult();
-            bucketWipe.deleteAllObjects(prefix(id), "", result);
+            BucketWipeResult result = bucketWipe.start(id, prefix(id), priority);
 
-            return result.getCompletedFuture().thenRun(() -> bucketWipeCompleted(result, id));
+            return whenBucketWiped(result, id);
         } catch (Exception e) {
             throw new ServiceBrokerException(e);
         }
     }
 
+    /**
+     * Carries on with the bucket wipes left unfinished by a previous run of
+     * the broker, deleting each bucket once it is wiped.  Wipes another
+     * broker replica is running are left to it.
+     *
+     * @return the completion of each, by service instance ID
+     */
+    Map<String, CompletableFuture> resumeBucketWipes() {
+        Map<String, CompletableFuture> wipes = new HashMap<>();
+        try {
+            for (BucketWipeJob job : bucketWipe.getUnfinished()) {
+                String id = job.getServiceInstanceId();
+                if (!bucketExists(prefix(id))) {
+                    logger.info("Bucket {} no longer exists, assume already wiped and deleted", job.getBucket());
+                    bucketWipe.finish(id);
+                    wipes.put(id, CompletableFuture.completedFuture(null));
+                    continue;
+                }
+
+                BucketWipeResult result = bucketWipe.resume(job);
+                if (result == null) {
+                    logger.info("Wipe of bucket {} is running on another broker replica", job.getBucket());
+                    continue;
+                }
+                wipes.put(id, whenBucketWiped(result, id));
+            }
+        } catch (Exception e) {
+            logger.error("Unable to resume bucket wipes, they will be resumed on restart", e);
+        }
+        return wipes;
+    }
+
     Boolean getBucketFileEnabled(String id) throws EcsManagementClientException {
         ObjectBucketInfo b = BucketAction.get(connection, prefix(id), broker.getNamespace());
         return b.getFsAccessEnabled();
@@ -311,23 +360,21 @@ public class EcsService {
         if (broker.getObjectEndpoint() != null) {
             objectEndpoint = broker.getObjectEndpoint();
         } else {
-            List<BaseUrl> baseUrlList = BaseUrlAction.list(connection);
+            List<BaseUrl> baseUrlList = topology.getBaseUrls();
             String urlId;
 
             if (baseUrlList.isEmpty()) {
                 throw new ServiceBrokerException(
                         "No object endpoint or base URL available");
             } else if (broker.getBaseUrl() != null) {
-                urlId = baseUrlList.stream()
-                        .filter(b -> broker.getBaseUrl().equals(b.getName()))
-                        .findFirst()
+                urlId = topology.findBaseUrl(broker.getBaseUrl())
                         .orElseThrow(() -> new ServiceBrokerException("configured ECS Base URL not found"))
                         .getId();
             } else {
                 urlId = detectDefaultBaseUrlId(baseUrlList);
             }
 
-            objectEndpoint = BaseUrlAction.get(connection, urlId)
+            objectEndpoint = topology.getBaseUrlInfo(urlId)
                     .getNamespaceUrl(broker.getNamespace(), false);
         }
         if (broker.getRepositoryEndpoint() == null)
@@ -360,20 +407,15 @@ public class EcsService {
 
     private String getNamespaceURL(String namespace, Boolean useSSL, String baseURL)
             throws EcsManagementClientException {
-        List<BaseUrl> baseUrlList = BaseUrlAction.list(connection);
-        String urlId = baseUrlList.stream()
-                .filter(b -> baseURL.equals(b.getName()))
-                .findFirst()
+        String urlId = topology.findBaseUrl(baseURL)
                 .orElseThrow(() -> new ServiceBrokerException("Configured ECS namespace not found."))
                 .getId();
-        return BaseUrlAction.get(connection, urlId).getNamespaceUrl(namespace, useSSL);
+        return topology.getBaseUrlInfo(urlId).getNamespaceUrl(namespace, useSSL);
     }
 
     private void lookupReplicationGroupID()
             throws EcsManagementClientException {
-        replicationGroupID = ReplicationGroupAction.list(connection).stream()
-                .filter(r -> broker.getReplicationGroup().equals(r.getName()))
-                .findFirst()
+        replicationGroupID = topology.findReplicationGroup(broker.getReplicationGroup())
                 .orElseThrow(() -> new ServiceBrokerException("Configured ECS replication group not found."))
                 .getId();
     }
@@ -407,7 +449,7 @@ public class EcsService {
         }
     }
 
-    private void prepareBucketWipe() throws URISyntaxException {
+    private void prepareBucketWipe() throws IOException, URISyntaxException {
         bucketWipe = bucketWipeFactory.getBucketWipe(broker);
     }
 
@@ -503,6 +545,19 @@ public class EcsService {
         }
     }
 
+    private CompletableFuture whenBucketWiped(BucketWipeResult result, String id) {
+        return result.getCompletedFuture()
+                .thenRun(() -> bucketWipeCompleted(result, id))
+                .whenComplete((done, exception) -> {
+                    // A failed wipe is kept on record, and started over if
+                    // the bucket is wiped again
+                    if (result.getErrors().isEmpty())
+                        bucketWipe.finish(id);
+                    else
+                        bucketWipe.fail(id);
+                });
+    }
+
     /**
      * Handle extra steps after a bucket wipe has completed.
      *
@@ -6,6 +6,7 @@ import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.repository.LastOperationSerializer;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdates;
 import com.emc.object.s3.S3Exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +19,7 @@ import org.springframework.cloud.servicebroker.service.ServiceInstanceService;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -53,6 +55,21 @@ public class EcsServiceInstanceService implements ServiceInstanceService {
         this.repository = repo;
     }
 
+    /**
+     * Completes the deletes of instances whose bucket wipe was cut short by a
+     * restart, once the wipe is done.
+     */
+    @PostConstruct
+    void resumeAsyncDeletes() {
+        ecs.resumeBucketWipes().forEach((serviceInstanceId, future) -> {
+            LOG.info("Resuming delete of service instance {}", serviceInstanceId);
+            future.handle((result, exception) -> {
+                asyncDeleteCompleted(serviceInstanceId, (Throwable) exception);
+                return null;
+            });
+        });
+    }
+
     @Override
     public Mono<CreateServiceInstanceResponse> createServiceInstance(CreateServiceInstanceRequest request) {
         String serviceInstanceId = request.getServiceInstanceId();
@@ -111,8 +128,10 @@ public class EcsServiceInstanceService implements ServiceInstanceService {
             LOG.info("Deleting service instance {}", serviceInstanceId);
             CompletableFuture future = workflow.delete(serviceInstanceId);
             if (future != null) {
-                instance.setLastOperation(new LastOperationSerializer(OperationState.IN_PROGRESS, "Deleting", true));
-                repository.save(instance);
+                ServiceInstanceUpdates.update(repository, instance, stored -> {
+                    stored.setLastOperation(new LastOperationSerializer(OperationState.IN_PROGRESS, "Deleting", true));
+                    return null;
+                });
 
                 // Setup callback to handle asynchronous delete completion
                 future.handle((result, exception) -> {
@@ -157,8 +176,10 @@ public class EcsServiceInstanceService implements ServiceInstanceService {
             LOG.info("Updating service in repo");
             // This shouldn't be needed. The object will be re-versioned
             // repository.delete(serviceInstanceId);
-            instance.update(request, serviceSettings);
-            repository.save(instance);
+            ServiceInstanceUpdates.update(repository, instance, stored -> {
+                stored.update(request, serviceSettings);
+                return null;
+            });
             return Mono.just(UpdateServiceInstanceResponse.builder()
                     .async(false)
                     .build());
@@ -228,27 +249,28 @@ public class EcsServiceInstanceService implements ServiceInstanceService {
 
     private void asyncDeleteCompleted(String instanceId, Throwable exception) {
         try {
-            ServiceInstance instance = repository.find(instanceId);
-            if (instance == null) {
-                LOG.error("Unable to find instance {} when delete completed async", instanceId);
-            }
+            ServiceInstanceUpdates.update(repository, instanceId, instance -> {
+                if (instance == null) {
+                    LOG.error("Unable to find instance {} when delete completed async", instanceId);
+                    return null;
+                }
 
-            if (exception == null) {
-                instance.setLastOperation(new LastOperationSerializer(OperationState.SUCCEEDED, "Delete Complete", true));
-            } else {
-                String errorMsg;
-                if (exception instanceof CompletionException && exception.getCause() != null) {
-                    errorMsg = exception.getCause().getMessage();
+                if (exception == null) {
+                    instance.setLastOperation(new LastOperationSerializer(OperationState.SUCCEEDED, "Delete Complete", true));
                 } else {
-                    errorMsg = exception.getMessage();
+                    String errorMsg;
+                    if (exception instanceof CompletionException && exception.getCause() != null) {
+                        errorMsg = exception.getCause().getMessage();
+                    } else {
+                        errorMsg = exception.getMessage();
+                    }
+
+                    instance.setLastOperation(new LastOperationSerializer(OperationState.FAILED, errorMsg, true));
                 }
-
-                instance.setLastOperation(new LastOperationSerializer(OperationState.FAILED, errorMsg, true));
-            }
-
-            repository.save(instance);
+                return null;
+            });
         } catch (IOException e) {
-            LOG.error("Unable to find instance {} when delete completed async");
+            LOG.error("Unable to record async delete of instance {} as completed", instanceId, e);
         }
     }
 }
@@ -6,6 +6,7 @@ import com.emc.ecs.servicebroker.model.PlanProxy;
 import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdates;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
 
 import javax.xml.bind.JAXBException;
@@ -44,13 +45,14 @@ public class NamespaceInstanceWorkflow extends InstanceWorkflowImpl {
     private void removeInstanceFromReferences(ServiceInstance instance, String id) throws IOException, JAXBException {
         for (String refId : instance.getReferences()) {
             if (!refId.equals(id)) {
-                ServiceInstance ref = instanceRepository.find(refId);
-                Set<String> references = ref.getReferences()
-                        .stream()
-                        .filter((String i) -> ! i.equals(id))
-                        .collect(Collectors.toSet());
-                ref.setReferences(references);
-                instanceRepository.save(ref);
+                ServiceInstanceUpdates.update(instanceRepository, refId, ref -> {
+                    Set<String> references = ref.getReferences()
+                            .stream()
+                            .filter((String i) -> ! i.equals(id))
+                            .collect(Collectors.toSet());
+                    ref.setReferences(references);
+                    return null;
+                });
             }
         }
      }
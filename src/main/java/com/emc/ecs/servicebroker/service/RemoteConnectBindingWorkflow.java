@@ -4,6 +4,7 @@ import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceBinding;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdates;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
 import org.springframework.cloud.servicebroker.exception.ServiceInstanceBindingExistsException;
 import org.springframework.cloud.servicebroker.exception.ServiceInstanceDoesNotExistException;
@@ -29,13 +30,11 @@ public class RemoteConnectBindingWorkflow extends BindingWorkflowImpl {
 
     @Override
     public String createBindingUser() throws ServiceBrokerException, IOException, JAXBException {
-        ServiceInstance instance = instanceRepository.find(instanceId);
-        if (instance == null)
-            throw new ServiceInstanceDoesNotExistException(instanceId);
-
-        String secretKey = instance.addRemoteConnectionKey(bindingId);
-        instanceRepository.save(instance);
-        return secretKey;
+        return ServiceInstanceUpdates.update(instanceRepository, instanceId, instance -> {
+            if (instance == null)
+                throw new ServiceInstanceDoesNotExistException(instanceId);
+            return instance.addRemoteConnectionKey(bindingId);
+        });
     }
 
     @Override
@@ -51,11 +50,12 @@ public class RemoteConnectBindingWorkflow extends BindingWorkflowImpl {
     @Override
     public void removeBinding(ServiceInstanceBinding binding)
             throws EcsManagementClientException, IOException, JAXBException {
-        ServiceInstance instance = instanceRepository.find(instanceId);
-        if (instance == null)
-            throw new ServiceInstanceDoesNotExistException(instanceId);
-        instance.removeRemoteConnectionKey(bindingId);
-        instanceRepository.save(instance);
+        ServiceInstanceUpdates.update(instanceRepository, instanceId, instance -> {
+            if (instance == null)
+                throw new ServiceInstanceDoesNotExistException(instanceId);
+            instance.removeRemoteConnectionKey(bindingId);
+            return null;
+        });
     }
 
 }
@@ -6,6 +6,7 @@ import com.emc.ecs.servicebroker.model.PlanProxy;
 import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdates;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
@@ -14,6 +15,7 @@ import javax.xml.bind.JAXBException;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 public class RemoteConnectionInstanceWorkflow extends InstanceWorkflowImpl {
@@ -41,13 +43,15 @@ public class RemoteConnectionInstanceWorkflow extends InstanceWorkflowImpl {
         validateCredentials(remoteInstance, remoteConnection);
         validateSettings(remoteInstance, serviceDef, plan, parameters);
 
-        remoteInstance.addReference(instanceId);
-        instanceRepository.save(remoteInstance);
+        Set<String> references = ServiceInstanceUpdates.update(instanceRepository, remoteInstance, stored -> {
+            stored.addReference(instanceId);
+            return stored.getReferences();
+        });
 
         // return this new instance to be saved
         ServiceInstance newInstance = new ServiceInstance(createRequest);
         newInstance.setName(remoteInstance.getName());
-        newInstance.setReferences(remoteInstance.getReferences());
+        newInstance.setReferences(references);
         return newInstance;
     }
 
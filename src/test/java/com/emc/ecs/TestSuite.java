@@ -2,8 +2,22 @@ package com.emc.ecs;
 
 import com.emc.ecs.servicebroker.config.CatalogConfigTest;
 import com.emc.ecs.servicebroker.model.ServiceDefinitionProxyTest;
+import com.emc.ecs.servicebroker.repository.KeyMigrationTest;
+import com.emc.ecs.servicebroker.repository.RecordIndexTest;
+import com.emc.ecs.servicebroker.repository.RepositoryLeaseTest;
+import com.emc.ecs.servicebroker.repository.ResumableBucketWipeTest;
+import com.emc.ecs.servicebroker.repository.WipeSchedulerTest;
+import com.emc.ecs.servicebroker.repository.PartitionedBucketWipeTest;
+import com.emc.ecs.servicebroker.repository.KeySpaceTest;
+import com.emc.ecs.servicebroker.repository.WipeLimiterTest;
+import com.emc.ecs.servicebroker.repository.LocalRepositoryStoreTest;
+import com.emc.ecs.servicebroker.repository.RecordCodecTest;
+import com.emc.ecs.servicebroker.repository.RecordFetcherTest;
+import com.emc.ecs.servicebroker.repository.S3ClientFactoryTest;
+import com.emc.ecs.servicebroker.repository.RepositoryCacheTest;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceBindingRepositoryTest;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepositoryTest;
+import com.emc.ecs.servicebroker.repository.ServiceInstanceUpdatesTest;
 import com.emc.ecs.management.sdk.*;
 import com.emc.ecs.servicebroker.service.*;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
@@ -23,6 +37,10 @@ import org.junit.runners.Suite.SuiteClasses;
         BucketQuotaActionTest.class,
         BucketRetentionActionTest.class,
         ConnectionTest.class,
+        TokenManagerTest.class,
+        RetryPolicyTest.class,
+        ResponseCacheTest.class,
+        CircuitBreakerTest.class,
         NamespaceActionTest.class,
         NamespaceQuotaActionTest.class,
         NamespaceRetentionActionTest.class,
@@ -30,11 +48,26 @@ import org.junit.runners.Suite.SuiteClasses;
         ObjectUserActionTest.class,
         ObjectUserSecretActionTest.class,
         ReplicationGroupActionTest.class,
+        TopologyCacheTest.class,
         EcsServiceTest.class,
         CatalogConfigTest.class,
         ServiceDefinitionProxyTest.class,
         ServiceInstanceBindingRepositoryTest.class,
         ServiceInstanceRepositoryTest.class,
+        RepositoryCacheTest.class,
+        ServiceInstanceUpdatesTest.class,
+        LocalRepositoryStoreTest.class,
+        RecordCodecTest.class,
+        S3ClientFactoryTest.class,
+        RecordFetcherTest.class,
+        KeyMigrationTest.class,
+        RecordIndexTest.class,
+        RepositoryLeaseTest.class,
+        ResumableBucketWipeTest.class,
+        WipeSchedulerTest.class,
+        PartitionedBucketWipeTest.class,
+        KeySpaceTest.class,
+        WipeLimiterTest.class,
         EcsServiceInstanceBindingServiceTest.class,
         EcsServiceInstanceServiceTest.class,
         BucketBindingWorkflowTest.class,
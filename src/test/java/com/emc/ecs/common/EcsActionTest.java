@@ -21,7 +21,7 @@ import static com.emc.ecs.common.Fixtures.RG_ID;
 public abstract class EcsActionTest {
 	
     @Autowired
-    private BrokerConfig broker;
+    protected BrokerConfig broker;
 
     protected Connection connection;
     protected String namespace;
@@ -28,6 +28,11 @@ public class BucketActionTest extends EcsActionTest {
         assertFalse(BucketAction.exists(connection, bucket, namespace));
     }
 
+    @Test
+    public void testBucketDoesNotExistAsync() {
+        assertFalse(BucketAction.existsAsync(connection, bucket, namespace).join());
+    }
+
     @Test
     public void createExistsAndDeleteBucket()
             throws EcsManagementClientException,
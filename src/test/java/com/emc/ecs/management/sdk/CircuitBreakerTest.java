@@ -0,0 +1,63 @@
+package com.emc.ecs.management.sdk;
+
+import com.emc.ecs.servicebroker.EcsManagementUnavailableException;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker("https://127.0.0.1:4443",
+            50, 80, 100, 10, 50);
+
+    @Test
+    public void testOpensOnFailureRate() {
+        record(3, false, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        record(3, true, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        record(1, false, FAST);
+        record(4, false, SLOW);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test(expected = EcsManagementUnavailableException.class)
+    public void testFailsFastWhenOpen() {
+        record(5, true, FAST);
+        circuitBreaker.acquirePermission();
+    }
+
+    @Test
+    public void testClosesAfterSuccessfulTrialCalls() throws InterruptedException {
+        record(5, true, FAST);
+        Thread.sleep(60);
+        record(3, false, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getBufferedCalls());
+    }
+
+    @Test
+    public void testReopensAfterFailedTrialCall() throws InterruptedException {
+        record(5, true, FAST);
+        Thread.sleep(60);
+        record(1, true, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void record(int calls, boolean failed, long duration) {
+        for (int i = 0; i < calls; i++) {
+            circuitBreaker.acquirePermission();
+            circuitBreaker.onResult(duration, failed);
+        }
+    }
+
+}
@@ -2,9 +2,31 @@ package com.emc.ecs.management.sdk;
 
 import com.emc.ecs.servicebroker.EcsManagementClientException;
 import com.emc.ecs.common.EcsActionTest;
+import com.emc.ecs.management.sdk.model.BucketAcl;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
 import org.junit.After;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 
+import javax.ws.rs.client.Client;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.emc.ecs.management.sdk.Constants.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.Assert.*;
 
 public class ConnectionTest extends EcsActionTest {
@@ -22,4 +44,179 @@ public class ConnectionTest extends EcsActionTest {
         assertNotNull(connection.getAuthToken());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testClientIsSharedAndConnectionsReturnedToPool() throws EcsManagementClientException {
+        connection.login();
+        Client client = connection.getClient();
+        assertTrue(ReplicationGroupAction.list(connection).size() > 0);
+        assertTrue(ReplicationGroupAction.list(connection).size() > 0);
+        assertSame(client, connection.getClient());
+        assertEquals(0, connection.getPoolStats().getLeased());
+        assertTrue(connection.getPoolStats().getAvailable() > 0);
+    }
+
+    @Test
+    public void testCallsAreTimedByAction() throws EcsManagementClientException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        connection.bindTo(registry);
+
+        ReplicationGroupAction.list(connection);
+        assertFalse(BucketAction.exists(connection, "testbucket2", namespace));
+
+        Timer listTimer = registry.find("ecs.management.requests")
+                .tag("method", "get")
+                .tag("action", "vdc.data-service.vpools")
+                .tag("status", "2xx")
+                .tag("relogin", "false")
+                .timer();
+        assertNotNull(listTimer);
+        assertEquals(1, listTimer.count());
+
+        assertNotNull(registry.find("ecs.management.requests")
+                .tag("action", "bucket.info")
+                .tag("status", "4xx")
+                .timer());
+        assertEquals(1.0, registry.find("ecs.management.errors")
+                .tag("action", "bucket.info")
+                .tag("error", "400")
+                .counter().count(), 0.0);
+        assertNotNull(registry.find("ecs.management.login").tag("outcome", "success").timer());
+    }
+
+    @Test
+    public void testRepeatedGetsAreServedFromCache() throws EcsManagementClientException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        connection.setResponseCache(new ResponseCache(ResponseCache.DEFAULT_MAX_SIZE, ResponseCache.DEFAULT_TTL,
+                Collections.singletonMap("vdc.data-service.vpools", ResponseCache.DEFAULT_TTL)));
+        connection.bindTo(registry);
+
+        int size = ReplicationGroupAction.list(connection).size();
+        assertEquals(size, ReplicationGroupAction.list(connection).size());
+
+        assertEquals(1, registry.find("ecs.management.requests")
+                .tag("action", "vdc.data-service.vpools")
+                .tag("endpoint", "cache")
+                .timer().count());
+        assertEquals(1.0, registry.find("ecs.management.cache.requests")
+                .tag("action", "vdc.data-service.vpools")
+                .tag("result", "hit")
+                .counter().count(), 0.0);
+        assertEquals(1.0, registry.find("ecs.management.cache.requests")
+                .tag("result", "miss")
+                .counter().count(), 0.0);
+    }
+
+    @Test
+    public void testBindingReadsBucketInfoOnce() throws Exception {
+        WireMockServer server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        Connection ecs = new Connection("http://127.0.0.1:" + server.port(), "root", "secret");
+        try {
+            server.stubFor(get(urlPathEqualTo("/login"))
+                    .willReturn(xml("<loggedIn><user>root</user></loggedIn>").withHeader("X-SDS-AUTH-TOKEN", "token")));
+            server.stubFor(get(urlPathEqualTo("/object/bucket/b/info")).willReturn(xml(
+                    "<bucket_info><name>b</name><namespace>ns</namespace><fs_access_enabled>true</fs_access_enabled>"
+                            + "</bucket_info>")));
+            server.stubFor(get(urlPathEqualTo("/object/bucket/b/acl")).willReturn(xml(
+                    "<bucket_acl><bucket>b</bucket><namespace>ns</namespace><acl><user_acl><user>root</user>"
+                            + "<permission>full_control</permission></user_acl></acl></bucket_acl>")));
+            server.stubFor(put(urlPathEqualTo("/object/bucket/b/acl")).willReturn(xml(null)));
+            server.stubFor(post(urlPathEqualTo("/object/users")).willReturn(xml(
+                    "<user_secret_key><link rel=\"self\" href=\"/object/user-secret-keys/u\"/></user_secret_key>")));
+            server.stubFor(post(urlPathEqualTo("/object/user-secret-keys/u")).willReturn(xml(
+                    "<user_secret_key><secret_key>key</secret_key></user_secret_key>")));
+            server.stubFor(get(urlPathEqualTo("/object/user-secret-keys/u")).willReturn(xml(
+                    "<user_secret_keys><secret_key_1>key</secret_key_1></user_secret_keys>")));
+
+            // The calls of EcsService#getBucketFileEnabled, then of creating a
+            // binding: the user and its key, adding it to the bucket's ACL
+            // and checking file access, once there and once more after
+            assertTrue(BucketAction.get(ecs, "b", "ns").getFsAccessEnabled());
+            ObjectUserAction.create(ecs, "u", "ns");
+            ObjectUserSecretAction.create(ecs, "u");
+            assertEquals("key", ObjectUserSecretAction.list(ecs, "u").get(0).getSecretKey());
+            BucketAcl acl = BucketAclAction.get(ecs, "b", "ns");
+            BucketAclAction.update(ecs, "b", acl);
+            assertTrue(BucketAction.get(ecs, "b", "ns").getFsAccessEnabled());
+            assertTrue(BucketAction.get(ecs, "b", "ns").getFsAccessEnabled());
+
+            server.verify(1, getRequestedFor(urlPathEqualTo("/object/bucket/b/info")));
+        } finally {
+            ecs.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSyncCallsInAsyncCallbacksDoNotWaitOnIoThreads() throws Exception {
+        connection.setIoThreads(1);
+        CompletableFuture<Integer> groups = BucketAction.existsAsync(connection, "testbucket2", namespace)
+                .thenApply(exists -> {
+                    try {
+                        return ReplicationGroupAction.list(connection).size();
+                    } catch (EcsManagementClientException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+        assertTrue(groups.get(30, TimeUnit.SECONDS) > 0);
+    }
+
+    @Test
+    public void testResponsesAreClosed() throws EcsManagementClientException {
+        ReplicationGroupAction.list(connection);
+        ReplicationGroupAction.list(connection);
+        assertFalse(BucketAction.exists(connection, "testbucket2", namespace));
+        assertEquals(0, connection.getOpenResponses());
+    }
+
+    @Test
+    public void testUnclosedResponseIsReportedAsLeaked() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        connection.bindTo(registry);
+        connection.setLeakDetection(true);
+
+        connection.handleRemoteCall(GET, connection.getUriBuilder().segment(VDC, DATA_SERVICE, VPOOLS), null);
+        assertEquals(1, connection.getOpenResponses());
+
+        FunctionCounter leaked = registry.find("ecs.management.responses.leaked").functionCounter();
+        for (int i = 0; i < 50 && connection.getOpenResponses() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, connection.getOpenResponses());
+        assertEquals(1.0, leaked.count(), 0.0);
+    }
+
+    @Test
+    public void testFailsOverFromUnhealthyNode() throws Exception {
+        Connection cluster = new Connection(
+                Arrays.asList("https://127.0.0.1:1", broker.getManagementEndpoint()),
+                broker.getUsername(), broker.getPassword(), broker.getCertificate());
+        cluster.setHealthCheckInterval(100);
+        try {
+            ManagementNode dead = cluster.getNodes().get(0);
+            ManagementNode live = cluster.getNodes().get(1);
+            cluster.selectNode();
+            for (int i = 0; i < 100 && dead.isHealthy(); i++)
+                Thread.sleep(50);
+            assertFalse(dead.isHealthy());
+            assertTrue(live.isHealthy());
+
+            for (int i = 0; i < 4; i++) {
+                assertSame(live, cluster.selectNode());
+                assertTrue(ReplicationGroupAction.list(cluster).size() > 0);
+            }
+            assertNull(dead.getTokenManager().getToken());
+            assertNotNull(live.getTokenManager().getToken());
+            assertEquals(0, live.getOutstanding());
+        } finally {
+            cluster.logout();
+            cluster.close();
+        }
+    }
+
+    private static ResponseDefinitionBuilder xml(String body) {
+        ResponseDefinitionBuilder response = aResponse().withStatus(200).withHeader("Content-Type", "application/xml");
+        return body == null ? response : response.withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body);
+    }
+}
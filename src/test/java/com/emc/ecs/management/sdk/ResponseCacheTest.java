@@ -0,0 +1,108 @@
+package com.emc.ecs.management.sdk;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+    private static final String BUCKET_INFO = "object/bucket/b/info?namespace=ns";
+    private static final String BUCKET_ACL = "object/bucket/b/acl?namespace=ns";
+    private static final String OTHER_BUCKET = "object/bucket/bb/info?namespace=ns";
+    private static final String USER = "object/users/u/info";
+    private static final String VPOOLS = "vdc/data-service/vpools";
+
+    @Test
+    public void testHitAfterPut() {
+        ResponseCache cache = cacheOf("bucket.info");
+        assertNull(cache.get(BUCKET_INFO, "bucket.info"));
+        cache.put(BUCKET_INFO, "bucket.info", Response.ok().build(), cache.generation());
+        assertEquals(200, cache.get(BUCKET_INFO, "bucket.info").getStatus());
+        assertNull(cache.get(OTHER_BUCKET, "bucket.info"));
+    }
+
+    @Test
+    public void testOnlyChosenActionsAreCached() {
+        ResponseCache cache = new ResponseCache();
+        cache.put(BUCKET_INFO, "bucket.info", Response.ok().build(), cache.generation());
+        cache.put(VPOOLS, "vdc.data-service.vpools", Response.ok().build(), cache.generation());
+        assertEquals(200, cache.get(BUCKET_INFO, "bucket.info").getStatus());
+        assertNull(cache.get(VPOOLS, "vdc.data-service.vpools"));
+    }
+
+    @Test
+    public void testOnlySuccessIsCached() {
+        ResponseCache cache = cacheOf("bucket.info", "bucket.acl");
+        cache.put(BUCKET_INFO, "bucket.info", Response.status(404).build(), cache.generation());
+        cache.put(BUCKET_ACL, "bucket.acl", Response.status(500).build(), cache.generation());
+        assertNull(cache.get(BUCKET_INFO, "bucket.info"));
+        assertNull(cache.get(BUCKET_ACL, "bucket.acl"));
+    }
+
+    @Test
+    public void testChangeInvalidatesResource() {
+        ResponseCache cache = cacheOf("action");
+        for (String key : new String[]{BUCKET_INFO, BUCKET_ACL, OTHER_BUCKET, USER})
+            cache.put(key, "action", Response.ok().build(), cache.generation());
+
+        cache.invalidate("object/bucket/b/deactivate?namespace=ns");
+        assertNull(cache.get(BUCKET_INFO, "action"));
+        assertNull(cache.get(BUCKET_ACL, "action"));
+        assertNotNull(cache.get(OTHER_BUCKET, "action"));
+        assertNotNull(cache.get(USER, "action"));
+
+        cache.invalidate("object/bucket");
+        assertNull(cache.get(OTHER_BUCKET, "action"));
+        assertNotNull(cache.get(USER, "action"));
+
+        cache.invalidate("object/users/deactivate");
+        assertNull(cache.get(USER, "action"));
+    }
+
+    @Test
+    public void testAclChangeInvalidatesOnlyAcl() {
+        ResponseCache cache = cacheOf("action");
+        for (String key : new String[]{BUCKET_INFO, BUCKET_ACL})
+            cache.put(key, "action", Response.ok().build(), cache.generation());
+
+        cache.invalidate("object/bucket/b/acl");
+        assertNull(cache.get(BUCKET_ACL, "action"));
+        assertNotNull(cache.get(BUCKET_INFO, "action"));
+
+        cache.invalidate("object/bucket/b/policy?namespace=ns");
+        assertNotNull(cache.get(BUCKET_INFO, "action"));
+    }
+
+    @Test
+    public void testReadBeforeChangeIsNotKept() {
+        ResponseCache cache = cacheOf("bucket.info");
+        long generation = cache.generation();
+        cache.invalidate("object/bucket/b/deactivate?namespace=ns");
+        cache.put(BUCKET_INFO, "bucket.info", Response.ok().build(), generation);
+        assertNull(cache.get(BUCKET_INFO, "bucket.info"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTtlByAction() throws InterruptedException {
+        ResponseCache cache = new ResponseCache(10, 1, Collections.singletonMap("vdc.data-service.vpools", 0L));
+        cache.put(VPOOLS, "vdc.data-service.vpools", Response.ok().build(), cache.generation());
+        assertEquals(0, cache.size());
+
+        cache.put(BUCKET_INFO, "bucket.info", Response.ok().build(), cache.generation());
+        assertEquals(1, cache.size());
+        Thread.sleep(5);
+        assertNull(cache.get(BUCKET_INFO, "bucket.info"));
+    }
+
+    private static ResponseCache cacheOf(String... actions) {
+        Map<String, Long> ttls = new HashMap<>();
+        for (String action : actions)
+            ttls.put(action, ResponseCache.DEFAULT_TTL);
+        return new ResponseCache(ResponseCache.DEFAULT_MAX_SIZE, ResponseCache.DEFAULT_TTL, ttls);
+    }
+}
@@ -0,0 +1,50 @@
+package com.emc.ecs.management.sdk;
+
+import org.junit.Test;
+
+import static com.emc.ecs.management.sdk.Constants.*;
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    private RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000, 10000);
+
+    @Test
+    public void testOnlyIdempotentCallsAreRetried() {
+        assertTrue(retryPolicy.isIdempotent(GET, "bucket.info"));
+        assertTrue(retryPolicy.isIdempotent(PUT, "bucket.acl"));
+        assertTrue(retryPolicy.isIdempotent(POST, "users.deactivate"));
+        assertFalse(retryPolicy.isIdempotent(POST, "bucket"));
+        assertFalse(retryPolicy.isIdempotent(PUT, "bucket.quota"));
+    }
+
+    @Test
+    public void testTransientStatusesAreRetryable() {
+        assertTrue(retryPolicy.isRetryable(503));
+        assertTrue(retryPolicy.isRetryable(500));
+        assertFalse(retryPolicy.isRetryable(400));
+        assertFalse(retryPolicy.isRetryable(404));
+    }
+
+    @Test
+    public void testDelayIsJitteredWithinBackoff() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(retryPolicy.retryDelay(0, 0, null) <= 100);
+            assertTrue(retryPolicy.retryDelay(2, 0, null) <= 400);
+            assertTrue(retryPolicy.retryDelay(2, 0, null) >= 0);
+        }
+    }
+
+    @Test
+    public void testRetryAfterIsHonoured() {
+        assertEquals(2000, retryPolicy.retryDelay(0, 0, "2"));
+    }
+
+    @Test
+    public void testRetriesStopAtLimitAndBudget() {
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.retryDelay(3, 0, null));
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.retryDelay(0, 10000, null));
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.retryDelay(0, 0, "60"));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.emc.ecs.management.sdk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenManagerTest {
+
+    @Test
+    public void testConcurrentLoginsAreCoalesced() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        TokenManager tokenManager = new TokenManager("test", () -> {
+            release.join();
+            return "token-" + logins.incrementAndGet();
+        }, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tokens.add(executor.submit(tokenManager::obtainToken));
+            }
+            while (tokenManager.getWaiting() < 7) {
+                Thread.sleep(10);
+            }
+            release.complete(null);
+
+            for (Future<String> token : tokens) {
+                assertEquals("token-1", token.get());
+            }
+            assertEquals(1, logins.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefreshOnlyReplacesStaleToken() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        TokenManager tokenManager = new TokenManager("test", () -> "token-" + logins.incrementAndGet(), 0);
+
+        assertEquals("token-1", tokenManager.obtainToken());
+        assertEquals("token-2", tokenManager.refresh("token-1"));
+        assertEquals("token-2", tokenManager.refresh("token-1"));
+        assertEquals(2, logins.get());
+    }
+
+    @Test
+    public void testBackgroundRefreshLogsOutReplacedToken() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        List<String> loggedOut = new ArrayList<>();
+        TokenManager tokenManager = new TokenManager("test", () -> "token-" + logins.incrementAndGet(),
+                loggedOut::add, 0);
+
+        tokenManager.refreshInBackground();
+        assertTrue(loggedOut.isEmpty());
+
+        assertEquals("token-1", tokenManager.obtainToken());
+        tokenManager.refreshInBackground();
+        assertEquals("token-2", tokenManager.getToken());
+        assertEquals(Arrays.asList("token-1"), loggedOut);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.emc.ecs.management.sdk;
+
+import com.emc.ecs.common.EcsActionTest;
+import com.emc.ecs.management.sdk.model.BaseUrl;
+import com.emc.ecs.servicebroker.EcsManagementClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.emc.ecs.common.Fixtures.RG_ID;
+import static com.emc.ecs.common.Fixtures.RG_NAME;
+import static org.junit.Assert.*;
+
+public class TopologyCacheTest extends EcsActionTest {
+    private MeterRegistry registry;
+    private TopologyCache topology;
+
+    @Before
+    public void setUp() throws EcsManagementClientException {
+        registry = new SimpleMeterRegistry();
+        connection.bindTo(registry);
+        connection.login();
+        topology = new TopologyCache(connection, 0);
+    }
+
+    @After
+    public void cleanup() throws EcsManagementClientException {
+        topology.close();
+        connection.logout();
+    }
+
+    @Test
+    public void testLookupsAreServedFromCache() throws EcsManagementClientException {
+        for (int i = 0; i < 3; i++) {
+            BaseUrl baseUrl = topology.findBaseUrl("DefaultBaseUrl").get();
+            assertEquals("http://localhost:9020",
+                    topology.getBaseUrlInfo(baseUrl.getId()).getNamespaceUrl(namespace, false));
+            assertEquals(RG_ID, topology.findReplicationGroup(RG_NAME).get().getId());
+            assertEquals(RG_NAME, topology.findReplicationGroupById(RG_ID).get().getName());
+        }
+        assertEquals(2, requests("baseurl"));
+        assertEquals(1, requests("vdc.data-service.vpools"));
+    }
+
+    @Test
+    public void testMissReloadsOnlyWhenStale() throws EcsManagementClientException {
+        assertFalse(topology.findBaseUrl("missing").isPresent());
+        assertFalse(topology.findBaseUrl("missing").isPresent());
+        assertEquals(1, requests("baseurl"));
+    }
+
+    @Test
+    public void testInvalidateAndRefreshReload() throws EcsManagementClientException {
+        assertEquals(2, topology.getBaseUrls().size());
+        topology.invalidate();
+        assertEquals(2, topology.getBaseUrls().size());
+        topology.refresh();
+        assertEquals(3, requests("baseurl"));
+        assertEquals(0, requests("vdc.data-service.vpools"));
+        assertTrue(topology.getLastRefresh() > 0);
+    }
+
+    private long requests(String action) {
+        return registry.find("ecs.management.requests").tag("action", action).timers().stream()
+                .mapToLong(timer -> timer.count()).sum();
+    }
+}
@@ -0,0 +1,136 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.emc.ecs.tool.BucketWipeOperations;
+import com.emc.ecs.tool.BucketWipeResult;
+import com.emc.object.s3.S3Client;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Compares the time and requests taken to wipe a bucket by the per-object
+ * engine of the bucket-wipe library, and by {@link ResumableBucketWipe}
+ * deleting one object at a time and in batches.  A WireMock server stands in
+ * for ECS, answering every request after a fixed delay.
+ *
+ * Run with {@code ./gradlew benchmarkBucketWipe --args='[objects] [delayMillis]'}.
+ */
+public class BucketWipeBenchmark {
+    private static final String BUCKET = "ecs-cf-broker-benchmark";
+    private static final int PAGE_SIZE = 1000;
+    private static final int THREADS = 32;
+    private static final int MAX_CONCURRENT = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int objects = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int delay = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        WireMockServer server = new WireMockServer(wireMockConfig().dynamicPort().containerThreads(THREADS * 2));
+        server.start();
+        stubBucket(server, objects, delay);
+
+        BrokerConfig broker = new BrokerConfig();
+        broker.setRepositoryEndpoint("http://127.0.0.1:" + server.port());
+        broker.setRepositorySecret("secret");
+        S3ClientFactory clientFactory = new S3ClientFactory();
+        S3Client client = clientFactory.getClient(broker);
+        Path folder = Files.createTempDirectory("bucket-wipe-benchmark");
+        LocalRepositoryStore store = new LocalRepositoryStore(folder.resolve("bucket-wipe.log"), false);
+        BucketWipeJobRepository jobs = new BucketWipeJobRepository(store, new RecordCodec());
+
+        System.out.printf("Wiping %d objects, %d ms per request%n", objects, delay);
+        System.out.printf("%-28s %10s %10s %12s%n", "Engine", "Millis", "Requests", "Objects/s");
+        try {
+            server.resetRequests();
+            long start = System.currentTimeMillis();
+            BucketWipeOperations operations = new BucketWipeOperations(client, THREADS, MAX_CONCURRENT);
+            BucketWipeResult result = new BucketWipeResult();
+            operations.deleteAllObjects(BUCKET, "", result);
+            result.getCompletedFuture().get(1, TimeUnit.HOURS);
+            operations.shutdown();
+            report(server, "bucket-wipe per object", start, result);
+
+            run(server, client, jobs, "broker per object", 1, MAX_CONCURRENT);
+            run(server, client, jobs, "broker batched",
+                    ResumableBucketWipe.DEFAULT_BATCH_SIZE, ResumableBucketWipe.DEFAULT_BATCHES_IN_FLIGHT);
+        } finally {
+            store.close();
+            clientFactory.close();
+            server.stop();
+        }
+    }
+
+    private static void run(WireMockServer server, S3Client client, BucketWipeJobRepository jobs, String engine,
+                            int batchSize, int batchesInFlight) throws Exception {
+        server.resetRequests();
+        long start = System.currentTimeMillis();
+        try (ResumableBucketWipe wipe = new ResumableBucketWipe(client, jobs,
+                new WipeScheduler(WipeScheduler.DEFAULT_MAX_JOBS, THREADS, MAX_CONCURRENT),
+                batchSize, batchesInFlight, 1, ResumableBucketWipe.DEFAULT_CHECKPOINT_INTERVAL)) {
+            BucketWipeResult result = wipe.start(engine, BUCKET);
+            result.getCompletedFuture().get(1, TimeUnit.HOURS);
+            report(server, engine, start, result);
+            wipe.finish(engine);
+        }
+    }
+
+    private static void report(WireMockServer server, String engine, long start, BucketWipeResult result) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        if (!result.getErrors().isEmpty())
+            System.out.printf("%s failed: %s%n", engine, result.getErrors());
+        System.out.printf("%-28s %10d %10d %12d%n", engine, elapsed,
+                server.countRequestsMatching(anyRequestedFor(anyUrl()).build()).getCount(),
+                result.getDeletedObjects() * 1000 / elapsed);
+    }
+
+    private static void stubBucket(WireMockServer server, int objects, int delay) {
+        for (int first = 0; first < objects; first += PAGE_SIZE) {
+            int last = Math.min(first + PAGE_SIZE, objects);
+            server.stubFor(get(urlPathEqualTo("/" + BUCKET))
+                    .withQueryParam("marker", first == 0 ? absent() : equalTo(key(first - 1)))
+                    .willReturn(listing(first, last, last < objects).withFixedDelay(delay)));
+        }
+        server.stubFor(delete(urlPathMatching("/" + BUCKET + "/.*"))
+                .willReturn(aResponse().withStatus(204).withFixedDelay(delay)));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/xml")
+                        .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                + "<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"></DeleteResult>")
+                        .withFixedDelay(delay)));
+    }
+
+    private static ResponseDefinitionBuilder listing(int first, int last, boolean truncated) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(BUCKET).append("</Name><MaxKeys>").append(PAGE_SIZE).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        for (int i = first; i < last; i++) {
+            xml.append("<Contents><Key>").append(key(i)).append("</Key>")
+                    .append("<LastModified>2020-01-01T00:00:00.000Z</LastModified>")
+                    .append("<ETag>\"0cc175b9c0f1b6a831c399e269772661\"</ETag><Size>1</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        xml.append("</ListBucketResult>");
+        return aResponse().withStatus(200).withHeader("Content-Type", "application/xml").withBody(xml.toString());
+    }
+
+    private static String key(int i) {
+        return String.format("key-%07d", i);
+    }
+}
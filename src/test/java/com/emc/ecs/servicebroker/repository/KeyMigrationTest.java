@@ -0,0 +1,163 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class KeyMigrationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RecordKeys keys = new RecordKeys("service-instance", 16);
+    private LocalRepositoryStore store;
+    private KeyMigration records;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new LocalRepositoryStore(folder.getRoot().toPath().resolve("service-instance.log"), false);
+        records = new KeyMigration(store, keys);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        records.close();
+        store.close();
+    }
+
+    @Test
+    public void testShardedKeys() {
+        String key = keys.getKey("instance-1");
+        assertTrue(key.matches("[0-9a-f]/service-instance/instance-1\\.json"));
+        assertEquals(key, keys.getKey("instance-1"));
+        assertEquals("instance-1", keys.getId(key));
+        assertEquals("instance-1", keys.getId(keys.getLegacyKey("instance-1")));
+        assertNull(keys.getId("service-instance/notes.txt"));
+
+        List<String> prefixes = keys.getAllPrefixes();
+        assertEquals(17, prefixes.size());
+        assertEquals("00/service-instance/", new RecordKeys("service-instance", 256).getPrefixes().get(0));
+        assertEquals("service-instance/", prefixes.get(16));
+        List<String> sorted = new ArrayList<>(prefixes);
+        sorted.sort(null);
+        assertEquals(sorted, prefixes);
+
+        RecordKeys flat = new RecordKeys("service-instance", 0);
+        assertEquals("service-instance/instance-1.json", flat.getKey("instance-1"));
+        assertEquals(flat.getPrefixes(), flat.getAllPrefixes());
+    }
+
+    @Test
+    public void testLegacyRecordIsMovedWhenRead() throws IOException {
+        store.put(keys.getLegacyKey("instance-1"), bytes("{\"v\":1}"), null);
+
+        StoredObject object = records.get("instance-1", null);
+        assertEquals("{\"v\":1}", read(object));
+        assertNull(store.get(keys.getLegacyKey("instance-1"), null));
+        assertEquals(object.getETag(), store.get(keys.getKey("instance-1"), null).getETag());
+        assertNull(records.get("instance-2", null));
+    }
+
+    @Test
+    public void testMoveDoesNotReplaceNewerRecord() throws IOException {
+        store.put(keys.getLegacyKey("instance-1"), bytes("{\"v\":1}"), null);
+        store.put(keys.getKey("instance-1"), bytes("{\"v\":2}"), null);
+
+        assertTrue(records.move("instance-1"));
+        assertEquals("{\"v\":2}", read(records.get("instance-1", null)));
+        assertNull(store.get(keys.getLegacyKey("instance-1"), null));
+    }
+
+    @Test
+    public void testMoveDoesNotBringBackDeletedRecord() throws IOException {
+        store.put(keys.getLegacyKey("instance-1"), bytes("{\"v\":1}"), null);
+        // The record is deleted after the move has read it but before it
+        // writes the sharded copy
+        KeyMigration racing = new KeyMigration(new RepositoryStore() {
+            @Override
+            public StoredObject get(String key, String ifNoneMatch) throws IOException {
+                return store.get(key, ifNoneMatch);
+            }
+
+            @Override
+            public String put(String key, byte[] content, int offset, int length, String ifMatch)
+                    throws IOException {
+                return store.put(key, content, offset, length, ifMatch);
+            }
+
+            @Override
+            public String putIfAbsent(String key, byte[] content) throws IOException {
+                records.delete("instance-1");
+                return store.putIfAbsent(key, content);
+            }
+
+            @Override
+            public void delete(String key) throws IOException {
+                store.delete(key);
+            }
+
+            @Override
+            public RepositoryPage<String> list(String prefix, String pageToken, int limit) throws IOException {
+                return store.list(prefix, pageToken, limit);
+            }
+        }, keys);
+
+        assertFalse(racing.move("instance-1"));
+        assertNull(store.get(keys.getKey("instance-1"), null));
+        assertNull(store.get(keys.getLegacyKey("instance-1"), null));
+    }
+
+    @Test
+    public void testMoveAllAndList() throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            String id = "instance-" + i;
+            ids.add(id);
+            store.put(i % 2 == 0 ? keys.getLegacyKey(id) : keys.getKey(id), bytes("{}"), null);
+        }
+        assertEquals(ids, listIds(7));
+
+        assertEquals(25, records.moveAll());
+        assertEquals(0, records.moveAll());
+        assertTrue(store.list(keys.getLegacyPrefix()).isEmpty());
+        assertEquals(ids, listIds(7));
+
+        records.delete("instance-1");
+        assertNull(records.get("instance-1", null));
+    }
+
+    private Set<String> listIds(int pageSize) throws IOException {
+        Set<String> ids = new HashSet<>();
+        String pageToken = null;
+        do {
+            RepositoryPage<String> page = records.list(pageToken, pageSize);
+            assertTrue(page.getItems().size() <= pageSize);
+            for (String key : page.getItems())
+                assertTrue(key, ids.add(keys.getId(key)));
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return ids;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(StoredObject object) throws IOException {
+        try (InputStream content = object.getContent()) {
+            return new String(ByteStreams.toByteArray(content), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class KeySpaceTest {
+
+    @Test
+    public void testSplitHalfWayThroughKeysSeen() {
+        KeySpace keySpace = new KeySpace();
+        for (int i = 0; i < 100; i++)
+            keySpace.add(key(i));
+        keySpace.add(key(2999));
+        assertNull(keySpace.split(key(99), key(99)));
+        assertNull(keySpace.split(key(2999), key(99)));
+
+        // Half way through the keys that could be between, counting only
+        // the digits seen at each position
+        String split = keySpace.split(key(99), key(2999));
+        assertTrue(split, split.compareTo(key(1400)) > 0 && split.compareTo(key(1600)) < 0);
+    }
+
+    @Test
+    public void testCommonPrefixesSplitListing() {
+        KeySpace keySpace = new KeySpace();
+        keySpace.add(key(0));
+        keySpace.addBoundaries(Arrays.asList("a/", "b/", "c/"));
+        assertEquals("b/", keySpace.split(null, "d"));
+        assertEquals("c/", keySpace.split("b/", "d"));
+    }
+
+    @Test
+    public void testNoSplitWithoutKeys() {
+        assertNull(new KeySpace().split(null, key(99)));
+    }
+
+    private static String key(int i) {
+        return String.format("key-%05d", i);
+    }
+}
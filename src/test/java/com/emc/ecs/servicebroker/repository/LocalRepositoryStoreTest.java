@@ -0,0 +1,211 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LocalRepositoryStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private LocalRepositoryStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("service-instance.log");
+        store = new LocalRepositoryStore(file, true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testPutGetDelete() throws IOException {
+        assertNull(store.get("service-instance/a.json", null));
+
+        String eTag = store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        StoredObject object = store.get("service-instance/a.json", null);
+        assertEquals(eTag, object.getETag());
+        assertEquals("{\"v\":1}", read(object));
+        assertFalse(store.get("service-instance/a.json", eTag).isModified());
+
+        store.delete("service-instance/a.json");
+        assertNull(store.get("service-instance/a.json", null));
+    }
+
+    @Test
+    public void testListPages() throws IOException {
+        for (String key : new String[]{"service-instance/c.json", "service-instance/a.json",
+                "service-instance-binding/x.json", "service-instance/b.json"})
+            store.put(key, bytes("{}"), null);
+
+        RepositoryPage<String> first = store.list("service-instance/", null, 2);
+        assertEquals(Arrays.asList("service-instance/a.json", "service-instance/b.json"), first.getItems());
+        RepositoryPage<String> second = store.list("service-instance/", first.getNextPageToken(), 2);
+        assertEquals(Arrays.asList("service-instance/c.json"), second.getItems());
+        assertNull(second.getNextPageToken());
+
+        assertNull(store.list("service-instance/", null, 3).getNextPageToken());
+        assertEquals(Arrays.asList("service-instance-binding/x.json"), store.list("service-instance-binding/"));
+    }
+
+    @Test
+    public void testConditionalPut() throws IOException {
+        String eTag = store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        String newETag = store.put("service-instance/a.json", bytes("{\"v\":2}"), eTag);
+        assertNotEquals(eTag, newETag);
+
+        try {
+            store.put("service-instance/a.json", bytes("{\"v\":3}"), eTag);
+            fail("Expected RepositoryConflictException");
+        } catch (RepositoryConflictException e) {
+            assertEquals("{\"v\":2}", read(store.get("service-instance/a.json", null)));
+        }
+
+        try {
+            store.put("service-instance/missing.json", bytes("{}"), eTag);
+            fail("Expected RepositoryConflictException");
+        } catch (RepositoryConflictException e) {
+            assertNull(store.get("service-instance/missing.json", null));
+        }
+    }
+
+    @Test
+    public void testRecordsSurviveReopening() throws IOException {
+        store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        store.put("service-instance/b.json", bytes("{\"v\":2}"), null);
+        store.put("service-instance/a.json", bytes("{\"v\":3}"), null);
+        store.delete("service-instance/b.json");
+        reopen();
+
+        assertEquals("{\"v\":3}", read(store.get("service-instance/a.json", null)));
+        assertNull(store.get("service-instance/b.json", null));
+        assertEquals(Arrays.asList("service-instance/a.json"), store.list("service-instance/"));
+    }
+
+    @Test
+    public void testIncompleteRecordIsDroppedOnReopening() throws IOException {
+        store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        long complete = store.getSize();
+        store.put("service-instance/b.json", bytes("{\"v\":2}"), null);
+        store.close();
+
+        // Cut the last record short, as a crash in the middle of a write would
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete + 5);
+        }
+        store = new LocalRepositoryStore(file, true);
+
+        assertEquals("{\"v\":1}", read(store.get("service-instance/a.json", null)));
+        assertNull(store.get("service-instance/b.json", null));
+        assertEquals(complete, Files.size(file));
+
+        store.put("service-instance/c.json", bytes("{\"v\":3}"), null);
+        reopen();
+        assertEquals("{\"v\":3}", read(store.get("service-instance/c.json", null)));
+    }
+
+    @Test
+    public void testDamagedRecordBeforeOthersIsRefused() throws IOException {
+        store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        long complete = store.getSize();
+        store.put("service-instance/b.json", bytes("{\"v\":2}"), null);
+        store.put("service-instance/c.json", bytes("{\"v\":3}"), null);
+        store.close();
+        long size = Files.size(file);
+
+        // Flip a content byte of the middle record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer damaged = ByteBuffer.allocate(1);
+            channel.read(damaged, complete + 30);
+            damaged.put(0, (byte) ~damaged.get(0)).rewind();
+            channel.write(damaged, complete + 30);
+        }
+        try {
+            new LocalRepositoryStore(file, true);
+            fail("Expected the damaged log to be refused");
+        } catch (IOException e) {
+            assertEquals(size, Files.size(file));
+        }
+    }
+
+    @Test
+    public void testLogIsOpenedOnce() throws IOException {
+        try {
+            new LocalRepositoryStore(file, true);
+            fail("Expected the log to be locked");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("in use"));
+        }
+        reopen();
+        assertNull(store.get("service-instance/a.json", null));
+    }
+
+    @Test
+    public void testLogIsCompacted() throws IOException {
+        byte[] content = new byte[64 * 1024];
+        for (int i = 0; i < 40; i++)
+            store.put("service-instance/a.json", content, null);
+        store.put("service-instance/b.json", bytes("{\"v\":1}"), null);
+
+        assertTrue(store.getSize() < LocalRepositoryStore.MIN_COMPACTION_SIZE);
+        assertEquals(content.length, ByteStreams.toByteArray(store.get("service-instance/a.json", null)
+                .getContent()).length);
+
+        reopen();
+        assertEquals("{\"v\":1}", read(store.get("service-instance/b.json", null)));
+        assertEquals(2, store.list("service-instance/").size());
+    }
+
+    @Test
+    public void testMigrationCopiesMissingRecords() throws IOException {
+        store.put("service-instance/a.json", bytes("{\"v\":1}"), null);
+        store.put("service-instance/b.json", bytes("{\"v\":2}"), null);
+        store.put("service-instance-binding/c.json", bytes("{\"v\":3}"), null);
+
+        try (LocalRepositoryStore target = new LocalRepositoryStore(
+                folder.getRoot().toPath().resolve("target.log"), false)) {
+            target.put("service-instance/b.json", bytes("{\"v\":4}"), null);
+
+            assertEquals(1, RepositoryStoreFactory.migrate(store, target, "service-instance/"));
+            assertEquals("{\"v\":1}", read(target.get("service-instance/a.json", null)));
+            assertEquals("{\"v\":4}", read(target.get("service-instance/b.json", null)));
+            assertNull(target.get("service-instance-binding/c.json", null));
+
+            assertEquals(0, RepositoryStoreFactory.migrate(store, target, "service-instance/"));
+        }
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = new LocalRepositoryStore(file, true);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(StoredObject object) throws IOException {
+        try (InputStream content = object.getContent()) {
+            return new String(ByteStreams.toByteArray(content), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.emc.ecs.tool.BucketWipeResult;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.*;
+
+public class PartitionedBucketWipeTest {
+    private static final String BUCKET = "ecs-cf-broker-instance-1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Bucket bucket;
+    private WireMockServer server;
+    private S3ClientFactory clientFactory;
+    private LocalRepositoryStore store;
+    private BucketWipeJobRepository jobs;
+    private ResumableBucketWipe wipe;
+
+    @Before
+    public void setUp() throws Exception {
+        bucket = new Bucket(3000, 100, 50);
+        server = new WireMockServer(wireMockConfig().dynamicPort().containerThreads(32).extensions(bucket));
+        server.start();
+        server.stubFor(any(anyUrl()).willReturn(aResponse()));
+
+        BrokerConfig broker = new BrokerConfig();
+        broker.setRepositoryEndpoint("http://127.0.0.1:" + server.port());
+        broker.setRepositorySecret("secret");
+        clientFactory = new S3ClientFactory();
+        store = new LocalRepositoryStore(folder.getRoot().toPath().resolve("bucket-wipe.log"), false);
+        jobs = new BucketWipeJobRepository(store, new RecordCodec());
+        wipe = new ResumableBucketWipe(clientFactory.getClient(broker), jobs, new WipeScheduler(2, 8, 100),
+                1000, 4, 4, 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wipe.close();
+        store.close();
+        clientFactory.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSlowListingIsPartitioned() throws Exception {
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        boolean completed = result.getCompletedFuture().get(60, TimeUnit.SECONDS);
+        assertTrue(result.getErrors().toString(), completed);
+        assertEquals(3000, result.getDeletedObjects());
+        assertTrue(bucket.keys.isEmpty());
+        assertEquals(0, bucket.missing.get());
+        assertTrue(((ResumableBucketWipe.Result) result).getPartitions() > 1);
+    }
+
+    @Test
+    public void testWipeResumesEachPartition() throws Exception {
+        BucketWipeJob job = new BucketWipeJob("instance-1", BUCKET);
+        job.checkpoint(Arrays.asList(new BucketWipeJob.Partition(key(999), key(1999)),
+                new BucketWipeJob.Partition(key(2499), null)), 0, 0, Arrays.asList());
+        jobs.save(job);
+        assertEquals(2, jobs.find("instance-1").getPartitions().size());
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        boolean completed = result.getCompletedFuture().get(60, TimeUnit.SECONDS);
+        assertTrue(result.getErrors().toString(), completed);
+        assertEquals(1500, result.getDeletedObjects());
+        assertEquals(1500, bucket.keys.size());
+        assertEquals(key(0), bucket.keys.first());
+        assertEquals(key(999), bucket.keys.floor(key(1999)));
+        assertEquals(key(2000), bucket.keys.ceiling(key(1000)));
+        assertEquals(key(2499), bucket.keys.last());
+    }
+
+    private static String key(int i) {
+        return String.format("key-%05d", i);
+    }
+
+    /**
+     * A bucket that lists and deletes keys the way S3 does.
+     */
+    static final class Bucket extends ResponseDefinitionTransformer {
+        private static final Pattern KEY = Pattern.compile("<Key>([^<]*)</Key>");
+
+        private final ConcurrentSkipListSet<String> keys = new ConcurrentSkipListSet<>();
+        private final AtomicInteger missing = new AtomicInteger();
+        private final int pageSize;
+        private final int listDelay;
+
+        Bucket(int objects, int pageSize, int listDelay) {
+            for (int i = 0; i < objects; i++)
+                keys.add(key(i));
+            this.pageSize = pageSize;
+            this.listDelay = listDelay;
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition,
+                                            FileSource files, Parameters parameters) {
+            String path = request.getUrl().split("\\?")[0];
+            if (RequestMethod.DELETE.equals(request.getMethod())) {
+                delete(path.substring(BUCKET.length() + 2));
+                return aResponse().withStatus(204).build();
+            }
+            if (RequestMethod.POST.equals(request.getMethod())) {
+                Matcher matcher = KEY.matcher(request.getBodyAsString());
+                while (matcher.find())
+                    delete(matcher.group(1));
+                return xml("<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"></DeleteResult>", 0);
+            }
+            return list(request);
+        }
+
+        private void delete(String key) {
+            if (!keys.remove(key))
+                missing.incrementAndGet();
+        }
+
+        private ResponseDefinition list(Request request) {
+            String marker = value(request, "marker");
+            String delimiter = value(request, "delimiter");
+            int maxKeys = value(request, "max-keys") == null ? pageSize
+                    : Math.min(pageSize, Integer.parseInt(value(request, "max-keys")));
+
+            NavigableSet<String> after = marker == null ? keys : keys.tailSet(marker, false);
+            StringBuilder contents = new StringBuilder();
+            Set<String> prefixes = new TreeSet<>();
+            int count = 0;
+            boolean truncated = false;
+            for (String key : after) {
+                if (count == maxKeys) {
+                    truncated = true;
+                    break;
+                }
+                int at = delimiter == null ? -1 : key.indexOf(delimiter);
+                if (at >= 0) {
+                    prefixes.add(key.substring(0, at + delimiter.length()));
+                } else {
+                    contents.append("<Contents><Key>").append(key).append("</Key>")
+                            .append("<LastModified>2020-01-01T00:00:00.000Z</LastModified>")
+                            .append("<ETag>\"0cc175b9c0f1b6a831c399e269772661\"</ETag><Size>1</Size>")
+                            .append("<StorageClass>STANDARD</StorageClass></Contents>");
+                }
+                count++;
+            }
+            StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                    .append("<Name>").append(BUCKET).append("</Name><MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                    .append("<IsTruncated>").append(truncated).append("</IsTruncated>")
+                    .append(contents);
+            for (String prefix : prefixes)
+                xml.append("<CommonPrefixes><Prefix>").append(prefix).append("</Prefix></CommonPrefixes>");
+            xml.append("</ListBucketResult>");
+            return xml(xml.toString(), listDelay);
+        }
+
+        private static String value(Request request, String name) {
+            QueryParameter parameter = request.queryParameter(name);
+            return parameter.isPresent() ? parameter.firstValue() : null;
+        }
+
+        private static ResponseDefinition xml(String body, int delay) {
+            return aResponse().withStatus(200).withHeader("Content-Type", "application/xml")
+                    .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body)
+                    .withFixedDelay(delay).build();
+        }
+
+        @Override
+        public String getName() {
+            return "bucket";
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import org.springframework.cloud.servicebroker.model.instance.CreateServiceInstanceRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Measures the size of repository records and the time to encode and decode
+ * them in each format, and the memory allocated to serialize a record for a
+ * save.  Run with {@code ./gradlew benchmarkRecordCodec}.
+ */
+public class RecordCodecBenchmark {
+    private static final int RECORDS = 2000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++)
+            instances.add(instance(i));
+
+        System.out.printf("%-12s %10s %12s %12s%n", "format", "bytes/rec", "encode us", "decode us");
+        for (RecordCodec.Format format : RecordCodec.Format.values()) {
+            for (boolean compress : new boolean[]{false, true}) {
+                RecordCodec codec = new RecordCodec(format, compress);
+                // First round warms up the JIT and is not reported
+                Result result = null;
+                for (int round = 0; round <= ROUNDS; round++) {
+                    Result measured = measure(codec, instances);
+                    if (round > 0)
+                        result = result == null ? measured : result.best(measured);
+                }
+                System.out.printf("%-12s %10d %12.2f %12.2f%n",
+                        format.name().toLowerCase() + (compress ? "+gzip" : ""),
+                        result.bytes / RECORDS, result.encodeNanos / 1000.0 / RECORDS,
+                        result.decodeNanos / 1000.0 / RECORDS);
+            }
+        }
+
+        System.out.printf("%n%-28s %12s%n", "serialization for a save", "alloc B/rec");
+        ObjectMapper mapper = new ObjectMapper();
+        RecordCodec codec = new RecordCodec();
+        printAllocation("string", instances, instance -> mapper.writeValueAsString(instance));
+        printAllocation("stream copied to input", instances, instance -> {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            mapper.writeValue(output, instance);
+            return new ByteArrayInputStream(output.toByteArray());
+        });
+        printAllocation("pooled buffer", instances, instance -> codec.encodeToBuffer(instance).toInputStream());
+    }
+
+    private static void printAllocation(String name, List<ServiceInstance> instances, Serialization serialization)
+            throws IOException {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (ServiceInstance instance : instances)
+                serialization.serialize(instance);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            if (round > 0)
+                best = Math.min(best, allocated);
+        }
+        System.out.printf("%-28s %12d%n", name, best / RECORDS);
+    }
+
+    @FunctionalInterface
+    private interface Serialization {
+        Object serialize(ServiceInstance instance) throws IOException;
+    }
+
+    private static Result measure(RecordCodec codec, List<ServiceInstance> instances) throws IOException {
+        List<byte[]> records = new ArrayList<>(instances.size());
+        long start = System.nanoTime();
+        for (ServiceInstance instance : instances)
+            records.add(codec.encode(instance));
+        long encoded = System.nanoTime();
+        long bytes = 0;
+        for (byte[] record : records) {
+            codec.decode(record, ServiceInstance.class);
+            bytes += record.length;
+        }
+        return new Result(bytes, encoded - start, System.nanoTime() - encoded);
+    }
+
+    /**
+     * An instance shaped like one a bucket plan creates, with the service
+     * settings merged from the catalog and request parameters.
+     */
+    private static ServiceInstance instance(int i) {
+        ServiceInstance instance = new ServiceInstance(CreateServiceInstanceRequest.builder()
+                .serviceInstanceId(UUID.randomUUID().toString())
+                .serviceDefinitionId("f3cbab6a-5172-4ff1-a5c7-72990f0ce2aa")
+                .planId("89d20694-9ab0-4a98-bc6a-868d6d4ecf31")
+                .build());
+        instance.setName("ecs-cf-broker-bucket-" + i);
+        Map<String, Object> quota = new HashMap<>();
+        quota.put("limit", 10 + i % 5);
+        quota.put("warn", 8);
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("service-type", "bucket");
+        settings.put("base-url", "ecs-base-url");
+        settings.put("use-ssl", false);
+        settings.put("encrypted", i % 2 == 0);
+        settings.put("access-during-outage", true);
+        settings.put("file-accessible", false);
+        settings.put("head-type", "s3");
+        settings.put("default-retention", 0);
+        settings.put("reclaim-policy", "Fail");
+        settings.put("allowed-reclaim-policies", "Fail,Detach,Delete");
+        settings.put("quota", quota);
+        instance.setServiceSettings(settings);
+        instance.addReference(instance.getServiceInstanceId());
+        return instance;
+    }
+
+    private static final class Result {
+        private final long bytes;
+        private final long encodeNanos;
+        private final long decodeNanos;
+
+        private Result(long bytes, long encodeNanos, long decodeNanos) {
+            this.bytes = bytes;
+            this.encodeNanos = encodeNanos;
+            this.decodeNanos = decodeNanos;
+        }
+
+        private Result best(Result other) {
+            return new Result(bytes, Math.min(encodeNanos, other.encodeNanos),
+                    Math.min(decodeNanos, other.decodeNanos));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.emc.ecs.common.Fixtures.SERVICE_INSTANCE_ID;
+import static com.emc.ecs.common.Fixtures.serviceInstanceFixture;
+import static org.junit.Assert.*;
+
+public class RecordCodecTest {
+
+    @Test
+    public void testEveryFormatRoundTrips() throws IOException {
+        ServiceInstance instance = instanceWithSettings();
+        for (RecordCodec.Format format : RecordCodec.Format.values()) {
+            for (boolean compress : new boolean[]{false, true}) {
+                RecordCodec codec = new RecordCodec(format, compress);
+                ServiceInstance decoded = codec.decode(codec.encode(instance), ServiceInstance.class);
+                assertEquals(SERVICE_INSTANCE_ID, decoded.getServiceInstanceId());
+                assertEquals(instance.getServiceSettings(), decoded.getServiceSettings());
+            }
+        }
+    }
+
+    @Test
+    public void testRecordsAreReadWhateverTheConfiguredFormat() throws IOException {
+        ServiceInstance instance = instanceWithSettings();
+        byte[] json = new RecordCodec().encode(instance);
+        byte[] smile = new RecordCodec(RecordCodec.Format.SMILE, false).encode(instance);
+        byte[] compressed = new RecordCodec(RecordCodec.Format.SMILE, true).encode(instance);
+
+        assertEquals('{', json[0]);
+        assertTrue(smile.length < json.length);
+
+        for (RecordCodec reader : new RecordCodec[]{new RecordCodec(),
+                new RecordCodec(RecordCodec.Format.SMILE, true)}) {
+            for (byte[] record : new byte[][]{json, smile, compressed})
+                assertEquals(SERVICE_INSTANCE_ID, reader.decode(record, ServiceInstance.class).getServiceInstanceId());
+        }
+    }
+
+    @Test
+    public void testLegacyJsonIsReadFromStream() throws IOException {
+        String legacy = "{\"service_instance_id\":\"service-instance-id\",\"service_id\":\"service-one-id\","
+                + "\"plan_id\":\"plan-one-id\"}";
+        RecordCodec codec = new RecordCodec(RecordCodec.Format.SMILE, true);
+        ServiceInstance instance = codec.decode(
+                new ByteArrayInputStream(legacy.getBytes(StandardCharsets.UTF_8)), ServiceInstance.class);
+        assertEquals("plan-one-id", instance.getPlanId());
+    }
+
+    @Test
+    public void testBufferIsReusedUnlessOversized() throws IOException {
+        RecordCodec codec = new RecordCodec();
+        RecordBuffer buffer = codec.encodeToBuffer(instanceWithSettings());
+        byte[] encoded = buffer.toByteArray();
+        assertSame(buffer, codec.encodeToBuffer(instanceWithSettings()));
+        assertArrayEquals(encoded, buffer.toByteArray());
+        assertArrayEquals(encoded, codec.encode(instanceWithSettings()));
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("large", new String(new char[RecordCodec.MAX_RETAINED_BUFFER_SIZE]).replace('\0', 'x'));
+        ServiceInstance large = serviceInstanceFixture();
+        large.setServiceSettings(settings);
+        assertSame(buffer, codec.encodeToBuffer(large));
+        assertNotSame(buffer, codec.encodeToBuffer(instanceWithSettings()));
+    }
+
+    private static ServiceInstance instanceWithSettings() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("quota", 5);
+        settings.put("encrypted", true);
+        settings.put("base-url", "http://127.0.0.1:9020");
+        ServiceInstance instance = serviceInstanceFixture();
+        instance.setServiceSettings(settings);
+        return instance;
+    }
+}
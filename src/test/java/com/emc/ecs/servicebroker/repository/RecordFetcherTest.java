@@ -0,0 +1,101 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class RecordFetcherTest {
+
+    private final RecordFetcher fetcher = new RecordFetcher("test", 4);
+
+    @After
+    public void tearDown() {
+        fetcher.close();
+    }
+
+    @Test
+    public void testStreamReadsEveryPageInOrder() {
+        List<String> keys = keys(25);
+        List<String> listed = Collections.synchronizedList(new ArrayList<>());
+        try (Stream<String> records = fetcher.stream(pages(keys, 10, listed), key -> "record-" + key)) {
+            assertEquals(keys.stream().map(key -> "record-" + key).collect(Collectors.toList()),
+                    records.collect(Collectors.toList()));
+        }
+        assertEquals(Arrays.asList("first", "key-09", "key-19"), listed);
+    }
+
+    @Test
+    public void testDeletedRecordsAreLeftOut() throws IOException {
+        RepositoryPage<String> page = fetcher.fetch(new RepositoryPage<>(keys(5), "key-04"),
+                key -> key.equals("key-02") ? null : key);
+        assertEquals(Arrays.asList("key-00", "key-01", "key-03", "key-04"), page.getItems());
+        assertEquals("key-04", page.getNextPageToken());
+    }
+
+    @Test
+    public void testPagesAreListedAndReadAsConsumed() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        List<String> listed = Collections.synchronizedList(new ArrayList<>());
+        try (Stream<String> records = fetcher.stream(pages(keys(1000), 100, listed), key -> {
+            reads.incrementAndGet();
+            return key;
+        })) {
+            Iterator<String> iterator = records.iterator();
+            assertEquals("key-000", iterator.next());
+            Thread.sleep(100);
+            assertEquals(1, listed.size());
+            assertTrue(reads.get() <= 8 + 1);
+        }
+    }
+
+    @Test
+    public void testReadFailureEndsTheStream() {
+        try (Stream<String> records = fetcher.stream(pages(keys(20), 10, new ArrayList<>()), key -> {
+            if (key.equals("key-12"))
+                throw new IOException("read failed");
+            return key;
+        })) {
+            records.forEach(record -> { });
+            fail("Expected the read failure");
+        } catch (UncheckedIOException e) {
+            assertEquals("read failed", e.getCause().getMessage());
+        }
+
+        try {
+            fetcher.fetch(new RepositoryPage<>(keys(3), null), key -> {
+                throw new IOException("read failed");
+            });
+            fail("Expected the read failure");
+        } catch (IOException e) {
+            assertEquals("read failed", e.getMessage());
+        }
+    }
+
+    private static List<String> keys(int count) {
+        String format = count > 100 ? "key-%03d" : "key-%02d";
+        return IntStream.range(0, count).mapToObj(i -> String.format(format, i)).collect(Collectors.toList());
+    }
+
+    private static RecordFetcher.Pages pages(List<String> keys, int pageSize, List<String> listed) {
+        return pageToken -> {
+            listed.add(pageToken == null ? "first" : pageToken);
+            int start = pageToken == null ? 0 : keys.indexOf(pageToken) + 1;
+            int end = Math.min(start + pageSize, keys.size());
+            List<String> page = keys.subList(start, end);
+            return new RepositoryPage<>(page, end < keys.size() ? page.get(page.size() - 1) : null);
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RecordIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, ServiceInstanceBinding> bindings = new ConcurrentSkipListMap<>();
+    private LocalRepositoryStore store;
+    private RecordFetcher fetcher;
+    private RecordIndex<ServiceInstanceBinding> index;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new LocalRepositoryStore(folder.getRoot().toPath().resolve("service-instance-binding.log"), false);
+        fetcher = new RecordFetcher("service-instance-binding", 4);
+        index = newIndex().entryGrace(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        index.close();
+        fetcher.close();
+        store.close();
+    }
+
+    @Test
+    public void testFindChecksRecordsAgainstTheValue() throws IOException {
+        save("binding-1", "instance-1");
+        save("binding-2", "instance-1");
+        save("binding-3", "instance-2");
+        assertEquals(Collections.singletonList("binding-3"), findIds("instance-2"));
+        assertEquals(2, findIds("instance-1").size());
+
+        // Moved, then deleted, without their old entries being removed
+        save("binding-2", "instance-2");
+        bindings.remove("binding-3");
+        assertEquals(Collections.singletonList("binding-1"), findIds("instance-1"));
+        assertEquals(Collections.singletonList("binding-2"), findIds("instance-2"));
+        assertEquals(2, store.list("service-instance-binding-index/").size());
+        assertTrue(findIds("instance-3").isEmpty());
+    }
+
+    @Test
+    public void testVerifyRepairsEntries() throws IOException {
+        save("binding-1", "instance-1");
+        save("binding-2", "instance-1");
+        bindings.remove("binding-2");
+        ServiceInstanceBinding unindexed = binding("binding-3", "instance-1");
+        bindings.put(unindexed.getBindingId(), unindexed);
+        bindings.put("binding-4", binding("binding-4", null));
+
+        assertEquals(2, index.verify());
+        assertEquals(0, index.verify());
+        assertEquals(2, store.list("service-instance-binding-index/").size());
+        assertEquals(2, findIds("instance-1").size());
+    }
+
+    @Test
+    public void testUnchangedEntriesAreNotRewritten() throws IOException {
+        ServiceInstanceBinding binding = save("binding-1", "instance-1");
+        long size = store.getSize();
+
+        ServiceInstanceBinding read = binding("binding-1", "instance-1");
+        read.setETag(binding.getETag());
+        read.setPlanId("plan-2");
+        index.add(read);
+        assertEquals(size, store.getSize());
+
+        // Saved over another copy than the one last seen
+        read.setETag("other");
+        index.add(read);
+        assertTrue(store.getSize() > size);
+    }
+
+    @Test
+    public void testRecentEntriesAreKept() throws IOException {
+        index.close();
+        index = newIndex();
+        save("binding-1", "instance-1");
+        save("binding-1", "instance-2");
+
+        // The save that wrote the entry may not have written its record yet
+        assertTrue(findIds("instance-1").isEmpty());
+        assertEquals(0, index.verify());
+        assertEquals(2, store.list("service-instance-binding-index/").size());
+    }
+
+    @Test
+    public void testValuesAreEscaped() throws IOException {
+        save("binding/1", "instance/1");
+        save("binding-2", "instance");
+        assertEquals(Collections.singletonList("binding/1"), findIds("instance/1"));
+        assertEquals(Collections.singletonList("binding-2"), findIds("instance"));
+        assertEquals(0, index.verify());
+    }
+
+    private RecordIndex<ServiceInstanceBinding> newIndex() {
+        return new RecordIndex<>(store, "service-instance-binding", ServiceInstanceBinding::getBindingId,
+                ServiceInstanceBinding::getETag, bindings::get, bindings::get, () -> bindings.values().stream(),
+                fetcher)
+                .field("service-instance", ServiceInstanceBinding::getServiceInstanceId);
+    }
+
+    private ServiceInstanceBinding save(String bindingId, String instanceId) throws IOException {
+        ServiceInstanceBinding binding = binding(bindingId, instanceId);
+        index.add(binding);
+        binding.setETag(UUID.randomUUID().toString());
+        bindings.put(bindingId, binding);
+        index.track(binding);
+        return binding;
+    }
+
+    private List<String> findIds(String instanceId) throws IOException {
+        return index.find("service-instance", instanceId).stream()
+                .map(ServiceInstanceBinding::getBindingId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static ServiceInstanceBinding binding(String bindingId, String instanceId) {
+        ServiceInstanceBinding binding = new ServiceInstanceBinding();
+        binding.setBindingId(bindingId);
+        binding.setServiceInstanceId(instanceId);
+        return binding;
+    }
+}
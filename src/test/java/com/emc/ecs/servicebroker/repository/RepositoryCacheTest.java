@@ -0,0 +1,93 @@
+package com.emc.ecs.servicebroker.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RepositoryCacheTest {
+    private static final byte[] V1 = "{\"v\":1}".getBytes();
+    private static final byte[] V2 = "{\"v\":2}".getBytes();
+
+    private final List<String> conditions = new ArrayList<>();
+    private MeterRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testFreshEntryIsTrusted() throws IOException {
+        RepositoryCache cache = cache(60000);
+        assertArrayEquals(V1, cache.get("a", load("etag1", V1)).getBody());
+        assertArrayEquals(V1, cache.get("a", load("etag2", V2)).getBody());
+        assertEquals(1, conditions.size());
+        assertNull(conditions.get(0));
+        assertEquals(1.0, count("miss"), 0.0);
+        assertEquals(1.0, count("hit"), 0.0);
+    }
+
+    @Test
+    public void testStaleEntryIsRevalidated() throws IOException {
+        RepositoryCache cache = cache(0);
+        cache.get("a", load("etag1", V1));
+        assertArrayEquals(V1, cache.get("a", notModified()).getBody());
+        assertArrayEquals(V2, cache.get("a", load("etag2", V2)).getBody());
+        assertArrayEquals(V2, cache.get("a", notModified()).getBody());
+        assertEquals("etag1", conditions.get(1));
+        assertEquals("etag1", conditions.get(2));
+        assertEquals("etag2", conditions.get(3));
+        assertEquals(2.0, count("revalidated"), 0.0);
+    }
+
+    @Test
+    public void testSaveAndDeleteUpdateCache() throws IOException {
+        RepositoryCache cache = cache(60000);
+        cache.put("a", "etag1", V1);
+        assertArrayEquals(V1, cache.get("a", load("etag2", V2)).getBody());
+        assertTrue(conditions.isEmpty());
+
+        cache.invalidate("a");
+        assertArrayEquals(V2, cache.get("a", load("etag2", V2)).getBody());
+        assertNull(conditions.get(0));
+    }
+
+    @Test
+    public void testSizeIsBounded() throws IOException {
+        RepositoryCache cache = new RepositoryCache("test", 60000, 4 * (V1.length + 2));
+        for (int i = 0; i < 20; i++)
+            cache.put("k" + i, "etag", V1);
+        assertTrue(cache.size() <= 4);
+    }
+
+    private RepositoryCache cache(long ttl) {
+        RepositoryCache cache = new RepositoryCache("test", ttl, RepositoryCache.DEFAULT_MAX_BYTES);
+        cache.bindTo(registry);
+        return cache;
+    }
+
+    private RepositoryCache.Loader load(String eTag, byte[] body) {
+        return ifNoneMatch -> {
+            conditions.add(ifNoneMatch);
+            return new RepositoryCache.Versioned(eTag, body);
+        };
+    }
+
+    private RepositoryCache.Loader notModified() {
+        return ifNoneMatch -> {
+            conditions.add(ifNoneMatch);
+            return null;
+        };
+    }
+
+    private double count(String result) {
+        return registry.find("ecs.repository.cache.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,54 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RepositoryLeaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalRepositoryStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new LocalRepositoryStore(folder.getRoot().toPath().resolve("service-instance.log"), false);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testOneOwnerAtATime() throws IOException {
+        RepositoryLease first = new RepositoryLease(store, "task.lease", "first");
+        RepositoryLease second = new RepositoryLease(store, "task.lease", "second");
+
+        assertTrue(first.tryAcquire(60000));
+        assertFalse(second.tryAcquire(60000));
+        assertTrue(first.tryAcquire(60000));
+
+        second.release();
+        assertFalse(second.tryAcquire(60000));
+        first.release();
+        assertTrue(second.tryAcquire(60000));
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOver() throws IOException, InterruptedException {
+        RepositoryLease first = new RepositoryLease(store, "task.lease", "first");
+        RepositoryLease second = new RepositoryLease(store, "task.lease", "second");
+
+        assertTrue(first.tryAcquire(1));
+        Thread.sleep(5);
+        assertTrue(second.tryAcquire(60000));
+        assertFalse(first.tryAcquire(60000));
+    }
+}
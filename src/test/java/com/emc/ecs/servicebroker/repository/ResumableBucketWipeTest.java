@@ -0,0 +1,299 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.emc.ecs.tool.BucketWipeResult;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.emc.object.s3.S3Client;
+import com.emc.object.s3.request.ListObjectsRequest;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ResumableBucketWipeTest {
+    private static final String BUCKET = "ecs-cf-broker-instance-1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WireMockServer server;
+    private S3ClientFactory clientFactory;
+    private LocalRepositoryStore store;
+    private BucketWipeJobRepository jobs;
+    private S3Client client;
+    private ResumableBucketWipe wipe;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        server.stubFor(get(urlPathEqualTo("/" + BUCKET)).withQueryParam("marker", absent())
+                .willReturn(listing(true, "a", "b")));
+        server.stubFor(get(urlPathEqualTo("/" + BUCKET)).withQueryParam("marker", equalTo("b"))
+                .willReturn(listing(false, "c")));
+        server.stubFor(delete(urlPathMatching("/" + BUCKET + "/.*")).willReturn(aResponse().withStatus(204)));
+
+        BrokerConfig broker = new BrokerConfig();
+        broker.setRepositoryEndpoint("http://127.0.0.1:" + server.port());
+        broker.setRepositorySecret("secret");
+        clientFactory = new S3ClientFactory();
+
+        store = new LocalRepositoryStore(folder.getRoot().toPath().resolve("bucket-wipe.log"), false);
+        jobs = new BucketWipeJobRepository(store, new RecordCodec());
+        client = clientFactory.getClient(broker);
+        wipe = new ResumableBucketWipe(client, jobs, new WipeScheduler(2, 4, 10), 1, 1, 1, 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wipe.close();
+        store.close();
+        clientFactory.close();
+        server.stop();
+    }
+
+    @Test
+    public void testWipeCheckpointsEachPage() throws Exception {
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertTrue(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(3, result.getDeletedObjects());
+        assertTrue(result.getErrors().isEmpty());
+        server.verify(3, deleteRequestedFor(urlPathMatching("/" + BUCKET + "/.*")));
+
+        // The last page is only known deleted once the wipe completes
+        BucketWipeJob job = jobs.find("instance-1");
+        assertEquals("b", job.getMarker());
+        assertTrue(wipe.getUnfinished().isEmpty());
+
+        wipe.finish("instance-1");
+        assertNull(jobs.find("instance-1"));
+    }
+
+    @Test
+    public void testWipeResumesFromCheckpoint() throws Exception {
+        BucketWipeJob job = new BucketWipeJob("instance-1", BUCKET);
+        job.checkpoint("b", 2, 1, Collections.singletonList("Deleting a failed"));
+        jobs.save(job);
+        assertEquals(1, wipe.getUnfinished().size());
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertSame(result, wipe.start("instance-1", BUCKET));
+        assertTrue(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(3, result.getDeletedObjects());
+        assertEquals(Collections.singletonList("Deleting a failed"), result.getErrors());
+
+        server.verify(0, getRequestedFor(urlPathEqualTo("/" + BUCKET)).withQueryParam("marker", absent()));
+        server.verify(1, deleteRequestedFor(urlPathEqualTo("/" + BUCKET + "/c")));
+        server.verify(1, deleteRequestedFor(urlPathMatching("/" + BUCKET + "/.*")));
+    }
+
+    @Test
+    public void testWipeLeasedToAnotherReplicaIsLeftAlone() throws Exception {
+        BucketWipeJob job = new BucketWipeJob("instance-1", BUCKET);
+        job.lease("other", 60000);
+        jobs.save(job);
+        assertTrue(wipe.getUnfinished().isEmpty());
+        assertNull(wipe.resume(jobs.find("instance-1")));
+        try {
+            wipe.start("instance-1", BUCKET);
+            fail("Expected the wipe to be left to its owner");
+        } catch (RepositoryConflictException e) {
+            server.verify(0, getRequestedFor(urlPathEqualTo("/" + BUCKET)));
+        }
+
+        // Taken on once the lease expires
+        job.lease("other", -1);
+        jobs.save(job);
+        assertEquals(1, wipe.getUnfinished().size());
+        BucketWipeResult result = wipe.resume(wipe.getUnfinished().get(0));
+        assertTrue(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(RepositoryLease.LOCAL_OWNER, jobs.find("instance-1").getOwner());
+
+        // and given up when the wipe is closed
+        wipe.close();
+        assertNull(jobs.find("instance-1").getOwner());
+    }
+
+    @Test
+    public void testFailedWipeIsKeptAndStartedOver() throws Exception {
+        server.stubFor(delete(urlPathEqualTo("/" + BUCKET + "/c")).willReturn(aResponse().withStatus(500)));
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertFalse(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        wipe.fail("instance-1");
+        assertTrue(jobs.find("instance-1").isFailed());
+        assertTrue(wipe.getUnfinished().isEmpty());
+
+        server.stubFor(delete(urlPathEqualTo("/" + BUCKET + "/c")).willReturn(aResponse().withStatus(204)));
+        result = wipe.start("instance-1", BUCKET);
+        assertTrue(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertTrue(result.getErrors().isEmpty());
+        server.verify(2, getRequestedFor(urlPathEqualTo("/" + BUCKET)).withQueryParam("marker", absent()));
+    }
+
+    @Test
+    public void testFailedDeletesAreErrors() throws Exception {
+        server.stubFor(delete(urlPathEqualTo("/" + BUCKET + "/c")).willReturn(aResponse().withStatus(500)));
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertFalse(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0), result.getErrors().get(0).startsWith("Deleting c failed"));
+    }
+
+    @Test
+    public void testListingErrorFinishesWipe() throws Exception {
+        S3Client failing = mock(S3Client.class);
+        when(failing.listObjects(any(ListObjectsRequest.class))).thenThrow(new NoClassDefFoundError("ListObjectsResult"));
+        wipe.close();
+        wipe = new ResumableBucketWipe(failing, jobs, new WipeScheduler(2, 4, 10), 1, 1, 1, 0);
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertFalse(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0), result.getErrors().get(0).startsWith("Listing bucket " + BUCKET + " failed"));
+    }
+
+    @Test
+    public void testBatchRetriesFailedKeys() throws Exception {
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).willReturn(deleted()));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>"))
+                .inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(deleted(error("a", "NoSuchKey"), error("b", "InternalError")))
+                .willSetStateTo("retried"));
+        wipe.close();
+        wipe = new ResumableBucketWipe(client, jobs, new WipeScheduler(2, 4, 10), 1000, 4, 1, 0);
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertTrue(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(3, result.getDeletedObjects());
+        assertTrue(result.getErrors().isEmpty());
+
+        // One request for the first page and one more for the key that
+        // failed, while the single key of the last page is deleted on its own
+        server.verify(2, postRequestedFor(urlPathEqualTo("/" + BUCKET)));
+        server.verify(1, postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>a</Key>")));
+        server.verify(2, postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>")));
+        server.verify(1, deleteRequestedFor(urlPathMatching("/" + BUCKET + "/.*")));
+    }
+
+    @Test
+    public void testBatchRetriesThrottledKeys() throws Exception {
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).willReturn(deleted()));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>"))
+                .inScenario("throttle").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(deleted(error("a", "SlowDown"), error("b", "SlowDown")))
+                .willSetStateTo("throttled"));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>"))
+                .inScenario("throttle").whenScenarioStateIs("throttled")
+                .willReturn(deleted(error("b", "ServiceUnavailable")))
+                .willSetStateTo("recovered"));
+        WipeScheduler scheduler = new WipeScheduler(2, 4, 10);
+        wipe.close();
+        wipe = new ResumableBucketWipe(client, jobs, scheduler, 1000, 4, 1, 0);
+
+        // Throttling takes attempts of its own, beyond those of failures
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        boolean completed = result.getCompletedFuture().get(30, TimeUnit.SECONDS);
+        assertTrue(result.getErrors().toString(), completed);
+        assertEquals(3, result.getDeletedObjects());
+        assertEquals(2, scheduler.getLimiter().getThrottled());
+        server.verify(3, postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>")));
+    }
+
+    @Test
+    public void testBatchKeysFailingEveryAttemptAreErrors() throws Exception {
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).willReturn(deleted()));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>"))
+                .willReturn(deleted(error("b", "InternalError"))));
+        wipe.close();
+        wipe = new ResumableBucketWipe(client, jobs, new WipeScheduler(2, 4, 10), 1000, 4, 1, 0);
+
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertFalse(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(3, result.getDeletedObjects());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0), result.getErrors().get(0).startsWith("Deleting b failed: InternalError"));
+        server.verify(ResumableBucketWipe.MAX_ATTEMPTS,
+                postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>")));
+    }
+
+    @Test
+    public void testThrottledRetriesLeaveFailedKeysToTheirAttempts() throws Exception {
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).willReturn(deleted()));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>"))
+                .willReturn(deleted(error("b", "InternalError"))));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>a</Key>"))
+                .inScenario("throttle").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(deleted(error("a", "SlowDown"), error("b", "InternalError")))
+                .willSetStateTo("throttled"));
+        server.stubFor(post(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>a</Key>"))
+                .inScenario("throttle").whenScenarioStateIs("throttled")
+                .willReturn(deleted(error("a", "SlowDown")))
+                .willSetStateTo("recovered"));
+        WipeScheduler scheduler = new WipeScheduler(2, 4, 10);
+        wipe.close();
+        wipe = new ResumableBucketWipe(client, jobs, scheduler, 1000, 4, 1, 0);
+
+        // Only the throttled key is retried for being throttled, while the
+        // failed one is retried on its own attempts
+        BucketWipeResult result = wipe.start("instance-1", BUCKET);
+        assertFalse(result.getCompletedFuture().get(30, TimeUnit.SECONDS));
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0), result.getErrors().get(0).startsWith("Deleting b failed: InternalError"));
+        assertEquals(2, scheduler.getLimiter().getThrottled());
+        server.verify(3, postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>a</Key>")));
+        server.verify(ResumableBucketWipe.MAX_ATTEMPTS,
+                postRequestedFor(urlPathEqualTo("/" + BUCKET)).withRequestBody(containing("<Key>b</Key>")));
+    }
+
+    private static ResponseDefinitionBuilder deleted(String... errors) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<DeleteResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        for (String error : errors)
+            xml.append(error);
+        xml.append("</DeleteResult>");
+        return aResponse().withStatus(200).withHeader("Content-Type", "application/xml").withBody(xml.toString());
+    }
+
+    private static String error(String key, String code) {
+        return "<Error><Key>" + key + "</Key><Code>" + code + "</Code><Message>" + code + "</Message></Error>";
+    }
+
+    private static ResponseDefinitionBuilder listing(boolean truncated, String... keys) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(BUCKET).append("</Name><MaxKeys>1000</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        for (String key : keys) {
+            xml.append("<Contents><Key>").append(key).append("</Key>")
+                    .append("<LastModified>2020-01-01T00:00:00.000Z</LastModified>")
+                    .append("<ETag>\"0cc175b9c0f1b6a831c399e269772661\"</ETag><Size>1</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        xml.append("</ListBucketResult>");
+        return aResponse().withStatus(200).withHeader("Content-Type", "application/xml").withBody(xml.toString());
+    }
+}
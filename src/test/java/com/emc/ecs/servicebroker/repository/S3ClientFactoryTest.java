@@ -0,0 +1,113 @@
+package com.emc.ecs.servicebroker.repository;
+
+import com.emc.ecs.servicebroker.config.BrokerConfig;
+import com.emc.object.s3.S3Config;
+import com.emc.object.s3.jersey.S3JerseyClient;
+import com.emc.rest.smart.Host;
+import com.emc.rest.smart.HostStats;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.*;
+
+public class S3ClientFactoryTest {
+
+    private WireMockServer server;
+    private S3ClientFactory factory;
+    private BrokerConfig broker;
+
+    @Before
+    public void setUp() {
+        server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        server.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(200).withBody("record")));
+
+        broker = new BrokerConfig();
+        broker.setRepositoryEndpoint("http://127.0.0.1:" + server.port());
+        broker.setRepositorySecret("secret");
+        broker.setRepositoryMaxConnections(4);
+        factory = new S3ClientFactory();
+    }
+
+    @After
+    public void tearDown() {
+        factory.close();
+        server.stop();
+    }
+
+    @Test
+    public void testClientIsSharedUntilClosed() throws URISyntaxException {
+        S3JerseyClient client = factory.getClient(broker);
+        assertSame(client, factory.getClient(broker));
+
+        factory.close();
+        assertNotSame(client, factory.getClient(broker));
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws URISyntaxException {
+        S3JerseyClient client = factory.getClient(broker);
+        for (int i = 0; i < 3; i++)
+            assertEquals("record", client.readObject("repository", "key", String.class));
+
+        PoolStats stats = factory.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+        assertEquals(4, stats.getMax());
+    }
+
+    @Test
+    public void testSmartClientBalancesAcrossHosts() throws URISyntaxException {
+        broker.setRepositorySmartClient(true);
+        broker.setRepositoryHosts(Arrays.asList("127.0.0.1", "localhost"));
+        broker.setRepositoryHostDiscovery(false);
+        broker.setRepositoryHostHealthCheck(false);
+
+        S3JerseyClient client = factory.getClient(broker);
+        for (int i = 0; i < 10; i++)
+            assertEquals("record", client.readObject("repository", "key", String.class));
+
+        assertEquals(2, factory.getHostCount(false));
+        for (HostStats host : client.getLoadBalancer().getHostStats())
+            assertTrue(host.getTotalConnections() > 0);
+        server.verify(10, getRequestedFor(urlPathEqualTo("/repository/key")));
+    }
+
+    @Test
+    public void testEndpointHostIsTheDefaultSmartClientHost() throws URISyntaxException {
+        broker.setRepositorySmartClient(true);
+        S3Config s3Config = S3ClientFactory.buildS3Config(broker);
+        assertTrue(s3Config.isSmartClient());
+        assertEquals(Collections.singletonList("127.0.0.1"), s3Config.getVdcs().get(0).getHosts().stream()
+                .map(Host::getName).collect(Collectors.toList()));
+        assertEquals(server.port(), s3Config.getPort());
+    }
+
+    @Test
+    public void testPoolStatisticsAreMetrics() throws URISyntaxException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        factory.bindTo(registry);
+        assertEquals(S3ClientFactory.DEFAULT_MAX_CONNECTIONS,
+                registry.get("ecs.repository.connections.max").gauge().value(), 0);
+
+        factory.getClient(broker).readObject("repository", "key", String.class);
+        assertEquals(4, registry.get("ecs.repository.connections.max").gauge().value(), 0);
+        assertEquals(1, registry.get("ecs.repository.connections.idle").gauge().value(), 0);
+        assertEquals(0, registry.get("ecs.repository.connections.leased").gauge().value(), 0);
+    }
+}
@@ -0,0 +1,62 @@
+package com.emc.ecs.servicebroker.repository;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.emc.ecs.common.Fixtures.SERVICE_INSTANCE_ID;
+import static com.emc.ecs.common.Fixtures.serviceInstanceFixture;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ServiceInstanceUpdatesTest {
+    private final ServiceInstanceRepository repository = mock(ServiceInstanceRepository.class);
+
+    @Test
+    public void testChangeIsReappliedAfterConflict() throws IOException {
+        when(repository.find(SERVICE_INSTANCE_ID)).thenReturn(serviceInstanceFixture(), serviceInstanceFixture());
+        doThrow(conflict()).doNothing().when(repository).save(any(ServiceInstance.class));
+
+        AtomicInteger applied = new AtomicInteger();
+        String result = ServiceInstanceUpdates.update(repository, SERVICE_INSTANCE_ID, instance -> {
+            instance.addReference("other-instance");
+            return "attempt-" + applied.incrementAndGet();
+        });
+
+        assertEquals("attempt-2", result);
+        verify(repository, times(2)).find(SERVICE_INSTANCE_ID);
+        verify(repository, times(2)).save(any(ServiceInstance.class));
+    }
+
+    @Test
+    public void testInstanceAlreadyReadIsUsedFirst() throws IOException {
+        ServiceInstance instance = serviceInstanceFixture();
+        ServiceInstanceUpdates.update(repository, instance, stored -> {
+            stored.addReference("other-instance");
+            return null;
+        });
+
+        verify(repository, never()).find(any());
+        verify(repository).save(instance);
+        assertTrue(instance.getReferences().contains("other-instance"));
+    }
+
+    @Test
+    public void testRetriesAreBounded() throws IOException {
+        when(repository.find(SERVICE_INSTANCE_ID)).thenAnswer(invocation -> serviceInstanceFixture());
+        doThrow(conflict()).when(repository).save(any(ServiceInstance.class));
+
+        try {
+            ServiceInstanceUpdates.update(repository, SERVICE_INSTANCE_ID, instance -> null);
+            fail("Expected RepositoryConflictException");
+        } catch (RepositoryConflictException e) {
+            verify(repository, times(ServiceInstanceUpdates.MAX_ATTEMPTS)).save(any(ServiceInstance.class));
+        }
+    }
+
+    private static RepositoryConflictException conflict() {
+        return new RepositoryConflictException("changed", null);
+    }
+}
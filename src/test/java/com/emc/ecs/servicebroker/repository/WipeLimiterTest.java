@@ -0,0 +1,101 @@
+package com.emc.ecs.servicebroker.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WipeLimiterTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testLimitDoublesUntilThrottledThenGrowsByOne() throws Exception {
+        WipeLimiter limiter = new WipeLimiter(32);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+        assertEquals(8, limiter.getLimit());
+
+        window(limiter, 8, WipeLimiter.Outcome.SUCCEEDED, 10);
+        assertEquals(16, limiter.getLimit());
+        window(limiter, 16, WipeLimiter.Outcome.SUCCEEDED, 16);
+        assertEquals(32, limiter.getLimit());
+        window(limiter, 32, WipeLimiter.Outcome.SUCCEEDED, 32);
+        assertEquals(32, limiter.getLimit());
+
+        window(limiter, 32, WipeLimiter.Outcome.THROTTLED, 1);
+        window(limiter, 32, WipeLimiter.Outcome.SUCCEEDED, 31);
+        assertEquals(16, limiter.getLimit());
+        assertEquals(16.0, registry.get("ecs.bucket-wipe.deletes.limit").gauge().value(), 0);
+        assertEquals(1.0, registry.get("ecs.bucket-wipe.deletes.throttled").functionCounter().count(), 0);
+
+        window(limiter, 16, WipeLimiter.Outcome.SUCCEEDED, 16);
+        assertEquals(17, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitStaysWhenNotReached() throws Exception {
+        WipeLimiter limiter = new WipeLimiter(32);
+        window(limiter, 1, WipeLimiter.Outcome.SUCCEEDED, 20);
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitHalvesOnFailuresAndLatency() throws Exception {
+        WipeLimiter limiter = new WipeLimiter(32);
+        window(limiter, 8, WipeLimiter.Outcome.FAILED, 1);
+        window(limiter, 8, WipeLimiter.Outcome.SUCCEEDED, 9);
+        assertEquals(4, limiter.getLimit());
+
+        // Slower than usual, but not by enough to back off
+        for (int i = 0; i < WipeLimiter.MIN_WINDOW; i++)
+            request(limiter, 3 * MILLI, WipeLimiter.Outcome.SUCCEEDED);
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < WipeLimiter.MIN_WINDOW; i++)
+            request(limiter, 50 * MILLI, WipeLimiter.Outcome.SUCCEEDED);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRequestsWaitAtLimit() throws Exception {
+        WipeLimiter limiter = new WipeLimiter(1);
+        limiter.acquire();
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        limiter.release(MILLI, WipeLimiter.Outcome.SUCCEEDED);
+        waiting.get(30, TimeUnit.SECONDS);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    /**
+     * Makes requests that each take a millisecond, in rounds of the given
+     * number in flight at once.
+     */
+    private static void window(WipeLimiter limiter, int inFlight, WipeLimiter.Outcome outcome, int requests)
+            throws InterruptedException {
+        for (int done = 0; done < requests; done += inFlight) {
+            int round = Math.min(inFlight, requests - done);
+            for (int i = 0; i < round; i++)
+                limiter.acquire();
+            for (int i = 0; i < round; i++)
+                limiter.release(MILLI, outcome);
+        }
+    }
+
+    private static void request(WipeLimiter limiter, long latency, WipeLimiter.Outcome outcome)
+            throws InterruptedException {
+        limiter.acquire();
+        limiter.release(latency, outcome);
+    }
+}
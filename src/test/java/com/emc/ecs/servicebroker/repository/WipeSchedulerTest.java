@@ -0,0 +1,190 @@
+package com.emc.ecs.servicebroker.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class WipeSchedulerTest {
+    private WipeScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    public void testJobsWaitByPriority() throws Exception {
+        scheduler = new WipeScheduler(1, 2, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scheduler.bindTo(registry);
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        WipeScheduler.Job first = scheduler.submit("first", 0, job -> started.add(job.getName()));
+        WipeScheduler.Job low = scheduler.submit("low", 0, job -> started.add(job.getName()));
+        WipeScheduler.Job high = scheduler.submit("high", 5, job -> started.add(job.getName()));
+        assertEquals(1, scheduler.getRunningJobs());
+        assertEquals(2, scheduler.getWaitingJobs());
+        assertEquals(2.0, registry.get("ecs.bucket-wipe.jobs.waiting").gauge().value(), 0);
+        assertNotNull(registry.get("ecs.bucket-wipe.deletes").tag("bucket", "first").counter());
+
+        first.execute(() -> { }).get(30, TimeUnit.SECONDS);
+        assertEquals(1.0, registry.get("ecs.bucket-wipe.deletes").tag("bucket", "first").counter().count(), 0);
+        first.finish();
+        assertTrue(registry.find("ecs.bucket-wipe.deletes").tag("bucket", "first").counters().isEmpty());
+        waitFor(() -> started.size() == 2);
+        high.finish();
+        low.finish();
+
+        waitFor(() -> started.size() == 3);
+        assertEquals(3, started.size());
+        assertEquals("first", started.get(0));
+        assertEquals("high", started.get(1));
+        assertEquals("low", started.get(2));
+        assertEquals(0, scheduler.getRunningJobs());
+        assertEquals(0, scheduler.getWaitingJobs());
+    }
+
+    @Test
+    public void testRunningJobsShareThreadsInTurn() throws Exception {
+        scheduler = new WipeScheduler(2, 1, 100);
+        WipeScheduler.Job a = scheduler.submit("a", 0, job -> { });
+        WipeScheduler.Job b = scheduler.submit("b", 0, job -> { });
+
+        // Hold the only thread while both jobs queue their tasks
+        CountDownLatch gate = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = a.execute(() -> await(gate));
+        waitFor(() -> scheduler.getQueuedTasks() == 0);
+
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            tasks.add(a.execute(() -> ran.add("a")));
+        for (int i = 0; i < 5; i++)
+            tasks.add(b.execute(() -> ran.add("b")));
+        assertEquals(10, scheduler.getQueuedTasks());
+
+        gate.countDown();
+        blocker.get(30, TimeUnit.SECONDS);
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        assertEquals(10, ran.size());
+        for (int i = 1; i < ran.size(); i++)
+            assertNotEquals(ran.toString(), ran.get(i - 1), ran.get(i));
+    }
+
+    @Test
+    public void testJobWaitsForItsShareOfQueue() throws Exception {
+        scheduler = new WipeScheduler(1, 1, 2);
+        WipeScheduler.Job job = scheduler.submit("job", 0, j -> { });
+
+        CountDownLatch gate = new CountDownLatch(1);
+        job.execute(() -> await(gate));
+        waitFor(() -> scheduler.getQueuedTasks() == 0);
+        job.execute(() -> { });
+        job.execute(() -> { });
+
+        CompletableFuture<Void> queued = new CompletableFuture<>();
+        Thread lister = new Thread(() -> {
+            try {
+                job.execute(() -> { });
+                queued.complete(null);
+            } catch (InterruptedException e) {
+                queued.completeExceptionally(e);
+            }
+        });
+        lister.start();
+        Thread.sleep(200);
+        assertFalse(queued.isDone());
+        assertEquals(2, scheduler.getQueuedTasks());
+
+        gate.countDown();
+        queued.get(30, TimeUnit.SECONDS);
+        lister.join();
+    }
+
+    @Test
+    public void testJobRunningAloneUsesWholeQueue() throws Exception {
+        scheduler = new WipeScheduler(4, 1, 4);
+        WipeScheduler.Job a = scheduler.submit("a", 0, j -> { });
+
+        CountDownLatch gate = new CountDownLatch(1);
+        a.execute(() -> await(gate));
+        waitFor(() -> scheduler.getQueuedTasks() == 0);
+        for (int i = 0; i < 4; i++)
+            a.execute(() -> { });
+        assertEquals(4, scheduler.getQueuedTasks());
+
+        WipeScheduler.Job b = scheduler.submit("b", 0, j -> { });
+        CompletableFuture<Void> queued = new CompletableFuture<>();
+        Thread lister = new Thread(() -> {
+            try {
+                a.execute(() -> { });
+                queued.complete(null);
+            } catch (InterruptedException e) {
+                queued.completeExceptionally(e);
+            }
+        });
+        lister.start();
+        Thread.sleep(200);
+        assertFalse(queued.isDone());
+
+        b.finish();
+        queued.get(30, TimeUnit.SECONDS);
+        lister.join();
+        gate.countDown();
+    }
+
+    @Test
+    public void testRetryWaitsWithoutHoldingThread() throws Exception {
+        scheduler = new WipeScheduler(1, 1, 10);
+        WipeScheduler.Job job = scheduler.submit("job", 0, j -> { });
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> retried = job.retry(() -> { }, 500);
+        job.execute(() -> { }).get(30, TimeUnit.SECONDS);
+        assertFalse(retried.isDone());
+
+        retried.get(30, TimeUnit.SECONDS);
+        assertTrue(System.currentTimeMillis() - start >= 500);
+    }
+
+    @Test
+    public void testFailedTaskCompletesExceptionally() throws Exception {
+        scheduler = new WipeScheduler(1, 1, 10);
+        WipeScheduler.Job job = scheduler.submit("job", 0, j -> { });
+        CompletableFuture<Void> failed = job.execute(() -> {
+            throw new IllegalStateException("failed");
+        });
+        try {
+            failed.get(30, TimeUnit.SECONDS);
+            fail("Expected the task to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        job.execute(() -> { }).get(30, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch gate) {
+        try {
+            gate.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+    }
+}
@@ -5,6 +5,7 @@ import com.emc.ecs.servicebroker.model.ReclaimPolicy;
 import com.emc.ecs.servicebroker.model.ServiceDefinitionProxy;
 import com.emc.ecs.servicebroker.repository.ServiceInstance;
 import com.emc.ecs.servicebroker.repository.ServiceInstanceRepository;
+import com.emc.ecs.servicebroker.repository.WipeScheduler;
 import com.github.paulcwarren.ginkgo4j.Ginkgo4jRunner;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -36,7 +37,7 @@ public class BucketInstanceWorkflowTest {
                 instanceRepo = mock(ServiceInstanceRepository.class);
                 workflow = new BucketInstanceWorkflow(instanceRepo, ecs);
 
-                when(ecs.wipeAndDeleteBucket(any())).thenReturn(CompletableFuture.completedFuture(true));
+                when(ecs.wipeAndDeleteBucket(any(), anyInt())).thenReturn(CompletableFuture.completedFuture(true));
             });
 
             Context("#changePlan", () -> {
@@ -62,7 +63,7 @@ public class BucketInstanceWorkflowTest {
                         CompletableFuture result = workflow.delete(BUCKET_NAME);
                         assertNull(result);
                         verify(ecs, times(1)).deleteBucket(BUCKET_NAME);
-                        verify(ecs, times(0)).wipeAndDeleteBucket(BUCKET_NAME);
+                        verify(ecs, times(0)).wipeAndDeleteBucket(eq(BUCKET_NAME), anyInt());
                     });
                 });
 
@@ -73,7 +74,7 @@ public class BucketInstanceWorkflowTest {
                         CompletableFuture result = workflow.delete(BUCKET_NAME);
                         assertNull(result);
                         verify(ecs, times(1)).deleteBucket(BUCKET_NAME);
-                        verify(ecs, times(0)).wipeAndDeleteBucket(BUCKET_NAME);
+                        verify(ecs, times(0)).wipeAndDeleteBucket(eq(BUCKET_NAME), anyInt());
                     });
                 });
 
@@ -84,7 +85,7 @@ public class BucketInstanceWorkflowTest {
                         CompletableFuture result = workflow.delete(BUCKET_NAME);
                         assertNull(result);
                         verify(ecs, times(0)).deleteBucket(BUCKET_NAME);
-                        verify(ecs, times(0)).wipeAndDeleteBucket(BUCKET_NAME);
+                        verify(ecs, times(0)).wipeAndDeleteBucket(eq(BUCKET_NAME), anyInt());
                     });
                 });
 
@@ -95,7 +96,20 @@ public class BucketInstanceWorkflowTest {
                         CompletableFuture result = workflow.delete(BUCKET_NAME);
                         assertNotNull(result);
                         verify(ecs, times(0)).deleteBucket(BUCKET_NAME);
-                        verify(ecs, times(1)).wipeAndDeleteBucket(BUCKET_NAME);
+                        verify(ecs, times(1)).wipeAndDeleteBucket(BUCKET_NAME, WipeScheduler.DEFAULT_PRIORITY);
+                    });
+                });
+
+                Context("with Delete ReclaimPolicy and a wipe priority", () -> {
+                    It("should wipe at that priority", () -> {
+                        Map<String, Object> settings = new HashMap<>();
+                        settings.put(RECLAIM_POLICY, ReclaimPolicy.Delete);
+                        settings.put("wipe-priority", "5");
+                        bucketInstance.setServiceSettings(settings);
+
+                        CompletableFuture result = workflow.delete(BUCKET_NAME);
+                        assertNotNull(result);
+                        verify(ecs, times(1)).wipeAndDeleteBucket(BUCKET_NAME, 5);
                     });
                 });
             });
@@ -19,6 +19,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.servicebroker.exception.ServiceBrokerException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -85,6 +86,7 @@ public class EcsServiceTest {
 
     @Before
     public void setUp() {
+        ReflectionTestUtils.setField(ecs, "topology", new TopologyCache(connection, 0));
         when(broker.getPrefix()).thenReturn(PREFIX);
         when(broker.getReplicationGroup()).thenReturn(RG_NAME);
         when(broker.getNamespace()).thenReturn(NAMESPACE);
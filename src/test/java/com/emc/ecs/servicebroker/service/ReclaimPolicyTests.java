@@ -25,6 +25,7 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -73,6 +74,7 @@ public class ReclaimPolicyTests {
 
     @Before
     public void setUp() {
+        ReflectionTestUtils.setField(ecs, "topology", new TopologyCache(connection, 0));
         when(broker.getPrefix()).thenReturn(PREFIX);
         when(broker.getReplicationGroup()).thenReturn(RG_NAME);
         when(broker.getNamespace()).thenReturn(NAMESPACE);
@@ -234,7 +236,7 @@ public class ReclaimPolicyTests {
         workflow.delete(instance.getServiceInstanceId());
 
         verify(ecs, times(1)).deleteBucket(instance.getServiceInstanceId());
-        verify(ecs, times(0)).wipeAndDeleteBucket(instance.getServiceInstanceId());
+        verify(ecs, times(0)).wipeAndDeleteBucket(eq(instance.getServiceInstanceId()), anyInt());
     }
 
     private void setupInitTest() throws EcsManagementClientException {